@@ -0,0 +1,238 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/*
+ * EngineBenchmark class measures the hot paths of the game engines without opening a window.
+ * Every benchmark runs a few warm-up iterations so the JIT settles, then several measured iterations
+ * of a fixed wall-clock length. For each benchmark it prints the average time per operation, the
+ * spread between iterations, the bytes allocated per operation and the allocation rate, and the
+ * number and time of garbage collections, so a regression in speed or allocation shows up in one run.
+ * Allocation is read from the JVM's per-thread allocation counters, summed over all live threads so
+ * work done on search pools is included.
+ * Usage: java EngineBenchmark [nameFilter|all] [iterationMillis]
+ * For example: java EngineBenchmark snake 500, or mvn -Pbenchmark verify for every benchmark
+ */
+public class EngineBenchmark {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+
+    private static volatile int sink; // Results are written here so the JIT cannot drop the work.
+
+    private final List<String> names = new ArrayList<>();
+    private final List<IntSupplier> operations = new ArrayList<>();
+    private final long iterationNanos;
+    private final com.sun.management.ThreadMXBean threads;
+
+    /*
+     * Constructor to create a new EngineBenchmark.
+     * @param iterationMillis the length of each warm-up and measured iteration
+     */
+    public EngineBenchmark(long iterationMillis) {
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.threads = (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+                ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    /*
+     * Register a benchmark. The operation should do one unit of work and return something derived from it.
+     * @param name the name printed in the report and matched by the filter
+     * @param operation the work to measure
+     */
+    public void add(String name, IntSupplier operation) {
+        names.add(name);
+        operations.add(operation);
+    }
+
+    /*
+     * Run every registered benchmark whose name contains the filter and print one line for each.
+     * @param filter a part of the benchmark name, or an empty string for all benchmarks
+     */
+    public void run(String filter) {
+        System.out.printf("%-36s %12s %9s %12s %12s %10s %8s%n",
+                "Benchmark", "ns/op", "+/-%", "ops/s", "B/op", "MB/s alloc", "gc ms");
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i).contains(filter)) {
+                measure(names.get(i), operations.get(i));
+            }
+        }
+    }
+
+    private void measure(String name, IntSupplier operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iterate(operation);
+        }
+        double[] nanosPerOp = new double[MEASURED_ITERATIONS];
+        long totalOps = 0;
+        long totalNanos = 0;
+        long allocatedBefore = allocatedBytes();
+        long gcBefore = gcMillis();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            long ops = iterate(operation);
+            long elapsed = System.nanoTime() - start;
+            nanosPerOp[i] = (double) elapsed / ops;
+            totalOps += ops;
+            totalNanos += elapsed;
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+        long gc = gcMillis() - gcBefore;
+
+        double mean = (double) totalNanos / totalOps;
+        double spread = 0;
+        for (double value : nanosPerOp) {
+            spread = Math.max(spread, Math.abs(value - mean));
+        }
+        System.out.printf("%-36s %12.1f %9.1f %12.0f %12s %10s %8d%n", name, mean, 100 * spread / mean,
+                totalOps * 1e9 / totalNanos,
+                allocated < 0 ? "n/a" : String.format("%.1f", (double) allocated / totalOps),
+                allocated < 0 ? "n/a" : String.format("%.1f", allocated / 1e6 / (totalNanos / 1e9)), gc);
+    }
+
+    /*
+     * Call the operation in growing batches until the iteration time is used up.
+     * @return the number of operations run
+     */
+    private long iterate(IntSupplier operation) {
+        long deadline = System.nanoTime() + iterationNanos;
+        long ops = 0;
+        int batch = 1;
+        int result = 0;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < batch; i++) {
+                result += operation.getAsInt();
+            }
+            ops += batch;
+            if (batch < 1024) batch <<= 1;
+        }
+        sink = result;
+        return ops;
+    }
+
+    /*
+     * Get the bytes allocated so far by all live threads, or -1 if the JVM cannot tell.
+     */
+    private long allocatedBytes() {
+        if (threads == null) return -1;
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    /*
+     * Create an AI with a position already played, so bestMove() always searches the same position.
+     * The moves alternate between 'X' and 'O', starting with 'X'.
+     */
+    private static TicTacToeAI position(String difficulty, int size, int winLength, int... cells) {
+        TicTacToeAI ai = new TicTacToeAI(difficulty, size, winLength);
+        ai.setSearchThreads(1);
+        for (int i = 0; i < cells.length; i++) {
+            ai.makeMove(cells[i] / size, cells[i] % size, i % 2 == 0 ? 'X' : 'O');
+        }
+        return ai;
+    }
+
+    /*
+     * Play a move for 'O', run the game-over checks and take the move back.
+     */
+    private static int gameOverCheck(TicTacToeAI ai, int cell) {
+        ai.makeMove(cell / ai.getSize(), cell % ai.getSize(), 'O');
+        int result = (ai.checkWin('O') ? 1 : 0) + (ai.isFull() ? 2 : 0);
+        ai.undoMove();
+        return result;
+    }
+
+    /*
+     * Register the standard benchmarks: bestMove at each difficulty on representative positions,
+     * the game-over checks, the Snake step on the normal board and in a huge world, and the Snake autopilot.
+     */
+    private void addStandardBenchmarks() {
+        // 3x3: an opening reply and a middle-game position with threats on both sides.
+        int[] reply = {4};
+        int[] middle = {4, 0, 2, 6};
+        for (String difficulty : new String[]{"Easy", "Medium", "Unbeatable"}) {
+            TicTacToeAI early = position(difficulty, 3, 3, reply);
+            TicTacToeAI late = position(difficulty, 3, 3, middle);
+            add("ttt3.bestMove." + difficulty + ".reply", () -> early.bestMove()[0]);
+            add("ttt3.bestMove." + difficulty + ".middle", () -> late.bestMove()[0]);
+        }
+        TicTacToeAI mcts3 = position("Monte Carlo", 3, 3, middle);
+        mcts3.setMonteCarloPlayouts(2_000);
+        add("ttt3.bestMove.MonteCarlo2k.middle", () -> mcts3.bestMove()[0]);
+
+        // Larger boards with fixed node and playout budgets, so every call does the same amount of work.
+        int[] opening9 = {40, 41, 49, 31};
+        int[] opening15 = {112, 113, 128, 98, 127};
+        TicTacToeAI unbeatable9 = position("Unbeatable", 9, 5, opening9);
+        unbeatable9.setNodeLimit(20_000);
+        add("ttt9.bestMove.Unbeatable20kNodes", () -> unbeatable9.bestMove()[0]);
+        TicTacToeAI unbeatable15 = position("Unbeatable", 15, 5, opening15);
+        unbeatable15.setNodeLimit(20_000);
+        add("ttt15.bestMove.Unbeatable20kNodes", () -> unbeatable15.bestMove()[0]);
+        TicTacToeAI medium15 = position("Medium", 15, 5, opening15);
+        add("ttt15.bestMove.Medium", () -> medium15.bestMove()[0]);
+        TicTacToeAI mcts15 = position("Monte Carlo", 15, 5, opening15);
+        mcts15.setMonteCarloPlayouts(1_000);
+        add("ttt15.bestMove.MonteCarlo1k", () -> mcts15.bestMove()[0]);
+
+        // A move followed by the game-over checks the panel runs after it, then taken back.
+        TicTacToeAI check3 = position("Easy", 3, 3, middle);
+        add("ttt3.makeMove+checkWin+isFull+undo", () -> gameOverCheck(check3, 8));
+        TicTacToeAI check15 = position("Easy", 15, 5, opening15);
+        add("ttt15.makeMove+checkWin+isFull+undo", () -> gameOverCheck(check15, 114));
+
+        // Snake: one step with a steering pattern that turns, eats and sometimes crashes into itself.
+        SnakeEngine snake = new SnakeEngine(600, 600, 1);
+        char[] turns = {'D', 'R', 'U', 'R'};
+        int[] tick = new int[1];
+        add("snake.step", () -> {
+            int t = tick[0]++;
+            if (!snake.step(turns[(t >>> 3) & 3])) snake.reset(snake.getSeed() + 1);
+            return snake.getSnakeX(0);
+        });
+        // The autopilot's decision followed by the step it chose, over whole games.
+        SnakeEngine piloted = new SnakeEngine(600, 600, 1);
+        SnakeAutopilot autopilot = new SnakeAutopilot(piloted, false);
+        add("snake.autopilot+step", () -> {
+            if (!piloted.step(autopilot.nextDirection())) piloted.reset(piloted.getSeed() + 1);
+            return piloted.getSnakeX(0);
+        });
+        // The same steering in a 4096x4096 world with sparse, chunked storage.
+        SnakeWorld world = new SnakeWorld(4096, 4096, 32_768, 1);
+        add("snakeWorld.step", () -> {
+            int t = tick[0]++;
+            if (!world.step(turns[(t >>> 3) & 3])) world.reset(world.getSeed() + 1);
+            return world.getSnakeCell(0);
+        });
+        // One tick of 500 AI snakes sharing a 200x200 board, on the calling thread.
+        SnakeArena arena = new SnakeArena(200, 200, 500, 1000, 1, 1);
+        add("snakeArena.tick.500", () -> {
+            arena.tick();
+            return arena.getAliveCount();
+        });
+    }
+
+    public static void main(String[] args) {
+        String filter = (args.length > 0 && !args[0].equals("all")) ? args[0] : "";
+        long iterationMillis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        EngineBenchmark benchmark = new EngineBenchmark(iterationMillis);
+        benchmark.addStandardBenchmarks();
+        System.out.printf("%d warm-up and %d measured iterations of %d ms each%n",
+                WARMUP_ITERATIONS, MEASURED_ITERATIONS, iterationMillis);
+        benchmark.run(filter);
+    }
+}
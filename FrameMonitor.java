@@ -0,0 +1,301 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/*
+ * FrameMonitor class measures where the time of a game panel goes: how long each tick of the game takes,
+ * how long painting takes, how regularly frames reach the screen, and how long a key press waits for the tick
+ * that acts on it. Every value goes into a LatencyHistogram, shown by drawOverlay() and exported as CSV by
+ * exportHistograms(), and into a JDK Flight Recorder event when a recording is running, so stutter can be
+ * lined up with GC and other JVM events in JDK Mission Control:
+ *   java -XX:StartFlightRecording=filename=game.jfr ProjectRunner
+ * A panel calls beginTick()/endTick() around its game update, beginPaint()/endPaint() around paintComponent(),
+ * frameShown() once a frame is on the screen and inputReceived() when a key arrives. The events are only
+ * created while their type is enabled, so without a recording the monitor only updates its histograms.
+ * A monitor is not thread-safe; call it from the thread that runs the panel.
+ */
+public class FrameMonitor {
+    public static final int OVERLAY_WIDTH = 330;
+    public static final int OVERLAY_HEIGHT = 66;
+    private static final Font OVERLAY_FONT = new Font("Monospaced", Font.PLAIN, 12);
+    private static final Color OVERLAY_BACKGROUND = new Color(0, 0, 0, 160);
+
+    @Name("GameLibrary.Tick")
+    @Label("Game Tick")
+    @Category({"Game Library", "Frames"})
+    @Description("One update of the game state")
+    static class TickEvent extends Event {
+        @Label("Game")
+        String game;
+    }
+
+    @Name("GameLibrary.Paint")
+    @Label("Game Paint")
+    @Category({"Game Library", "Frames"})
+    @Description("One call to paintComponent of a game panel")
+    static class PaintEvent extends Event {
+        @Label("Game")
+        String game;
+    }
+
+    @Name("GameLibrary.Frame")
+    @Label("Game Frame")
+    @Category({"Game Library", "Frames"})
+    @Description("A frame reached the screen")
+    static class FrameEvent extends Event {
+        @Label("Game")
+        String game;
+        @Label("Interval")
+        @Description("Time since the previous frame")
+        @Timespan(Timespan.NANOSECONDS)
+        long interval;
+        @Label("Jitter")
+        @Description("How far the interval was from the intended frame time")
+        @Timespan(Timespan.NANOSECONDS)
+        long jitter;
+    }
+
+    @Name("GameLibrary.InputLatency")
+    @Label("Input Latency")
+    @Category({"Game Library", "Frames"})
+    @Description("Time from a key press to the start of the tick that acts on it")
+    static class InputLatencyEvent extends Event {
+        @Label("Game")
+        String game;
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+    }
+
+    private static final EventType TICK_TYPE = EventType.getEventType(TickEvent.class);
+    private static final EventType PAINT_TYPE = EventType.getEventType(PaintEvent.class);
+    private static final EventType FRAME_TYPE = EventType.getEventType(FrameEvent.class);
+    private static final EventType INPUT_TYPE = EventType.getEventType(InputLatencyEvent.class);
+
+    private final String game;
+    private final long frameNanos;
+    private final LatencyHistogram ticks = new LatencyHistogram();
+    private final LatencyHistogram paints = new LatencyHistogram();
+    private final LatencyHistogram intervals = new LatencyHistogram();
+    private final LatencyHistogram jitter = new LatencyHistogram();
+    private final LatencyHistogram inputs = new LatencyHistogram();
+
+    private long tickStart;
+    private TickEvent tickEvent;
+    private long paintStart;
+    private PaintEvent paintEvent;
+    private long lastFrame;
+    private long inputTime; // When the oldest key press not yet acted on arrived, or 0.
+
+    /*
+     * Constructor for a monitor of one panel.
+     * @param game the name of the game, recorded in every event
+     * @param frameNanos the intended time between frames, which jitter is measured against
+     */
+    public FrameMonitor(String game, long frameNanos) {
+        this.game = game;
+        this.frameNanos = frameNanos;
+    }
+
+    /*
+     * Mark the start of a tick. Also ends the input latency of a key pressed since the last tick.
+     */
+    public void beginTick() {
+        tickStart = System.nanoTime();
+        if (inputTime != 0) {
+            long latency = tickStart - inputTime;
+            inputs.record(latency);
+            inputTime = 0;
+            if (INPUT_TYPE.isEnabled()) {
+                InputLatencyEvent event = new InputLatencyEvent();
+                event.game = game;
+                event.latency = latency;
+                event.commit();
+            }
+        }
+        if (TICK_TYPE.isEnabled()) {
+            tickEvent = new TickEvent();
+            tickEvent.game = game;
+            tickEvent.begin();
+        }
+    }
+
+    /*
+     * Mark the end of the tick started by beginTick().
+     */
+    public void endTick() {
+        ticks.record(System.nanoTime() - tickStart);
+        if (tickEvent != null) {
+            tickEvent.commit();
+            tickEvent = null;
+        }
+    }
+
+    /*
+     * Mark the start of a paint.
+     */
+    public void beginPaint() {
+        paintStart = System.nanoTime();
+        if (PAINT_TYPE.isEnabled()) {
+            paintEvent = new PaintEvent();
+            paintEvent.game = game;
+            paintEvent.begin();
+        }
+    }
+
+    /*
+     * Mark the end of the paint started by beginPaint().
+     */
+    public void endPaint() {
+        paints.record(System.nanoTime() - paintStart);
+        if (paintEvent != null) {
+            paintEvent.commit();
+            paintEvent = null;
+        }
+    }
+
+    /*
+     * Mark that a frame has been drawn to the screen, and measure the time since the last one.
+     */
+    public void frameShown() {
+        long now = System.nanoTime();
+        if (lastFrame != 0) {
+            long interval = now - lastFrame;
+            long deviation = Math.abs(interval - frameNanos);
+            intervals.record(interval);
+            jitter.record(deviation);
+            if (FRAME_TYPE.isEnabled()) {
+                FrameEvent event = new FrameEvent();
+                event.game = game;
+                event.interval = interval;
+                event.jitter = deviation;
+                event.commit();
+            }
+        }
+        lastFrame = now;
+    }
+
+    /*
+     * Forget the time of the last frame, for example when the game pauses, so the pause is not counted as a frame.
+     */
+    public void framesPaused() {
+        lastFrame = 0;
+    }
+
+    /*
+     * Mark that a key has arrived. Its latency ends at the next beginTick(); further keys before then
+     * are covered by the first one.
+     */
+    public void inputReceived() {
+        if (inputTime == 0) {
+            inputTime = System.nanoTime();
+        }
+    }
+
+    public LatencyHistogram getTickTimes() {
+        return ticks;
+    }
+
+    public LatencyHistogram getPaintTimes() {
+        return paints;
+    }
+
+    public LatencyHistogram getFrameIntervals() {
+        return intervals;
+    }
+
+    public LatencyHistogram getFrameJitter() {
+        return jitter;
+    }
+
+    public LatencyHistogram getInputLatencies() {
+        return inputs;
+    }
+
+    /*
+     * Draw the percentiles of every histogram in a box of OVERLAY_WIDTH by OVERLAY_HEIGHT pixels.
+     * @param g the graphics to draw with
+     * @param x the left edge of the box
+     * @param y the top edge of the box
+     */
+    public void drawOverlay(Graphics2D g, int x, int y) {
+        g.setColor(OVERLAY_BACKGROUND);
+        g.fillRect(x, y, OVERLAY_WIDTH, OVERLAY_HEIGHT);
+        g.setColor(Color.GREEN);
+        g.setFont(OVERLAY_FONT);
+        drawLine(g, "tick  ", ticks, x + 6, y + 14);
+        drawLine(g, "paint ", paints, x + 6, y + 28);
+        drawLine(g, "jitter", jitter, x + 6, y + 42);
+        drawLine(g, "input ", inputs, x + 6, y + 56);
+    }
+
+    private static void drawLine(Graphics2D g, String name, LatencyHistogram histogram, int x, int y) {
+        g.drawString(name + " p50 " + format(histogram.getPercentile(50)) + " p99 " + format(histogram.getPercentile(99))
+                + " max " + format(histogram.getMax()), x, y);
+    }
+
+    private static String format(long nanos) {
+        return nanos >= 1_000_000 ? String.format("%6.1fms", nanos / 1e6) : String.format("%6.1fus", nanos / 1e3);
+    }
+
+    /*
+     * Write every histogram as CSV: one line per non-empty bucket with the metric, the bucket's bounds in
+     * nanoseconds and its count, ready for a spreadsheet or a plotting script.
+     * @param file the file to write
+     */
+    public void writeHistograms(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("game,metric,lower_ns,upper_ns,count");
+            writeHistogram(out, "tick", ticks);
+            writeHistogram(out, "paint", paints);
+            writeHistogram(out, "frame_interval", intervals);
+            writeHistogram(out, "frame_jitter", jitter);
+            writeHistogram(out, "input_latency", inputs);
+        }
+    }
+
+    private void writeHistogram(PrintWriter out, String metric, LatencyHistogram histogram) {
+        for (int i = 0; i < histogram.getBucketCount(); i++) {
+            long count = histogram.getCountAt(i);
+            if (count > 0) {
+                out.println(game + "," + metric + "," + histogram.lowerBoundOf(i) + ","
+                        + Math.min(histogram.upperBoundOf(i), histogram.getMax()) + "," + count);
+            }
+        }
+    }
+
+    /*
+     * Export the histograms to the directory set with -Dframes.export, if there is one, as
+     * <game>-frames-<time>.csv. Panels call this when they close. Errors are reported and otherwise ignored.
+     */
+    public void exportHistograms() {
+        String directory = System.getProperty("frames.export");
+        if (directory == null || directory.isEmpty() || ticks.getCount() + paints.getCount() == 0) return;
+        File file = new File(directory, game.replace(' ', '-') + "-frames-" + System.currentTimeMillis() + ".csv");
+        try {
+            file.getParentFile().mkdirs();
+            writeHistograms(file);
+        } catch (IOException e) {
+            System.err.println("Could not export the frame histograms: " + e);
+        }
+    }
+
+    /*
+     * Summarise the histograms in one line per metric.
+     */
+    @Override
+    public String toString() {
+        return game + " tick: " + ticks + "\n" + game + " paint: " + paints + "\n" + game + " frame interval: " + intervals
+                + "\n" + game + " frame jitter: " + jitter + "\n" + game + " input latency: " + inputs;
+    }
+}
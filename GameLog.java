@@ -0,0 +1,280 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/*
+ * GameLog class appends every finished game, of all four games, to one binary file.
+ * The file starts with an 8 byte header (the magic "GLOG", a version and two reserved bytes), followed by records.
+ * Every record has a fixed 32 byte header, big-endian:
+ *   0  int   payload length in bytes
+ *   4  int   CRC32 of bytes 8 up to the end of the payload
+ *   8  long  time the game ended, in milliseconds since the epoch
+ *   16 byte  game (TIC_TAC_TOE, SNAKE, MEMORY_TILE, MEMORY_SEQUENCE)
+ *   17 byte  result (WIN, LOSS or DRAW for Tic Tac Toe, OVER for the others)
+ *   18 byte  variant (the Tic Tac Toe board size, otherwise 0)
+ *   19 byte  level (the Tic Tac Toe difficulty, as an index into TicTacToeFrame.DIFFICULTIES)
+ *   20 byte  flags (PLAYER_SECOND when the player did not make the first move)
+ *   21       three reserved bytes
+ *   24 int   score (see below)
+ *   28 int   duration of the game in milliseconds
+ * The payload is the number of moves followed by the moves, all as unsigned varints (7 bits per byte, low bits first).
+ * The moves of each game are:
+ *   Tic Tac Toe:     the cells (row * size + col) in the order they were played; the score is the number of moves
+ *   Snake:           the seed of the game (an int), then every turn as (ticks since the previous turn << 2 | direction),
+ *                    with U, D, L, R as 0 to 3; SnakeEngine replays the game exactly from these
+ *   Memory Tile:     the 16 tile values in board order, then the tiles clicked; the score is the number of pair attempts
+ *   Memory Sequence: the colours of the sequence, then the wrong button pressed; the score is the rounds completed
+ *
+ * Games are logged from the Event Dispatch Thread: log() only encodes the record and queues it, and a
+ * single background thread opens the file, appends the records and forces them to disk. A crash can only cut
+ * the last record short; the length and CRC show where the valid records end, and the writer thread truncates
+ * the log there the next time it is opened. GameLogReader reads the file back through a memory map.
+ * The shared log is at ~/.game-library/games.log; start with -Dgamelog.file=path to use another file,
+ * or -Dgamelog.file= (empty) to turn logging off.
+ */
+public class GameLog {
+    public static final int MAGIC = 0x474C4F47; // "GLOG"
+    public static final short VERSION = 1;
+    public static final int FILE_HEADER_SIZE = 8;
+    public static final int RECORD_HEADER_SIZE = 32;
+    public static final int MAX_PAYLOAD = 1 << 20;
+
+    public static final int TIC_TAC_TOE = 0;
+    public static final int SNAKE = 1;
+    public static final int MEMORY_TILE = 2;
+    public static final int MEMORY_SEQUENCE = 3;
+
+    public static final int OVER = 0;
+    public static final int WIN = 1;
+    public static final int LOSS = 2;
+    public static final int DRAW = 3;
+
+    public static final int PLAYER_SECOND = 1;
+
+    private static final ByteBuffer CLOSE = ByteBuffer.allocate(0); // Tells the writer thread to stop.
+    private static GameLog shared;
+
+    private final File file;
+    private FileChannel channel; // Only used by the writer thread.
+    private final LinkedBlockingQueue<ByteBuffer> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /*
+     * Start a log that appends to a file, creating it if needed. The file is opened on the writer thread,
+     * so this returns at once; if it cannot be opened the error is reported and the records are dropped.
+     * @param file the log file
+     */
+    public GameLog(File file) {
+        this.file = file;
+        writer = new Thread(this::writeRecords, "Game log writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /*
+     * Open the file for appending. If it ends with a torn record from a crash, that record is cut off.
+     */
+    private void open() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < FILE_HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.force(true);
+        } else {
+            long end = validEnd(channel);
+            if (end < channel.size()) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+        }
+        channel.position(channel.size());
+    }
+
+    /*
+     * Get the log shared by all games, started on first use. The file is opened on the writer thread.
+     * @return the shared log, or null if logging is turned off
+     */
+    public static synchronized GameLog shared() {
+        if (shared == null) {
+            String path = System.getProperty("gamelog.file",
+                    System.getProperty("user.home") + File.separator + ".game-library" + File.separator + "games.log");
+            if (path.isEmpty()) return null;
+            shared = new GameLog(new File(path));
+            GameLog log = shared;
+            Runtime.getRuntime().addShutdownHook(new Thread(log::close, "Game log shutdown"));
+        }
+        return shared;
+    }
+
+    /*
+     * Log a finished game to the shared log, if logging is on. The record is written in the background.
+     * @param game the game (TIC_TAC_TOE, SNAKE, MEMORY_TILE or MEMORY_SEQUENCE)
+     * @param result the result (WIN, LOSS, DRAW or OVER)
+     * @param variant the board size for Tic Tac Toe, otherwise 0
+     * @param level the difficulty for Tic Tac Toe, otherwise 0
+     * @param flags PLAYER_SECOND or 0
+     * @param score the score of the game
+     * @param durationMillis how long the game took
+     * @param moves the moves of the game; small values of zero or more take the fewest bytes
+     * @param moveCount the number of moves to log from the array
+     */
+    public static void record(int game, int result, int variant, int level, int flags, int score,
+                              long durationMillis, int[] moves, int moveCount) {
+        GameLog log = shared();
+        if (log != null) {
+            log.log(game, result, variant, level, flags, score, durationMillis, moves, moveCount);
+        }
+    }
+
+    /*
+     * Encode a finished game and queue it for writing. See record() for the parameters.
+     */
+    public void log(int game, int result, int variant, int level, int flags, int score,
+                    long durationMillis, int[] moves, int moveCount) {
+        if (closed) return;
+        ByteBuffer record = encode(System.currentTimeMillis(), game, result, variant, level, flags, score,
+                (int) Math.min(Integer.MAX_VALUE, durationMillis), moves, moveCount);
+        queue.add(record);
+    }
+
+    /*
+     * Encode one record, header and payload, ready to be written.
+     * @return the record, positioned at 0
+     */
+    static ByteBuffer encode(long time, int game, int result, int variant, int level, int flags, int score,
+                             int durationMillis, int[] moves, int moveCount) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + 5 * (moveCount + 1));
+        buffer.position(8);
+        buffer.putLong(time);
+        buffer.put((byte) game).put((byte) result).put((byte) variant).put((byte) level).put((byte) flags);
+        buffer.put((byte) 0).put((byte) 0).put((byte) 0);
+        buffer.putInt(score).putInt(durationMillis);
+        putVarint(buffer, moveCount);
+        for (int i = 0; i < moveCount; i++) {
+            putVarint(buffer, moves[i]);
+        }
+        int payload = buffer.position() - RECORD_HEADER_SIZE;
+        if (payload > MAX_PAYLOAD) throw new IllegalArgumentException("Too many moves for one record: " + moveCount);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 8, buffer.position() - 8);
+        buffer.putInt(0, payload);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /*
+     * Find where the valid records of a log end: the first record that is cut short or fails its CRC ends the log.
+     * @return the file offset just after the last valid record
+     */
+    static long validEnd(FileChannel channel) throws IOException {
+        ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        channel.read(fileHeader, 0);
+        if (fileHeader.getInt(0) != MAGIC) throw new IOException("Not a game log");
+        long size = channel.size();
+        long position = FILE_HEADER_SIZE;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        ByteBuffer payload = ByteBuffer.allocate(1024);
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.getInt(0);
+            if (length < 1 || length > MAX_PAYLOAD || position + RECORD_HEADER_SIZE + length > size) break;
+            if (payload.capacity() < length) payload = ByteBuffer.allocate(length);
+            payload.clear().limit(length);
+            channel.read(payload, position + RECORD_HEADER_SIZE);
+            crc.reset();
+            crc.update(header.array(), 8, RECORD_HEADER_SIZE - 8);
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != header.getInt(4)) break;
+            position += RECORD_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    /*
+     * Body of the writer thread: open the file, then append queued records and force each batch to disk.
+     */
+    private void writeRecords() {
+        try {
+            open();
+        } catch (IOException e) {
+            System.err.println("Game log disabled: " + e);
+            closed = true;
+            queue.clear();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Nothing was written.
+                }
+            }
+            return;
+        }
+        List<ByteBuffer> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                boolean stop = false;
+                for (ByteBuffer record : batch) {
+                    if (record == CLOSE) {
+                        stop = true;
+                        continue;
+                    }
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                }
+                batch.clear();
+                channel.force(false);
+                if (stop) break;
+            }
+        } catch (IOException e) {
+            System.err.println("Game log stopped: " + e);
+            closed = true;
+        } catch (InterruptedException e) {
+            // Closing without waiting.
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // The records already written are safe.
+            }
+        }
+    }
+
+    /*
+     * Write the records still queued, then close the file. Waits at most two seconds.
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        queue.add(CLOSE);
+        try {
+            writer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
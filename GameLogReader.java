@@ -0,0 +1,243 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/*
+ * GameLogReader class reads a GameLog file back through a memory map, for replays and statistics.
+ * It scans the records in order and hands each one to a visitor as a reusable Record view, so scanning
+ * millions of records allocates nothing per record. Large files are mapped one window at a time.
+ * The scan stops at the first record that is cut short or fails its CRC, which is where a crash
+ * during a write would leave the log.
+ * Usage: java GameLogReader [logFile] prints the number of games, results and average scores per game.
+ */
+public class GameLogReader implements AutoCloseable {
+    private static final long WINDOW = 256L << 20;
+    private static final String[] GAME_NAMES = {"Tic Tac Toe", "Snake", "Memory Tile", "Memory Sequence"};
+
+    private final FileChannel channel;
+    private final long size;
+    private final boolean verify;
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer map;
+    private ByteBuffer view; // A second cursor over the map, used for the CRC.
+    private long mapStart;
+    private long validEnd;
+
+    /*
+     * Visitor called for every valid record.
+     */
+    public interface Visitor {
+        /*
+         * @param record a view of the record, only valid during this call
+         */
+        void visit(Record record);
+    }
+
+    /*
+     * Constructor to open a log for reading.
+     * @param file the log file
+     * @param verify whether to check the CRC of every record
+     */
+    public GameLogReader(File file, boolean verify) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+        this.verify = verify;
+        ByteBuffer header = ByteBuffer.allocate(GameLog.FILE_HEADER_SIZE);
+        channel.read(header, 0);
+        if (size < GameLog.FILE_HEADER_SIZE || header.getInt(0) != GameLog.MAGIC) {
+            channel.close();
+            throw new IOException("Not a game log: " + file);
+        }
+    }
+
+    /*
+     * Visit every valid record in the order it was written.
+     * @param visitor called once per record
+     * @return the number of records visited
+     */
+    public long scan(Visitor visitor) throws IOException {
+        Record record = new Record();
+        long position = GameLog.FILE_HEADER_SIZE;
+        long count = 0;
+        while (position + GameLog.RECORD_HEADER_SIZE <= size) {
+            ensureMapped(position, GameLog.RECORD_HEADER_SIZE);
+            int offset = (int) (position - mapStart);
+            int length = map.getInt(offset);
+            if (length < 1 || length > GameLog.MAX_PAYLOAD || position + GameLog.RECORD_HEADER_SIZE + length > size) break;
+            int total = GameLog.RECORD_HEADER_SIZE + length;
+            if (ensureMapped(position, total)) offset = (int) (position - mapStart);
+            if (verify) {
+                view.limit(offset + total).position(offset + 8);
+                crc.reset();
+                crc.update(view);
+                if ((int) crc.getValue() != map.getInt(offset + 4)) break;
+            }
+            record.set(map, offset);
+            visitor.visit(record);
+            position += total;
+            count++;
+        }
+        validEnd = position;
+        return count;
+    }
+
+    /*
+     * Get where the valid records ended in the last scan. Anything after it is a torn or corrupt tail.
+     */
+    public long getValidEnd() {
+        return validEnd;
+    }
+
+    public long getFileSize() {
+        return size;
+    }
+
+    /*
+     * Make sure the bytes [position, position + length) are inside the mapped window, moving the window if not.
+     * @return true if the window was moved
+     */
+    private boolean ensureMapped(long position, int length) throws IOException {
+        if (map != null && position >= mapStart && position + length <= mapStart + map.limit()) return false;
+        mapStart = position;
+        map = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Math.max(WINDOW, length), size - position));
+        view = map.duplicate();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /*
+     * A view of one record in the mapped file. The moves are decoded on first use into a reused array.
+     */
+    public static class Record {
+        private ByteBuffer buffer;
+        private int offset;
+        private int[] moves = new int[64];
+        private int moveCount = -1;
+        private int cursor;
+
+        void set(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.moveCount = -1;
+        }
+
+        public long getTime() {
+            return buffer.getLong(offset + 8);
+        }
+
+        public int getGame() {
+            return buffer.get(offset + 16);
+        }
+
+        public int getResult() {
+            return buffer.get(offset + 17);
+        }
+
+        public int getVariant() {
+            return buffer.get(offset + 18);
+        }
+
+        public int getLevel() {
+            return buffer.get(offset + 19);
+        }
+
+        public int getFlags() {
+            return buffer.get(offset + 20);
+        }
+
+        public int getScore() {
+            return buffer.getInt(offset + 24);
+        }
+
+        public int getDurationMillis() {
+            return buffer.getInt(offset + 28);
+        }
+
+        public int getMoveCount() {
+            decodeMoves();
+            return moveCount;
+        }
+
+        /*
+         * Get one move of the game.
+         * @param index the move number, from 0
+         */
+        public int getMove(int index) {
+            decodeMoves();
+            return moves[index];
+        }
+
+        /*
+         * Copy the moves of the game.
+         * @return a new array with the moves
+         */
+        public int[] getMoves() {
+            decodeMoves();
+            return Arrays.copyOf(moves, moveCount);
+        }
+
+        private void decodeMoves() {
+            if (moveCount >= 0) return;
+            cursor = offset + GameLog.RECORD_HEADER_SIZE;
+            int count = readVarint();
+            if (moves.length < count) moves = new int[count];
+            for (int i = 0; i < count; i++) {
+                moves[i] = readVarint();
+            }
+            moveCount = count;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get(cursor++);
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        File file = new File(args.length > 0 ? args[0]
+                : System.getProperty("user.home") + File.separator + ".game-library" + File.separator + "games.log");
+        long[] games = new long[GAME_NAMES.length];
+        long[][] results = new long[GAME_NAMES.length][4];
+        long[] scores = new long[GAME_NAMES.length];
+        long[] moves = new long[GAME_NAMES.length];
+        try (GameLogReader reader = new GameLogReader(file, true)) {
+            long start = System.nanoTime();
+            long count = reader.scan(record -> {
+                int game = record.getGame();
+                if (game < 0 || game >= GAME_NAMES.length) return;
+                games[game]++;
+                results[game][record.getResult() & 3]++;
+                scores[game] += record.getScore();
+                moves[game] += record.getMoveCount();
+            });
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s: %d games, %d bytes, scanned in %.3f s (%.0f records/s)%n",
+                    file, count, reader.getFileSize(), seconds, count / Math.max(seconds, 1e-9));
+            if (reader.getValidEnd() < reader.getFileSize()) {
+                System.out.printf("%d bytes after the last valid record are ignored%n", reader.getFileSize() - reader.getValidEnd());
+            }
+        }
+        for (int g = 0; g < GAME_NAMES.length; g++) {
+            if (games[g] == 0) continue;
+            System.out.printf("%-16s %8d games  avg score %8.1f  avg moves %6.1f", GAME_NAMES[g], games[g],
+                    (double) scores[g] / games[g], (double) moves[g] / games[g]);
+            if (g == GameLog.TIC_TAC_TOE) {
+                System.out.printf("  won %d, lost %d, drawn %d", results[g][GameLog.WIN], results[g][GameLog.LOSS], results[g][GameLog.DRAW]);
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * LatencyHistogram class records durations in nanoseconds and reports percentiles.
+ * Values are counted in log-linear buckets: every power of two is split into 32 buckets,
+ * so a percentile is accurate to about 3% while the histogram stays a fixed 2 KB array no matter
+ * how many values are recorded. Recording never allocates.
+ * A histogram is not thread-safe. Give each thread its own and merge them with add().
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+    /*
+     * Record one duration.
+     * @param nanos the duration in nanoseconds; negative values are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        count++;
+        total += value;
+        if (value > max) max = value;
+    }
+
+    /*
+     * Add every value recorded by another histogram to this one.
+     * @param other the histogram to merge in
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /*
+     * Remove every recorded value.
+     */
+    public void clear() {
+        java.util.Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    /*
+     * Get the value below which the given share of recorded values fall.
+     * @param percentile the percentile between 0 and 100, for example 99.9
+     * @return the duration in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        rank = Math.max(1, rank);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(max, upperBoundOf(i));
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /*
+     * Get the average of the recorded values.
+     * @return the mean duration in nanoseconds
+     */
+    public double getMean() {
+        return count == 0 ? 0.0 : (double) total / count;
+    }
+
+    /*
+     * Get the number of buckets, for callers that export the raw histogram.
+     */
+    public int getBucketCount() {
+        return BUCKETS;
+    }
+
+    /*
+     * Get the number of values in a bucket.
+     */
+    public long getCountAt(int bucket) {
+        return counts[bucket];
+    }
+
+    /*
+     * Get the smallest value counted in a bucket.
+     */
+    public long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    /*
+     * Get the largest value counted in a bucket.
+     */
+    public long upperBoundOf(int bucket) {
+        return bucket + 1 < BUCKETS ? lowerBoundOf(bucket + 1) - 1 : Long.MAX_VALUE;
+    }
+
+    /*
+     * Map a value to its bucket. Values below 32 get a bucket each; larger values keep their top 6 bits.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /*
+     * Summarise the histogram in microseconds.
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                count, getMean() / 1e3, getPercentile(50) / 1e3, getPercentile(90) / 1e3,
+                getPercentile(99) / 1e3, getPercentile(99.9) / 1e3, max / 1e3);
+    }
+}
@@ -0,0 +1,293 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+
+/*
+ * MCTSEngine class chooses moves with Monte Carlo Tree Search for any MNKEngine board.
+ * Each iteration walks down the tree with the UCT rule, expands a leaf, plays random moves
+ * to the end of the game and backs the result up the path.
+ * The search is root-parallel: every thread grows its own tree on its own copy of the position,
+ * and the visit counts of the root moves are added up at the end. The most visited move is played.
+ * Trees are stored in primitive arrays that are allocated once and reused, and playouts place and undo
+ * stones on the engine copy, so iterations do not allocate.
+ * Strength is tuned with the playout budget; cost grows with the budget, not with the board's game tree.
+ * An engine with one thread searches on the calling thread and starts no threads of its own.
+ */
+public class MCTSEngine {
+    private static final int TREE_CAPACITY = 1 << 17; // Nodes per thread.
+    private static final double EXPLORATION = 1.4;
+    private static final int CHECK_INTERVAL = 63; // Check the clock every 64 playouts.
+
+    private final ForkJoinPool pool; // Null with one thread.
+    private final Tree[] trees;
+    private long playoutLimit = 20_000;
+    private long timeLimitMillis = 1000;
+    private volatile BooleanSupplier stopCondition = () -> false;
+
+    private long lastPlayouts;
+    private long lastNanos;
+    private int lastMaxDepth;
+
+    /*
+     * Constructor to create a new MCTSEngine.
+     * @param threads the number of threads, each growing its own tree
+     */
+    public MCTSEngine(int threads) {
+        int count = Math.max(1, threads);
+        pool = (count > 1) ? new ForkJoinPool(count) : null;
+        trees = new Tree[count];
+        for (int i = 0; i < count; i++) {
+            trees[i] = new Tree();
+        }
+    }
+
+    /*
+     * Set the total number of playouts per move, shared between the threads.
+     * @param playouts the playout budget
+     */
+    public void setPlayoutLimit(long playouts) {
+        this.playoutLimit = Math.max(1, playouts);
+    }
+
+    /*
+     * Set the wall-clock budget per move. The search stops at whichever budget runs out first.
+     * @param millis the time limit in milliseconds
+     */
+    public void setTimeLimitMillis(long millis) {
+        this.timeLimitMillis = millis;
+    }
+
+    public int getThreads() {
+        return trees.length;
+    }
+
+    /*
+     * Set a condition that is polled between playouts; when it becomes true the search stops.
+     * @param condition the stop condition, or null to never stop early
+     */
+    public void setStopCondition(BooleanSupplier condition) {
+        this.stopCondition = (condition != null) ? condition : () -> false;
+    }
+
+    /*
+     * Choose a move for the side to move. The position is only read.
+     * @param position the position to search
+     * @return the chosen cell, or -1 if the game is over
+     */
+    public int search(MNKEngine position) {
+        if (position.getWinner() != MNKEngine.EMPTY || position.isFull()) return -1;
+        long start = System.nanoTime();
+        long deadline = start + timeLimitMillis * 1_000_000L;
+        long perTree = Math.max(1, playoutLimit / trees.length);
+        BooleanSupplier stop = stopCondition;
+        if (pool == null) {
+            trees[0].run(position, perTree, deadline, stop);
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    RecursiveAction[] tasks = new RecursiveAction[trees.length];
+                    for (int i = 0; i < trees.length; i++) {
+                        Tree tree = trees[i];
+                        tasks[i] = new RecursiveAction() {
+                            @Override
+                            protected void compute() {
+                                tree.run(position, perTree, deadline, stop);
+                            }
+                        };
+                    }
+                    invokeAll(tasks);
+                }
+            });
+        }
+        lastNanos = System.nanoTime() - start;
+
+        // Add up the root visits of all trees. Every tree expands the root with the same move order.
+        Tree first = trees[0];
+        int bestMove = -1;
+        long bestVisits = -1;
+        lastPlayouts = 0;
+        lastMaxDepth = 0;
+        for (Tree tree : trees) {
+            lastPlayouts += tree.playouts;
+            lastMaxDepth = Math.max(lastMaxDepth, tree.maxDepth);
+        }
+        for (int c = 0; c < first.childCount[0]; c++) {
+            int child = first.firstChild[0] + c;
+            long visits = 0;
+            for (Tree tree : trees) {
+                if (tree.childCount[0] > c) visits += tree.visits[tree.firstChild[0] + c];
+            }
+            if (visits > bestVisits) {
+                bestVisits = visits;
+                bestMove = first.move[child];
+            }
+        }
+        return bestMove;
+    }
+
+    /*
+     * Get the number of playouts run by all threads in the previous search.
+     */
+    public long getLastPlayouts() {
+        return lastPlayouts;
+    }
+
+    /*
+     * Get the depth of the deepest tree node any thread reached in the previous search.
+     */
+    public int getLastMaxDepth() {
+        return lastMaxDepth;
+    }
+
+    /*
+     * Get the playout rate of the previous search, summed over all threads.
+     * @return playouts per second
+     */
+    public double getLastPlayoutsPerSecond() {
+        return lastNanos == 0 ? 0.0 : lastPlayouts * 1e9 / lastNanos;
+    }
+
+    /*
+     * Stop the worker threads. The engine cannot be used afterwards.
+     */
+    public void shutdown() {
+        if (pool != null) pool.shutdownNow();
+    }
+
+    /*
+     * One thread's search tree, stored as parallel arrays indexed by node.
+     * The children of a node are stored next to each other starting at firstChild.
+     */
+    private static class Tree {
+        final int[] move = new int[TREE_CAPACITY];
+        final int[] parent = new int[TREE_CAPACITY];
+        final int[] firstChild = new int[TREE_CAPACITY];
+        final int[] childCount = new int[TREE_CAPACITY];
+        final int[] visits = new int[TREE_CAPACITY];
+        final float[] wins = new float[TREE_CAPACITY]; // From the point of view of the side that played the node's move.
+        int size;
+        long playouts;
+        int maxDepth;
+
+        MNKEngine board;
+        int[] scratch = new int[0];
+
+        void run(MNKEngine position, long playoutLimit, long deadline, BooleanSupplier stop) {
+            if (board == null || board.getRows() != position.getRows() || board.getCols() != position.getCols()
+                    || board.getWinLength() != position.getWinLength()) {
+                board = position.copy(0); // Playouts only place stones, so the copy needs no search state.
+                scratch = new int[position.getCellCount()];
+            } else {
+                board.copyPositionFrom(position);
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            size = 1;
+            move[0] = -1;
+            parent[0] = -1;
+            childCount[0] = 0;
+            visits[0] = 0;
+            wins[0] = 0;
+            expand(0);
+            playouts = 0;
+            maxDepth = 0;
+
+            int rootMoves = board.getMoveCount();
+            int rootSide = board.sideToMove();
+            while (playouts < playoutLimit) {
+                if ((playouts & CHECK_INTERVAL) == 0 && playouts > 0
+                        && (System.nanoTime() > deadline || stop.getAsBoolean())) break;
+
+                // Selection: follow UCT down to a leaf.
+                int node = 0;
+                while (childCount[node] > 0) {
+                    node = selectChild(node);
+                    board.place(move[node], board.sideToMove());
+                }
+                // Expansion: grow the leaf once it has been visited, if there is room.
+                if (visits[node] > 0 && board.getWinner() == MNKEngine.EMPTY && !board.isFull() && expand(node)) {
+                    node = firstChild[node] + random.nextInt(childCount[node]);
+                    board.place(move[node], board.sideToMove());
+                }
+                // Simulation: random moves to the end of the game.
+                int winner = playout(random);
+
+                // Back-propagation.
+                while (board.getMoveCount() > rootMoves) {
+                    board.undo();
+                }
+                int leafDepth = depthOf(node);
+                if (leafDepth > maxDepth) maxDepth = leafDepth;
+                for (int depth = leafDepth; node >= 0; node = parent[node], depth--) {
+                    visits[node]++;
+                    int side = (depth % 2 == 1) ? rootSide : other(rootSide);
+                    if (winner == MNKEngine.EMPTY) wins[node] += 0.5f;
+                    else if (winner == side) wins[node] += 1f;
+                }
+                playouts++;
+            }
+        }
+
+        private int playout(ThreadLocalRandom random) {
+            int empty = 0;
+            int cells = board.getCellCount();
+            for (int cell = 0; cell < cells; cell++) {
+                if (board.get(cell) == MNKEngine.EMPTY) scratch[empty++] = cell;
+            }
+            // Pick random empty cells with swap-remove until somebody wins or the board fills up.
+            while (board.getWinner() == MNKEngine.EMPTY && empty > 0) {
+                int i = random.nextInt(empty);
+                int cell = scratch[i];
+                scratch[i] = scratch[--empty];
+                board.place(cell, board.sideToMove());
+            }
+            return board.getWinner();
+        }
+
+        private int selectChild(int node) {
+            double logParent = Math.log(Math.max(1, visits[node]));
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int c = firstChild[node], end = c + childCount[node]; c < end; c++) {
+                if (visits[c] == 0) return c;
+                double value = wins[c] / visits[c] + EXPLORATION * Math.sqrt(logParent / visits[c]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = c;
+                }
+            }
+            return best;
+        }
+
+        /*
+         * Add the candidate moves of the current board as children of a node.
+         * @return false if the tree is full
+         */
+        private boolean expand(int node) {
+            int count = board.candidateMoves(scratch);
+            if (count == 0 || size + count > TREE_CAPACITY) return false;
+            firstChild[node] = size;
+            childCount[node] = count;
+            for (int i = 0; i < count; i++) {
+                int child = size++;
+                move[child] = scratch[i];
+                parent[child] = node;
+                childCount[child] = 0;
+                visits[child] = 0;
+                wins[child] = 0;
+            }
+            return true;
+        }
+
+        private int depthOf(int node) {
+            int depth = 0;
+            for (int n = node; parent[n] >= 0; n = parent[n]) depth++;
+            return depth;
+        }
+
+        private static int other(int side) {
+            return side == MNKEngine.X ? MNKEngine.O : MNKEngine.X;
+        }
+    }
+}
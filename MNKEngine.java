@@ -0,0 +1,721 @@
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/*
+ * MNKEngine class is a game engine for m,n,k games: an m x n board where k in a row wins.
+ * Tic-Tac-Toe is the 3,3,3 game, 9x9 five-in-a-row is 9,9,5 and Gomoku is 15,15,5.
+ *
+ * Every horizontal, vertical and diagonal run of k cells is a "window".
+ * The engine keeps how many X and O stones each window holds, so placing or removing a stone
+ * only touches the windows through that cell. The same counters give the win test and a running
+ * evaluation: a window holding stones of one side only is worth more the fuller it is.
+ *
+ * The search is an alpha-beta negamax with iterative deepening, a transposition table keyed by a
+ * Zobrist hash, and move ordering (transposition table move first, then cells by line potential).
+ * Only empty cells within two steps of a stone are searched. Every search runs against a deadline
+ * and a node limit, and returns the best move of the deepest iteration that finished.
+ * The search allocates nothing: move lists live in arrays sized when the engine is created.
+ */
+public class MNKEngine {
+    public static final int EMPTY = 0;
+    public static final int X = 1;
+    public static final int O = 2;
+    public static final int WIN_SCORE = 1_000_000;
+
+    private static final int NEIGHBOUR_RADIUS = 2;
+    private static final int CHECK_INTERVAL = 1023; // Check the clock every 1024 nodes.
+    private static final long SIDE_KEY = 0x5DEECE66DL * 0x9E3779B97F4A7C15L;
+    private static final BooleanSupplier NEVER = () -> false;
+
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    private final int cellCount;
+
+    private final byte[] cells;
+    private final int[] windowCells;      // Window w covers windowCells[w * winLength .. + winLength - 1].
+    private final int[] cellWindowStart;  // The windows through cell c are cellWindows[cellWindowStart[c] .. cellWindowStart[c + 1] - 1].
+    private final int[] cellWindows;
+    private final int[] countX;
+    private final int[] countO;
+    private final int[] weights;          // weights[n] is the value of a window holding n stones of one side.
+    private final int[] neighbours;       // Number of stones within NEIGHBOUR_RADIUS of each cell.
+    private final long[] zobrist;         // zobrist[cell * 2 + side - 1]
+    private final int[] history;
+
+    private int moveCount;
+    private int evaluation; // From X's point of view.
+    private long hash;
+    private int winner = EMPTY;
+    private int winningWindow = -1;
+
+    // Search state, sized once so the search never allocates. Null in an engine that only tracks the game.
+    private final TranspositionTable table;
+    private final int[][] moveLists;
+    private final int[][] moveScores;
+    private long deadline;
+    private long nodeLimit;
+    private long nodes;
+    private long alphaCutoffs; // Cutoffs at nodes where the opponent of the root side is to move.
+    private long betaCutoffs;  // Cutoffs at nodes where the root side is to move.
+    private int maxPly;
+    private boolean aborted;
+    private BooleanSupplier stopCondition = NEVER;
+    private AtomicLong sharedNodes; // The node count of several engines searching one move together, or null.
+    private int rootBestMove;
+    private int lastDepth;
+    private int lastScore;
+
+    /*
+     * Constructor to create a new empty m,n,k board.
+     * @param rows the number of rows (m)
+     * @param cols the number of columns (n)
+     * @param winLength the number of stones in a row needed to win (k)
+     */
+    public MNKEngine(int rows, int cols, int winLength) {
+        this(rows, cols, winLength, rows * cols <= 9 ? 1 << 14 : 1 << 20);
+    }
+
+    /*
+     * Constructor to create a new empty m,n,k board with a transposition table of a chosen size.
+     * An engine that only tracks the game and never searches passes a capacity of 0; it then has no
+     * transposition table or move lists at all, and search() and orderedMoves() must not be called on it.
+     * @param rows the number of rows (m)
+     * @param cols the number of columns (n)
+     * @param winLength the number of stones in a row needed to win (k)
+     * @param tableCapacity the number of transposition table entries, or 0 for an engine that never searches
+     */
+    public MNKEngine(int rows, int cols, int winLength, int tableCapacity) {
+        if (winLength < 1 || (winLength > rows && winLength > cols)) {
+            throw new IllegalArgumentException("Cannot get " + winLength + " in a row on a " + rows + "x" + cols + " board");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+        this.cellCount = rows * cols;
+        cells = new byte[cellCount];
+        neighbours = new int[cellCount];
+        history = new int[cellCount];
+
+        // Enumerate the windows in the four line directions: right, down, down-right and down-left.
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        int[] scratch = new int[cellCount * 4 * winLength];
+        int windowCount = 0;
+        int[] perCell = new int[cellCount];
+        for (int[] d : directions) {
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    int endR = r + d[0] * (winLength - 1);
+                    int endC = c + d[1] * (winLength - 1);
+                    if (endR < 0 || endR >= rows || endC < 0 || endC >= cols) continue;
+                    for (int i = 0; i < winLength; i++) {
+                        int cell = (r + d[0] * i) * cols + (c + d[1] * i);
+                        scratch[windowCount * winLength + i] = cell;
+                        perCell[cell]++;
+                    }
+                    windowCount++;
+                }
+            }
+        }
+        windowCells = java.util.Arrays.copyOf(scratch, windowCount * winLength);
+        countX = new int[windowCount];
+        countO = new int[windowCount];
+
+        cellWindowStart = new int[cellCount + 1];
+        for (int cell = 0; cell < cellCount; cell++) {
+            cellWindowStart[cell + 1] = cellWindowStart[cell] + perCell[cell];
+        }
+        cellWindows = new int[cellWindowStart[cellCount]];
+        int[] fill = java.util.Arrays.copyOf(cellWindowStart, cellCount);
+        for (int w = 0; w < windowCount; w++) {
+            for (int i = 0; i < winLength; i++) {
+                int cell = windowCells[w * winLength + i];
+                cellWindows[fill[cell]++] = w;
+            }
+        }
+
+        weights = new int[winLength + 1];
+        for (int n = 1; n < winLength; n++) {
+            weights[n] = 1 << (3 * (n - 1)); // 1, 8, 64, 512, ...
+        }
+        weights[winLength] = WIN_SCORE / 2;
+
+        Random seeded = new Random(0x4D4E4BL);
+        zobrist = new long[cellCount * 2];
+        for (int i = 0; i < zobrist.length; i++) {
+            zobrist[i] = seeded.nextLong();
+        }
+
+        table = (tableCapacity > 0) ? new TranspositionTable(tableCapacity) : null;
+        moveLists = (tableCapacity > 0) ? new int[cellCount + 1][cellCount] : null;
+        moveScores = (tableCapacity > 0) ? new int[cellCount + 1][cellCount] : null;
+    }
+
+    /*
+     * Constructor for a search copy. The line tables and hash keys are shared with the template,
+     * which never changes them; the board, counters and search state are the copy's own.
+     * @param template the engine to copy the board shape from
+     * @param tableCapacity the size of the copy's transposition table, or 0 for a copy that never searches
+     */
+    private MNKEngine(MNKEngine template, int tableCapacity) {
+        rows = template.rows;
+        cols = template.cols;
+        winLength = template.winLength;
+        cellCount = template.cellCount;
+        windowCells = template.windowCells;
+        cellWindowStart = template.cellWindowStart;
+        cellWindows = template.cellWindows;
+        weights = template.weights;
+        zobrist = template.zobrist;
+        cells = new byte[cellCount];
+        neighbours = new int[cellCount];
+        history = new int[cellCount];
+        countX = new int[template.countX.length];
+        countO = new int[template.countO.length];
+        table = (tableCapacity > 0) ? new TranspositionTable(tableCapacity) : null;
+        moveLists = (tableCapacity > 0) ? new int[cellCount + 1][cellCount] : null;
+        moveScores = (tableCapacity > 0) ? new int[cellCount + 1][cellCount] : null;
+        copyPositionFrom(template);
+    }
+
+    /*
+     * Create an independent engine with the same board shape and position, for searching on another thread.
+     * @param tableCapacity the size of the copy's transposition table, or 0 for a copy that never searches
+     * @return the copy
+     */
+    public MNKEngine copy(int tableCapacity) {
+        return new MNKEngine(this, tableCapacity);
+    }
+
+    /*
+     * Get a copy of the stones on the board, indexed by cell.
+     * @return EMPTY, X or O for every cell
+     */
+    public byte[] copyCells() {
+        return cells.clone();
+    }
+
+    /*
+     * Replace the position with the given stones. The order the stones were played in is not kept.
+     * @param stones EMPTY, X or O for every cell
+     */
+    public void loadCells(byte[] stones) {
+        reset();
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (stones[cell] != EMPTY) place(cell, stones[cell]);
+        }
+    }
+
+    /*
+     * Set a condition that is polled during the search; when it becomes true the search stops
+     * as if its time had run out. Used to cancel a search from another thread.
+     * @param condition the stop condition, or null to never stop early
+     */
+    public void setStopCondition(BooleanSupplier condition) {
+        this.stopCondition = (condition != null) ? condition : NEVER;
+    }
+
+    /*
+     * Share one node count between engines that search parts of the same move, so the node limit
+     * applies to all of them together. Each engine adds its nodes to the counter as it goes.
+     * @param counter the shared count, or null to count this engine's nodes alone
+     */
+    public void setSharedNodeCounter(AtomicLong counter) {
+        this.sharedNodes = counter;
+    }
+
+    /*
+     * Replace this engine's position with another engine's position by replaying its moves.
+     * Both engines must have the same board shape.
+     * @param other the engine to copy the position from
+     */
+    public void copyPositionFrom(MNKEngine other) {
+        reset();
+        for (int i = 0; i < other.moveCount; i++) {
+            int cell = other.history[i];
+            place(cell, other.cells[cell]);
+        }
+    }
+
+    /*
+     * Clear the board.
+     */
+    public void reset() {
+        java.util.Arrays.fill(cells, (byte) EMPTY);
+        java.util.Arrays.fill(neighbours, 0);
+        java.util.Arrays.fill(countX, 0);
+        java.util.Arrays.fill(countO, 0);
+        moveCount = 0;
+        evaluation = 0;
+        hash = 0;
+        winner = EMPTY;
+        winningWindow = -1;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /*
+     * Get the stone on a cell.
+     * @param cell the cell index (row * cols + col)
+     * @return EMPTY, X or O
+     */
+    public int get(int cell) {
+        return cells[cell];
+    }
+
+    /*
+     * Get the side to move. X always moves first.
+     * @return X or O
+     */
+    public int sideToMove() {
+        return (moveCount & 1) == 0 ? X : O;
+    }
+
+    /*
+     * Get the side that has completed a line, if any.
+     * @return X, O, or EMPTY if nobody has won
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    public boolean isFull() {
+        return moveCount == cellCount;
+    }
+
+    /*
+     * Get the first and last cell of the completed line.
+     * @return an array in the format [startRow, startCol, endRow, endCol], or null if nobody has won
+     */
+    public int[] getWinningLine() {
+        if (winningWindow < 0) return null;
+        int first = windowCells[winningWindow * winLength];
+        int last = windowCells[winningWindow * winLength + winLength - 1];
+        return new int[]{first / cols, first % cols, last / cols, last % cols};
+    }
+
+    /*
+     * Place a stone. The cell must be empty.
+     * @param cell the cell index (row * cols + col)
+     * @param side X or O
+     */
+    public void place(int cell, int side) {
+        cells[cell] = (byte) side;
+        hash ^= zobrist[cell * 2 + side - 1];
+        history[moveCount++] = cell;
+        for (int i = cellWindowStart[cell], end = cellWindowStart[cell + 1]; i < end; i++) {
+            int w = cellWindows[i];
+            evaluation -= windowValue(w);
+            int count = (side == X) ? ++countX[w] : ++countO[w];
+            evaluation += windowValue(w);
+            if (count == winLength && winner == EMPTY) {
+                winner = side;
+                winningWindow = w;
+            }
+        }
+        touchNeighbours(cell, 1);
+    }
+
+    /*
+     * Take back the last stone placed.
+     * Play stops at the first completed line, so undoing the move that completed it always clears the winner.
+     */
+    public void undo() {
+        int cell = history[--moveCount];
+        int side = cells[cell];
+        cells[cell] = EMPTY;
+        hash ^= zobrist[cell * 2 + side - 1];
+        for (int i = cellWindowStart[cell], end = cellWindowStart[cell + 1]; i < end; i++) {
+            int w = cellWindows[i];
+            evaluation -= windowValue(w);
+            if (side == X) countX[w]--; else countO[w]--;
+            evaluation += windowValue(w);
+        }
+        if (winningWindow >= 0 && (winner == X ? countX[winningWindow] : countO[winningWindow]) < winLength) {
+            winner = EMPTY;
+            winningWindow = -1;
+        }
+        touchNeighbours(cell, -1);
+    }
+
+    /*
+     * Check whether placing a stone on a cell would complete a line for a side.
+     * @param cell an empty cell
+     * @param side X or O
+     * @return true if the move wins immediately
+     */
+    public boolean completesLine(int cell, int side) {
+        for (int i = cellWindowStart[cell], end = cellWindowStart[cell + 1]; i < end; i++) {
+            int w = cellWindows[i];
+            int own = (side == X) ? countX[w] : countO[w];
+            int other = (side == X) ? countO[w] : countX[w];
+            if (own == winLength - 1 && other == 0) return true;
+        }
+        return false;
+    }
+
+    /*
+     * Get the static evaluation of the position.
+     * @param side the side whose point of view to use
+     * @return the evaluation; positive is good for the given side
+     */
+    public int evaluate(int side) {
+        return (side == X) ? evaluation : -evaluation;
+    }
+
+    /*
+     * Search for the best move of the side to move.
+     * The search deepens one ply at a time until the deadline or node limit is reached,
+     * and returns the best move of the last iteration that completed.
+     * @param timeLimitMillis the wall-clock budget for this move
+     * @param nodeLimit the maximum number of nodes to visit, or Long.MAX_VALUE for no limit
+     * @return the best cell, or -1 if the game is over
+     */
+    public int search(long timeLimitMillis, long nodeLimit) {
+        return search(timeLimitMillis, nodeLimit, cellCount);
+    }
+
+    /*
+     * Search for the best move of the side to move, stopping after a fixed depth at the latest.
+     * @param timeLimitMillis the wall-clock budget for this move
+     * @param nodeLimit the maximum number of nodes to visit, or Long.MAX_VALUE for no limit
+     * @param depthLimit the deepest iteration to run
+     * @return the best cell, or -1 if the game is over
+     */
+    public int search(long timeLimitMillis, long nodeLimit, int depthLimit) {
+        requireSearchState();
+        if (winner != EMPTY || isFull()) return -1;
+        this.deadline = System.nanoTime() + timeLimitMillis * 1_000_000L;
+        this.nodeLimit = nodeLimit;
+        this.nodes = 0;
+        this.alphaCutoffs = 0;
+        this.betaCutoffs = 0;
+        this.maxPly = 0;
+        this.aborted = false;
+        table.newSearch();
+
+        int side = sideToMove();
+        int bestMove = -1;
+        lastDepth = 0;
+        lastScore = 0;
+        int maxDepth = Math.min(depthLimit, cellCount - moveCount);
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            int score = negamax(depth, 0, -WIN_SCORE - 1, WIN_SCORE + 1, side);
+            if (aborted) break;
+            bestMove = rootBestMove;
+            lastDepth = depth;
+            lastScore = score;
+            if (Math.abs(score) >= WIN_SCORE - cellCount) break; // Forced result found, deeper search cannot change it.
+        }
+        if (bestMove == -1) {
+            // Not even depth 1 finished: fall back to the best-ordered candidate.
+            int count = generateMoves(0, side, -1);
+            int best = 0;
+            for (int i = 1; i < count; i++) {
+                if (moveScores[0][i] > moveScores[0][best]) best = i;
+            }
+            bestMove = moveLists[0][best];
+        }
+        return bestMove;
+    }
+
+    /*
+     * Fill an array with the candidate moves of the side to move, best ordered first.
+     * @param out the array to fill, at least getCellCount() long
+     * @return the number of moves written
+     */
+    public int orderedMoves(int[] out) {
+        requireSearchState();
+        if (winner != EMPTY || isFull()) return 0;
+        int side = sideToMove();
+        int slot = table.probe(positionKey(side));
+        int count = generateMoves(0, side, slot >= 0 ? table.moveAt(slot) : -1);
+        int[] moves = moveLists[0];
+        int[] scores = moveScores[0];
+        for (int i = 0; i < count; i++) {
+            int pick = i;
+            for (int j = i + 1; j < count; j++) {
+                if (scores[j] > scores[pick]) pick = j;
+            }
+            out[i] = moves[pick];
+            moves[pick] = moves[i];
+            scores[pick] = scores[i];
+        }
+        return count;
+    }
+
+    /*
+     * Fill an array with the candidate moves of the side to move, in board order.
+     * These are the same cells the search considers: empty cells near a stone, or the centre on an empty board.
+     * @param out the array to fill, at least getCellCount() long
+     * @return the number of moves written
+     */
+    public int candidateMoves(int[] out) {
+        if (winner != EMPTY || isFull()) return 0;
+        if (moveCount == 0) {
+            out[0] = (rows / 2) * cols + cols / 2;
+            return 1;
+        }
+        int count = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (cells[cell] == EMPTY && neighbours[cell] > 0) out[count++] = cell;
+        }
+        return count;
+    }
+
+    /*
+     * Score a single move of the side to move with a fixed-depth search.
+     * This is the unit of work handed to each thread by a parallel search.
+     * @param move the cell to play
+     * @param depth the search depth, counting the move itself
+     * @param alpha the lower bound of the window; a result at or below it only means "no better than alpha"
+     * @param beta the upper bound of the window
+     * @param deadlineNanos the System.nanoTime() value at which to give up
+     * @param nodeLimit the maximum number of nodes for this move, or for all engines sharing its node counter
+     * @return the score from the point of view of the side to move, or Integer.MIN_VALUE if the search ran out of budget
+     */
+    public int searchMove(int move, int depth, int alpha, int beta, long deadlineNanos, long nodeLimit) {
+        this.deadline = deadlineNanos;
+        this.nodeLimit = nodeLimit;
+        this.nodes = 0;
+        this.alphaCutoffs = 0;
+        this.betaCutoffs = 0;
+        this.maxPly = 0;
+        this.aborted = false;
+        int side = sideToMove();
+        place(move, side);
+        int score = -negamax(depth - 1, 1, -beta, -alpha, (side == X) ? O : X);
+        undo();
+        if (sharedNodes != null) {
+            sharedNodes.addAndGet(nodes & CHECK_INTERVAL); // The nodes since the last check.
+        }
+        return aborted ? Integer.MIN_VALUE : score;
+    }
+
+    /*
+     * Check the node limit; called every CHECK_INTERVAL + 1 nodes.
+     */
+    private boolean isOverNodeLimit() {
+        if (sharedNodes == null) return nodes > nodeLimit;
+        return sharedNodes.addAndGet(CHECK_INTERVAL + 1) > nodeLimit;
+    }
+
+    /*
+     * Negamax search with alpha-beta pruning.
+     * @param depth the remaining depth
+     * @param ply the distance from the root
+     * @param alpha the lower bound of the window
+     * @param beta the upper bound of the window
+     * @param side the side to move
+     * @return the score from the point of view of the side to move
+     */
+    private int negamax(int depth, int ply, int alpha, int beta, int side) {
+        if ((++nodes & CHECK_INTERVAL) == 0 && (System.nanoTime() > deadline || isOverNodeLimit() || stopCondition.getAsBoolean())) {
+            aborted = true;
+        }
+        if (aborted) return 0;
+        if (ply > maxPly) maxPly = ply;
+        if (winner != EMPTY) return -(WIN_SCORE - ply); // The previous move won.
+        if (moveCount == cellCount) return 0;
+        if (depth == 0) return evaluate(side);
+
+        long key = positionKey(side);
+        int ttMove = -1;
+        int slot = table.probe(key);
+        if (slot >= 0) {
+            ttMove = table.moveAt(slot);
+            // The root is always searched so that it reports a move.
+            if (ply > 0 && table.depthAt(slot) >= depth) {
+                int cached = fromTableScore(table.scoreAt(slot), ply);
+                int bound = table.boundAt(slot);
+                if (bound == TranspositionTable.EXACT) return cached;
+                if (bound == TranspositionTable.LOWER) alpha = Math.max(alpha, cached);
+                else beta = Math.min(beta, cached);
+                if (alpha >= beta) return cached;
+            }
+        }
+
+        int alphaOrig = alpha;
+        int[] moves = moveLists[ply];
+        int[] scores = moveScores[ply];
+        int count = generateMoves(ply, side, ttMove);
+        int bestScore = -WIN_SCORE - 1;
+        int bestMove = -1;
+        int other = (side == X) ? O : X;
+        for (int i = 0; i < count; i++) {
+            // Selection sort one step at a time: most nodes cut off after the first few moves.
+            int pick = i;
+            for (int j = i + 1; j < count; j++) {
+                if (scores[j] > scores[pick]) pick = j;
+            }
+            int move = moves[pick];
+            moves[pick] = moves[i];
+            scores[pick] = scores[i];
+            moves[i] = move;
+
+            place(move, side);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha, other);
+            undo();
+            if (aborted) return 0;
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) {
+                if ((ply & 1) == 0) betaCutoffs++;
+                else alphaCutoffs++;
+                break;
+            }
+        }
+
+        int bound = TranspositionTable.EXACT;
+        if (bestScore <= alphaOrig) bound = TranspositionTable.UPPER;
+        else if (bestScore >= beta) bound = TranspositionTable.LOWER;
+        table.store(key, toTableScore(bestScore, ply), bound, depth, bestMove);
+        if (ply == 0) rootBestMove = bestMove;
+        return bestScore;
+    }
+
+    private void requireSearchState() {
+        if (table == null) {
+            throw new IllegalStateException("This engine only tracks the game and cannot search");
+        }
+    }
+
+    /*
+     * Fill the move list for a ply with the candidate cells and their ordering scores.
+     * Candidates are empty cells near existing stones (the centre on an empty board).
+     * A cell scores by how much it extends its own lines and blocks the opponent's.
+     * @return the number of candidates
+     */
+    private int generateMoves(int ply, int side, int ttMove) {
+        int[] moves = moveLists[ply];
+        int[] scores = moveScores[ply];
+        int count = 0;
+        if (moveCount == 0) {
+            moves[0] = (rows / 2) * cols + cols / 2;
+            scores[0] = 0;
+            return 1;
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (cells[cell] != EMPTY || neighbours[cell] == 0) continue;
+            int score = 0;
+            for (int i = cellWindowStart[cell], end = cellWindowStart[cell + 1]; i < end; i++) {
+                int w = cellWindows[i];
+                int own = (side == X) ? countX[w] : countO[w];
+                int opp = (side == X) ? countO[w] : countX[w];
+                if (opp == 0) score += weights[own + 1] * 2; // Attacking counts a little more than blocking.
+                if (own == 0) score += weights[opp + 1];
+            }
+            if (cell == ttMove) score = Integer.MAX_VALUE;
+            moves[count] = cell;
+            scores[count] = score;
+            count++;
+        }
+        return count;
+    }
+
+    private int windowValue(int w) {
+        int x = countX[w];
+        int o = countO[w];
+        if (x > 0 && o > 0) return 0;
+        return (x > 0) ? weights[x] : -weights[o];
+    }
+
+    private void touchNeighbours(int cell, int delta) {
+        int row = cell / cols;
+        int col = cell % cols;
+        int r0 = Math.max(0, row - NEIGHBOUR_RADIUS), r1 = Math.min(rows - 1, row + NEIGHBOUR_RADIUS);
+        int c0 = Math.max(0, col - NEIGHBOUR_RADIUS), c1 = Math.min(cols - 1, col + NEIGHBOUR_RADIUS);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                neighbours[r * cols + c] += delta;
+            }
+        }
+    }
+
+    private long positionKey(int side) {
+        return (side == X) ? hash : hash ^ SIDE_KEY;
+    }
+
+    /*
+     * Store win scores relative to the node so the same position found at another ply stays correct.
+     */
+    private static int toTableScore(int score, int ply) {
+        if (score >= WIN_SCORE - 10_000) return score + ply;
+        if (score <= -WIN_SCORE + 10_000) return score - ply;
+        return score;
+    }
+
+    private static int fromTableScore(int score, int ply) {
+        if (score >= WIN_SCORE - 10_000) return score - ply;
+        if (score <= -WIN_SCORE + 10_000) return score + ply;
+        return score;
+    }
+
+    /*
+     * Get the depth of the last iteration the previous search completed.
+     */
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    /*
+     * Get the score of the previous search from the point of view of the side that was to move.
+     */
+    public int getLastScore() {
+        return lastScore;
+    }
+
+    /*
+     * Get the number of nodes the previous search visited.
+     */
+    public long getLastNodes() {
+        return nodes;
+    }
+
+    /*
+     * Get the number of cutoffs in the previous search at nodes where the root side's opponent was to move.
+     */
+    public long getLastAlphaCutoffs() {
+        return alphaCutoffs;
+    }
+
+    /*
+     * Get the number of cutoffs in the previous search at nodes where the root side was to move.
+     */
+    public long getLastBetaCutoffs() {
+        return betaCutoffs;
+    }
+
+    /*
+     * Get the deepest ply the previous search reached, counted from the root.
+     */
+    public int getLastMaxPly() {
+        return maxPly;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+}
@@ -10,6 +10,7 @@ import javax.swing.Timer;
  * The game consists of four colored buttons that flash in a random sequence.
  * The player must click the buttons in the same order to progress through the game.
  * If the player clicks the wrong button, the game is over and they can restart by pressing Enter.
+ * Every finished game, with its sequence, is appended to the game log (see GameLog).
  */
 public class MemorySequencePanel extends JPanel implements ActionListener {
     // Four color buttons.
@@ -30,6 +31,7 @@ public class MemorySequencePanel extends JPanel implements ActionListener {
     
     private final Timer[] flashTimers;  // Initialize after colorButtons is set
     private boolean gameOver = false;   // Tracks game over state.
+    private long startMillis;           // When the game started, for the game log.
 
     /*
      * Constructor for the MemorySequencePanel class.
@@ -79,6 +81,7 @@ public class MemorySequencePanel extends JPanel implements ActionListener {
     private void startGame() {
         sequence.clear();
         playerIndex = 0;
+        startMillis = System.currentTimeMillis();
         nextRound();
     }
     
@@ -200,6 +203,7 @@ public class MemorySequencePanel extends JPanel implements ActionListener {
             // Wrong button pressed: Game Over.
             gameOver = true;
             acceptingInput = false;
+            logGame(clickedIndex);
             for (JButton btn : colorButtons) {
                 btn.setVisible(false);
             }
@@ -225,6 +229,21 @@ public class MemorySequencePanel extends JPanel implements ActionListener {
         }
     }
 
+    /*
+     * Appends the finished game to the game log: the sequence, then the wrong button pressed.
+     * The score is the number of rounds completed.
+     * @param wrongIndex The button pressed instead of the next one in the sequence.
+     */
+    private void logGame(int wrongIndex) {
+        int[] record = new int[sequence.size() + 1];
+        for (int i = 0; i < sequence.size(); i++) {
+            record[i] = sequence.get(i);
+        }
+        record[sequence.size()] = wrongIndex;
+        GameLog.record(GameLog.MEMORY_SEQUENCE, GameLog.OVER, 0, 0, 0, sequence.size() - 1,
+                System.currentTimeMillis() - startMillis, record, record.length);
+    }
+
     /*
      * Paints the game over message and restart instructions.
      * This method is called when the game is over.
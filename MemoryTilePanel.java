@@ -13,6 +13,7 @@ import java.util.List;
  * The game can be restarted by pressing Enter when it's over.
  * The game keeps track of the number of moves made.
  * The game is played on a 4x4 grid, with 8 pairs of tiles.
+ * Every finished game, with the layout and the tiles clicked, is appended to the game log (see GameLog).
  */
 public class MemoryTilePanel extends JPanel implements ActionListener {
     private final int GRID_ROWS = 4;
@@ -25,6 +26,8 @@ public class MemoryTilePanel extends JPanel implements ActionListener {
 
     private int moves; // count moves (each pair attempted)
     private boolean gameOver = false; // tracks game over state
+    private final List<Integer> clicks = new ArrayList<>(); // tiles clicked, for the game log
+    private long startMillis;
 
     /*
      * Constructor for the MemoryTilePanel class.
@@ -74,6 +77,8 @@ public class MemoryTilePanel extends JPanel implements ActionListener {
         initGame();
         moves = 0;
         gameOver = false;
+        clicks.clear();
+        startMillis = System.currentTimeMillis();
     }
     
     /*
@@ -125,6 +130,7 @@ public class MemoryTilePanel extends JPanel implements ActionListener {
         // Reveal the selected tile.
         buttons[index].setText(tileValues[index].toString());
         revealed[index] = true;
+        clicks.add(index);
         
         if (firstSelection == -1) {
             // First tile selected.
@@ -138,6 +144,7 @@ public class MemoryTilePanel extends JPanel implements ActionListener {
                 // Check if the game is complete.
                 if (isGameComplete()) {
                     gameOver = true;
+                    logGame();
                     // Optionally hide all buttons so the overlay isn’t obscured.
                     for (JButton btn : buttons)
                         btn.setVisible(false);
@@ -163,6 +170,21 @@ public class MemoryTilePanel extends JPanel implements ActionListener {
         }
     }
     
+    /**
+     * This method appends the finished game to the game log: the tile values in board order, then the tiles clicked.
+     */
+    private void logGame() {
+        int[] record = new int[tileValues.length + clicks.size()];
+        for (int i = 0; i < tileValues.length; i++) {
+            record[i] = tileValues[i];
+        }
+        for (int i = 0; i < clicks.size(); i++) {
+            record[tileValues.length + i] = clicks.get(i);
+        }
+        GameLog.record(GameLog.MEMORY_TILE, GameLog.OVER, 0, 0, 0, moves,
+                System.currentTimeMillis() - startMillis, record, record.length);
+    }
+
     /**
      * This method checks if the game is complete by verifying if all tiles have been revealed.
      * @return true if all tiles are revealed, false otherwise.
@@ -0,0 +1,333 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/*
+ * ParallelSearch class splits the root moves of an MNKEngine search across a ForkJoinPool.
+ * Each iteration of the iterative deepening loop searches the first (best ordered) root move alone,
+ * then searches the remaining root moves in parallel ("young brothers wait"), so the first result
+ * gives every other task a useful alpha bound.
+ * All tasks share one alpha bound: each task starts from the best score found so far and raises it when it
+ * finds something better, so later tasks prune as much as a sequential search would.
+ * Every task searches its own MNKEngine copy of the position, never the caller's engine.
+ * The copies are reused between tasks and searches. They all add to one node counter, so the node limit
+ * covers the whole search on all threads, as it does for a sequential search.
+ */
+public class ParallelSearch {
+    private static final int COPY_TABLE_CAPACITY = 1 << 18;
+    private static final int INFINITY = MNKEngine.WIN_SCORE + 1;
+
+    private final ForkJoinPool pool;
+    private final int threads;
+    private final ConcurrentLinkedQueue<MNKEngine> copies = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger alpha = new AtomicInteger();
+    private final AtomicLong nodes = new AtomicLong();
+    private final AtomicLong nodesSpent = new AtomicLong(); // Counted while the tasks run, for the node limit.
+    private final AtomicLong alphaCutoffs = new AtomicLong();
+    private final AtomicLong betaCutoffs = new AtomicLong();
+    private final AtomicLong tableHits = new AtomicLong();
+    private final AtomicLong tableProbes = new AtomicLong();
+    private final AtomicInteger maxPly = new AtomicInteger();
+    private volatile boolean aborted;
+    private BooleanSupplier stopCondition;
+    private int bestScore;
+    private int bestMove;
+    private int lastDepth;
+    private int lastScore;
+
+    /*
+     * Constructor to create a new ParallelSearch with its own thread pool.
+     * @param threads the number of worker threads
+     */
+    public ParallelSearch(int threads) {
+        this.threads = Math.max(1, threads);
+        this.pool = new ForkJoinPool(this.threads);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /*
+     * Set a condition that every engine copy polls during the search; when it becomes true the search stops.
+     * @param condition the stop condition, or null to never stop early
+     */
+    public void setStopCondition(BooleanSupplier condition) {
+        this.stopCondition = condition;
+    }
+
+    /*
+     * Search for the best move of the side to move in the given position.
+     * The engine passed in is only read; the search runs on copies of it.
+     * @param position the position to search
+     * @param timeLimitMillis the wall-clock budget for this move
+     * @param nodeLimit the maximum number of nodes of the whole search on all threads, or Long.MAX_VALUE for no limit
+     * @param depthLimit the deepest iteration to run
+     * @return the best cell, or -1 if the game is over
+     */
+    public int search(MNKEngine position, long timeLimitMillis, long nodeLimit, int depthLimit) {
+        int[] rootMoves = new int[position.getCellCount()];
+        int count = position.orderedMoves(rootMoves);
+        if (count == 0) return -1;
+
+        long deadline = System.nanoTime() + timeLimitMillis * 1_000_000L;
+        nodes.set(0);
+        nodesSpent.set(0);
+        alphaCutoffs.set(0);
+        betaCutoffs.set(0);
+        tableHits.set(0);
+        tableProbes.set(0);
+        maxPly.set(0);
+        aborted = false;
+        lastDepth = 0;
+        lastScore = 0;
+        int result = rootMoves[0];
+        int maxDepth = Math.min(depthLimit, position.getCellCount() - position.getMoveCount());
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            // Eldest brother first, on this thread, to establish the alpha bound.
+            MNKEngine eldest = borrow(position);
+            TranspositionTable eldestTable = eldest.getTranspositionTable();
+            long hits = eldestTable.getHits();
+            long probes = hits + eldestTable.getMisses();
+            int score = eldest.searchMove(rootMoves[0], depth, -INFINITY, INFINITY, deadline, nodeLimit);
+            collectStats(eldest, hits, probes);
+            copies.add(eldest);
+            if (score == Integer.MIN_VALUE) break;
+            bestScore = score;
+            bestMove = rootMoves[0];
+            alpha.set(score);
+
+            // Younger brothers in parallel, all sharing the alpha bound.
+            List<RootTask> tasks = new ArrayList<>(count - 1);
+            for (int i = 1; i < count; i++) {
+                tasks.add(new RootTask(position, rootMoves[i], depth, deadline, nodeLimit));
+            }
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+            if (aborted) break;
+
+            result = bestMove;
+            lastDepth = depth;
+            lastScore = bestScore;
+            // Search the best move first in the next iteration.
+            for (int i = 0; i < count; i++) {
+                if (rootMoves[i] == bestMove) {
+                    System.arraycopy(rootMoves, 0, rootMoves, 1, i);
+                    rootMoves[0] = bestMove;
+                    break;
+                }
+            }
+            if (Math.abs(bestScore) >= MNKEngine.WIN_SCORE - position.getCellCount()) break;
+        }
+        return result;
+    }
+
+    /*
+     * Record a root move's score if it beats the best so far.
+     */
+    private synchronized void offer(int move, int score) {
+        if (score > bestScore) {
+            bestScore = score;
+            bestMove = move;
+        }
+        alpha.accumulateAndGet(score, Math::max);
+    }
+
+    /*
+     * Add the counters of one finished root move search to the totals of this search.
+     * @param copy the engine copy that ran the search
+     * @param hitsBefore its table's hit count before the search
+     * @param probesBefore its table's probe count before the search
+     */
+    private void collectStats(MNKEngine copy, long hitsBefore, long probesBefore) {
+        TranspositionTable table = copy.getTranspositionTable();
+        nodes.addAndGet(copy.getLastNodes());
+        alphaCutoffs.addAndGet(copy.getLastAlphaCutoffs());
+        betaCutoffs.addAndGet(copy.getLastBetaCutoffs());
+        tableHits.addAndGet(table.getHits() - hitsBefore);
+        tableProbes.addAndGet(table.getHits() + table.getMisses() - probesBefore);
+        maxPly.accumulateAndGet(copy.getLastMaxPly(), Math::max);
+    }
+
+    /*
+     * Take a reusable engine copy and load the position into it.
+     */
+    private MNKEngine borrow(MNKEngine position) {
+        MNKEngine copy = copies.poll();
+        if (copy == null || copy.getRows() != position.getRows() || copy.getCols() != position.getCols()
+                || copy.getWinLength() != position.getWinLength()) {
+            copy = position.copy(COPY_TABLE_CAPACITY); // A copy of another board shape is simply dropped.
+        } else {
+            copy.copyPositionFrom(position);
+        }
+        copy.setStopCondition(stopCondition);
+        copy.setSharedNodeCounter(nodesSpent);
+        return copy;
+    }
+
+    /*
+     * Searches one root move on its own copy of the position.
+     */
+    private class RootTask extends RecursiveAction {
+        private final MNKEngine position;
+        private final int move;
+        private final int depth;
+        private final long deadline;
+        private final long nodeLimit;
+
+        RootTask(MNKEngine position, int move, int depth, long deadline, long nodeLimit) {
+            this.position = position;
+            this.move = move;
+            this.depth = depth;
+            this.deadline = deadline;
+            this.nodeLimit = nodeLimit;
+        }
+
+        @Override
+        protected void compute() {
+            if (nodesSpent.get() > nodeLimit) aborted = true; // The budget ran out in other tasks.
+            if (aborted) return;
+            MNKEngine copy = borrow(position);
+            try {
+                TranspositionTable table = copy.getTranspositionTable();
+                long hits = table.getHits();
+                long probes = hits + table.getMisses();
+                int bound = alpha.get();
+                // A null window would be faster, but a full upper bound keeps exact scores for improvements.
+                int score = copy.searchMove(move, depth, bound, INFINITY, deadline, nodeLimit);
+                collectStats(copy, hits, probes);
+                if (score == Integer.MIN_VALUE) {
+                    aborted = true;
+                } else if (score > bound) {
+                    offer(move, score);
+                }
+            } finally {
+                copies.add(copy);
+            }
+        }
+    }
+
+    /*
+     * Get the depth of the last iteration the previous search completed.
+     */
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    /*
+     * Get the score of the previous search from the point of view of the side that was to move.
+     */
+    public int getLastScore() {
+        return lastScore;
+    }
+
+    /*
+     * Get the number of nodes visited by all threads in the previous search.
+     */
+    public long getLastNodes() {
+        return nodes.get();
+    }
+
+    /*
+     * Get the number of cutoffs in the previous search at nodes where the root side's opponent was to move.
+     */
+    public long getLastAlphaCutoffs() {
+        return alphaCutoffs.get();
+    }
+
+    /*
+     * Get the number of cutoffs in the previous search at nodes where the root side was to move.
+     */
+    public long getLastBetaCutoffs() {
+        return betaCutoffs.get();
+    }
+
+    /*
+     * Get the deepest ply any thread reached in the previous search.
+     */
+    public int getLastMaxPly() {
+        return maxPly.get();
+    }
+
+    /*
+     * Get the number of transposition table hits of all engine copies in the previous search.
+     */
+    public long getLastTableHits() {
+        return tableHits.get();
+    }
+
+    /*
+     * Get the number of transposition table lookups of all engine copies in the previous search.
+     */
+    public long getLastTableProbes() {
+        return tableProbes.get();
+    }
+
+    /*
+     * Empty the transposition tables of all engine copies, so the next search starts cold.
+     */
+    public void clearTables() {
+        for (MNKEngine copy : copies) {
+            copy.getTranspositionTable().clear();
+        }
+    }
+
+    /*
+     * Stop the worker threads. The search cannot be used afterwards.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /*
+     * Compare the parallel search with the sequential MNKEngine search on a few positions.
+     * Both searches run to the same fixed depth, and the speedup is the ratio of their times.
+     * Usage: java ParallelSearch [threads] [depth]
+     */
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int[][] openings = {
+            {40, 41, 49},              // 9x9
+            {112, 113, 128, 98, 127},  // 15x15
+        };
+        int[] sizes = {9, 15};
+        long unlimited = java.util.concurrent.TimeUnit.DAYS.toMillis(1);
+        ParallelSearch parallel = new ParallelSearch(threads);
+        System.out.printf("threads=%d depth=%d%n", threads, depth);
+        for (int p = 0; p < openings.length; p++) {
+            MNKEngine engine = new MNKEngine(sizes[p], sizes[p], 5);
+            for (int i = 0; i < openings[p].length; i++) {
+                engine.place(openings[p][i], engine.sideToMove());
+            }
+            // Warm up both searches once so the JIT does not skew the first measurement.
+            engine.copy(1 << 18).search(unlimited, Long.MAX_VALUE, depth);
+            parallel.search(engine, unlimited, Long.MAX_VALUE, depth);
+
+            MNKEngine sequential = engine.copy(1 << 18);
+            parallel.clearTables();
+            long start = System.nanoTime();
+            int seqMove = sequential.search(unlimited, Long.MAX_VALUE, depth);
+            long seqTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int parMove = parallel.search(engine, unlimited, Long.MAX_VALUE, depth);
+            long parTime = System.nanoTime() - start;
+
+            System.out.printf("%dx%d: sequential %.1f ms (%d nodes, move %d, score %d) | parallel %.1f ms (%d nodes, move %d, score %d) | speedup %.2fx%n",
+                    sizes[p], sizes[p], seqTime / 1e6, sequential.getLastNodes(), seqMove, sequential.getLastScore(),
+                    parTime / 1e6, parallel.getLastNodes(), parMove, parallel.getLastScore(), (double) seqTime / parTime);
+        }
+        parallel.shutdown();
+    }
+}
@@ -0,0 +1,171 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * PerfectPlayTable class holds the solved best move for every reachable 3x3 Tic-Tac-Toe position.
+ * Positions are indexed by their base-3 rank (empty = 0, X = 1, O = 2, cell (row, col) has weight 3^(row * 3 + col)).
+ * Each position takes one byte: the low 4 bits are the best cell (0-8, or 15 if there is no move)
+ * and the next 2 bits are the outcome for the side to move (LOSS, DRAW or WIN).
+ * The table is generated once by running this class and is read through a memory-mapped file,
+ * so a lookup is one array read and loading it costs no heap.
+ */
+public class PerfectPlayTable {
+    public static final String DEFAULT_PATH = "tictactoe3x3.table";
+    public static final int UNKNOWN = 0;
+    public static final int LOSS = 1;
+    public static final int DRAW = 2;
+    public static final int WIN = 3;
+
+    private static final int MAGIC = 0x54545433; // "TTT3"
+    private static final int VERSION = 1;
+    private static final int POSITIONS = 19683; // 3^9
+    private static final int HEADER_SIZE = 12;
+    private static final int NO_MOVE = 0xF;
+
+    // BASE3[bits] is the base-3 weight sum of the cells in a 9-bit mask.
+    private static final int[] BASE3 = new int[512];
+    static {
+        for (int bits = 0; bits < 512; bits++) {
+            int rank = 0, weight = 1;
+            for (int cell = 0; cell < 9; cell++, weight *= 3) {
+                if ((bits & (1 << cell)) != 0) rank += weight;
+            }
+            BASE3[bits] = rank;
+        }
+    }
+
+    private final ByteBuffer entries;
+
+    private PerfectPlayTable(ByteBuffer entries) {
+        this.entries = entries;
+    }
+
+    /*
+     * Open the table at the default location, which can be changed with the tictactoe.table system property.
+     * @return the table, or null if no valid table file exists
+     */
+    public static PerfectPlayTable openDefault() {
+        return open(Paths.get(System.getProperty("tictactoe.table", DEFAULT_PATH)));
+    }
+
+    /*
+     * Memory-map a table file.
+     * @param path the table file
+     * @return the table, or null if the file is missing or not a valid table
+     */
+    public static PerfectPlayTable open(Path path) {
+        if (!Files.isRegularFile(path)) return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_SIZE + POSITIONS) return null;
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION || mapped.getInt(8) != POSITIONS) {
+                return null;
+            }
+            mapped.position(HEADER_SIZE);
+            return new PerfectPlayTable(mapped.slice());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Get the base-3 rank of a position.
+     * @param xBits the cells taken by X
+     * @param oBits the cells taken by O
+     * @return the rank between 0 and 3^9 - 1
+     */
+    public static int rank(int xBits, int oBits) {
+        return BASE3[xBits] + 2 * BASE3[oBits];
+    }
+
+    /*
+     * Get the best cell for the side to move.
+     * @param xBits the cells taken by X
+     * @param oBits the cells taken by O
+     * @return the cell index (row * 3 + col), or -1 if the position has no stored move
+     */
+    public int bestCell(int xBits, int oBits) {
+        int cell = entries.get(rank(xBits, oBits)) & 0xF;
+        return cell == NO_MOVE ? -1 : cell;
+    }
+
+    /*
+     * Get the outcome of a position for the side to move under perfect play.
+     * @param xBits the cells taken by X
+     * @param oBits the cells taken by O
+     * @return LOSS, DRAW, WIN, or UNKNOWN if the position is not reachable
+     */
+    public int outcome(int xBits, int oBits) {
+        return (entries.get(rank(xBits, oBits)) >> 4) & 0x3;
+    }
+
+    /*
+     * Solve every reachable position and write the table file.
+     * The file is written next to the target and then moved into place, so readers never see a partial table.
+     * @param path where to write the table
+     * @return the number of positions that were solved
+     */
+    public static int build(Path path) throws IOException {
+        byte[] table = new byte[POSITIONS];
+        java.util.Arrays.fill(table, (byte) NO_MOVE);
+        TicTacToeAI solver = new TicTacToeAI("Unbeatable");
+        int solved = solve(solver, 0, 0, table);
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(POSITIONS);
+            out.write(table);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        return solved;
+    }
+
+    /*
+     * Walk every position reachable from the given one and record the solver's move for each.
+     * @return the number of newly solved positions
+     */
+    private static int solve(TicTacToeAI solver, int xBits, int oBits, byte[] table) {
+        int rank = rank(xBits, oBits);
+        if (table[rank] != (byte) NO_MOVE) return 0;
+        solver.loadPosition(xBits, oBits);
+        if (solver.checkWin('X') || solver.checkWin('O') || solver.isFull()) return 0;
+
+        int cell = solver.searchBestCell();
+        int score = solver.getLastSearchScore();
+        int outcome = score > 0 ? WIN : score < 0 ? LOSS : DRAW;
+        table[rank] = (byte) ((outcome << 4) | cell);
+
+        int solved = 1;
+        boolean xToMove = Integer.bitCount(xBits) == Integer.bitCount(oBits);
+        for (int c = 0; c < 9; c++) {
+            int bit = 1 << c;
+            if (((xBits | oBits) & bit) != 0) continue;
+            solved += xToMove ? solve(solver, xBits | bit, oBits, table) : solve(solver, xBits, oBits | bit, table);
+        }
+        return solved;
+    }
+
+    /*
+     * Build step: solve all positions and write the table.
+     * Usage: java PerfectPlayTable [output path]
+     */
+    public static void main(String[] args) throws IOException {
+        Path path = Paths.get(args.length > 0 ? args[0] : DEFAULT_PATH);
+        long start = System.nanoTime();
+        int solved = build(path);
+        System.out.printf("Solved %d positions in %.1f ms, wrote %s%n",
+                solved, (System.nanoTime() - start) / 1e6, path.toAbsolutePath());
+    }
+}
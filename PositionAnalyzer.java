@@ -0,0 +1,337 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * PositionAnalyzer class scores many Tic-Tac-Toe positions in one run, for example from logged games.
+ * For each position it finds the best move for the side to move and its minimax score.
+ * 3x3 positions are solved exactly; larger boards are searched by MNKEngine to a fixed depth,
+ * with the transposition table cleared for each position, so the same input always gives the same output.
+ *
+ * Positions are read and results written as streams: the input is cut into chunks of CHUNK_SIZE positions,
+ * chunks are scored on a thread pool, and at most a few chunks per thread are in memory at any time,
+ * so a multi-GB dump never has to fit in the heap. Results are written in input order.
+ *
+ * Text input has one position per line: one character per cell, row by row ('X', 'O', and '.' or '-' for empty),
+ * optionally preceded by the win length and a colon, e.g. "X.O.X...." or "5:" followed by 81 cells.
+ * Without a win length, 3x3 boards need 3 in a row and larger boards 5. Blank lines and lines starting with '#' are skipped.
+ * Binary input is a sequence of records: one byte board size, one byte win length, then two bits per cell
+ * (0 empty, 1 X, 2 O), four cells per byte starting at the low bits. writeRecord() produces this format.
+ *
+ * Each output line is the position (or the record number for binary input), a tab, the best move as "row col",
+ * a tab and the score from the point of view of the side to move. Positions that cannot be scored get "-"
+ * and the reason instead. 3x3 scores are 10 minus the plies to a forced win, 0 for a draw, and negative for a loss.
+ * Usage: java PositionAnalyzer <input> <output> [threads] [depth]
+ * Input files ending in ".bin" are read as binary records.
+ */
+public class PositionAnalyzer {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final long NO_TIME_LIMIT = TimeUnit.DAYS.toMillis(1);
+    private static final int MAX_SIZE = 64;
+
+    private final int threads;
+    private final int depth;
+    private final ThreadLocal<Scorer> scorers;
+
+    /*
+     * Constructor to create a new PositionAnalyzer.
+     * @param threads the number of positions scored at the same time
+     * @param depth the search depth on boards larger than 3x3
+     */
+    public PositionAnalyzer(int threads, int depth) {
+        this.threads = Math.max(1, threads);
+        this.depth = Math.max(1, depth);
+        this.scorers = ThreadLocal.withInitial(() -> new Scorer(this.depth));
+    }
+
+    /*
+     * Score a single position given in the text format.
+     * @param position the position, e.g. "X.O.X...."
+     * @return the output line for the position, without the position itself: "row col\tscore" or "-\treason"
+     */
+    public String evaluate(String position) {
+        return scorers.get().score(position.trim());
+    }
+
+    /*
+     * Score every position of a text stream and write one result line per position.
+     * @param in the positions, one per line
+     * @param out where the result lines are written
+     * @return the number of positions scored
+     */
+    public long analyzeText(BufferedReader in, Writer out) throws IOException {
+        return analyze(() -> {
+            String[] lines = new String[CHUNK_SIZE];
+            int count = 0;
+            String line;
+            while (count < CHUNK_SIZE && (line = in.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && line.charAt(0) != '#') lines[count++] = line;
+            }
+            return count == 0 ? null : new Chunk(lines, null, count, 0);
+        }, out);
+    }
+
+    /*
+     * Score every record of a binary stream and write one result line per record.
+     * @param in the binary records
+     * @param out where the result lines are written
+     * @return the number of positions scored
+     */
+    public long analyzeBinary(InputStream in, Writer out) throws IOException {
+        DataInputStream data = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 1 << 16));
+        long[] nextIndex = {0};
+        return analyze(() -> {
+            byte[][] records = new byte[CHUNK_SIZE][];
+            int count = 0;
+            while (count < CHUNK_SIZE) {
+                int size = data.read();
+                if (size < 0) break;
+                int winLength = data.readUnsignedByte();
+                byte[] record = new byte[2 + (size * size + 3) / 4];
+                record[0] = (byte) size;
+                record[1] = (byte) winLength;
+                try {
+                    data.readFully(record, 2, record.length - 2);
+                } catch (EOFException e) {
+                    throw new IOException("Truncated record " + (nextIndex[0] + count), e);
+                }
+                records[count++] = record;
+            }
+            if (count == 0) return null;
+            Chunk chunk = new Chunk(null, records, count, nextIndex[0]);
+            nextIndex[0] += count;
+            return chunk;
+        }, out);
+    }
+
+    /*
+     * The read, score and write loop shared by both formats.
+     * Reading and writing happen on the calling thread; only scoring runs on the pool.
+     */
+    private long analyze(ChunkReader reader, Writer out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<String>> inFlight = new ArrayDeque<>();
+        int maxInFlight = threads * CHUNKS_PER_THREAD;
+        long positions = 0;
+        try {
+            Chunk chunk;
+            while ((chunk = reader.next()) != null) {
+                Chunk work = chunk;
+                inFlight.add(pool.submit(() -> scoreChunk(work)));
+                positions += chunk.count;
+                // Bounded memory: wait for the oldest chunk before reading more.
+                if (inFlight.size() >= maxInFlight) {
+                    out.write(await(inFlight.poll()));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                out.write(await(inFlight.poll()));
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+        return positions;
+    }
+
+    private static String await(Future<String> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scoring positions", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Scoring failed", e.getCause());
+        }
+    }
+
+    private String scoreChunk(Chunk chunk) {
+        Scorer scorer = scorers.get();
+        StringBuilder result = new StringBuilder(chunk.count * 32);
+        for (int i = 0; i < chunk.count; i++) {
+            if (chunk.lines != null) {
+                result.append(chunk.lines[i]).append('\t').append(scorer.score(chunk.lines[i]));
+            } else {
+                result.append(chunk.firstIndex + i).append('\t').append(scorer.score(chunk.records[i]));
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+
+    /*
+     * Write a position as a binary record.
+     * @param out the stream to write to
+     * @param size the number of rows and columns
+     * @param winLength the number of stones in a row needed to win
+     * @param cells MNKEngine.EMPTY, X or O for every cell, row by row
+     */
+    public static void writeRecord(DataOutputStream out, int size, int winLength, byte[] cells) throws IOException {
+        out.writeByte(size);
+        out.writeByte(winLength);
+        byte[] packed = new byte[(size * size + 3) / 4];
+        for (int cell = 0; cell < size * size; cell++) {
+            packed[cell >> 2] |= (byte) (cells[cell] << ((cell & 3) * 2));
+        }
+        out.write(packed);
+    }
+
+    /*
+     * Supplies the next chunk of input, or null at the end.
+     */
+    private interface ChunkReader {
+        Chunk next() throws IOException;
+    }
+
+    /*
+     * A batch of positions, either text lines or binary records.
+     */
+    private static class Chunk {
+        final String[] lines;
+        final byte[][] records;
+        final int count;
+        final long firstIndex;
+
+        Chunk(String[] lines, byte[][] records, int count, long firstIndex) {
+            this.lines = lines;
+            this.records = records;
+            this.count = count;
+            this.firstIndex = firstIndex;
+        }
+    }
+
+    /*
+     * One thread's scoring state: a TicTacToeAI for 3x3 positions and an MNKEngine for larger ones,
+     * both reused from position to position.
+     */
+    private static class Scorer {
+        private final int depth;
+        private final TicTacToeAI small = new TicTacToeAI("Unbeatable");
+        private MNKEngine engine;
+        private byte[] cells = new byte[9];
+
+        Scorer(int depth) {
+            this.depth = depth;
+        }
+
+        String score(String position) {
+            int colon = position.indexOf(':');
+            int winLength = -1;
+            String board = position;
+            if (colon >= 0) {
+                try {
+                    winLength = Integer.parseInt(position.substring(0, colon).trim());
+                } catch (NumberFormatException e) {
+                    return "-\tbad win length";
+                }
+                board = position.substring(colon + 1).trim();
+            }
+            int size = (int) Math.round(Math.sqrt(board.length()));
+            if (size < 1 || size > MAX_SIZE || size * size != board.length()) return "-\tnot a square board";
+            if (cells.length != size * size) cells = new byte[size * size];
+            for (int cell = 0; cell < cells.length; cell++) {
+                char c = board.charAt(cell);
+                if (c == 'X' || c == 'x') cells[cell] = MNKEngine.X;
+                else if (c == 'O' || c == 'o') cells[cell] = MNKEngine.O;
+                else if (c == '.' || c == '-' || c == '_') cells[cell] = MNKEngine.EMPTY;
+                else return "-\tbad cell '" + c + "'";
+            }
+            return score(size, winLength < 0 ? (size == 3 ? 3 : Math.min(size, 5)) : winLength);
+        }
+
+        String score(byte[] record) {
+            int size = record[0] & 0xFF;
+            int winLength = record[1] & 0xFF;
+            if (size < 1 || size > MAX_SIZE) return "-\tbad board size";
+            if (cells.length != size * size) cells = new byte[size * size];
+            for (int cell = 0; cell < cells.length; cell++) {
+                int stone = (record[2 + (cell >> 2)] >>> ((cell & 3) * 2)) & 3;
+                if (stone == 3) return "-\tbad cell";
+                cells[cell] = (byte) stone;
+            }
+            return score(size, winLength);
+        }
+
+        /*
+         * Score the position held in cells.
+         */
+        private String score(int size, int winLength) {
+            if (winLength < 1 || winLength > size) return "-\tbad win length";
+            int xs = 0, os = 0;
+            for (byte stone : cells) {
+                if (stone == MNKEngine.X) xs++;
+                else if (stone == MNKEngine.O) os++;
+            }
+            if (xs - os != 0 && xs - os != 1) return "-\tillegal piece counts";
+            if (xs + os == cells.length) return "-\tboard full";
+
+            if (size == 3 && winLength == 3) {
+                int x = 0, o = 0;
+                for (int cell = 0; cell < 9; cell++) {
+                    if (cells[cell] == MNKEngine.X) x |= 1 << cell;
+                    if (cells[cell] == MNKEngine.O) o |= 1 << cell;
+                }
+                small.loadPosition(x, o);
+                if (small.getWinner() != ' ') return "-\tgame over";
+                int cell = small.searchBestCell();
+                return (cell / 3) + " " + (cell % 3) + "\t" + small.getLastSearchScore();
+            }
+
+            if (engine == null || engine.getRows() != size || engine.getWinLength() != winLength) {
+                engine = new MNKEngine(size, size, winLength, 1 << 18);
+            }
+            engine.loadCells(cells);
+            if (engine.getWinner() != MNKEngine.EMPTY) return "-\tgame over";
+            // Entries left by the previous position could change this search, so the result would depend
+            // on which thread scored which positions before.
+            engine.getTranspositionTable().clear();
+            int cell = engine.search(NO_TIME_LIMIT, Long.MAX_VALUE, depth);
+            return (cell / size) + " " + (cell % size) + "\t" + engine.getLastScore();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java PositionAnalyzer <input> <output> [threads] [depth]");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        PositionAnalyzer analyzer = new PositionAnalyzer(threads, depth);
+
+        long start = System.nanoTime();
+        long count;
+        try (Writer out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            if (args[0].endsWith(".bin")) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(input), 1 << 16)) {
+                    count = analyzer.analyzeBinary(in, out);
+                }
+            } else {
+                try (BufferedReader in = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                    count = analyzer.analyzeText(in, out);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d positions in %.1f s (%.0f positions/s) on %d threads%n", count, seconds, count / seconds, threads);
+    }
+}
@@ -0,0 +1,12 @@
+/*
+ * SearchListener interface is notified each time a TicTacToeAI has chosen a move.
+ * It is called on the thread that ran the search, which is not the Event Dispatch Thread
+ * when the move was requested with bestMoveAsync(). Listeners should return quickly.
+ */
+public interface SearchListener {
+    /*
+     * Called after every move the AI chooses, including searches that were cancelled.
+     * @param stats the statistics of the search
+     */
+    void searchFinished(SearchStats stats);
+}
@@ -0,0 +1,137 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/*
+ * SearchMonitor class collects the SearchStats of a TicTacToeAI and publishes them over JMX.
+ * It keeps running totals (searches, nodes, average and slowest move time) and the last search,
+ * so UI lag can be matched against search effort in JConsole or VisualVM while the game runs.
+ * Add it to an AI with addSearchListener(), then call register() to make it visible over JMX.
+ */
+public class SearchMonitor implements SearchListener, SearchMonitorMXBean {
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private long searches;
+    private long totalNodes;
+    private long totalNanos;
+    private long maxNanos;
+    private SearchStats last;
+    private ObjectName name;
+
+    @Override
+    public synchronized void searchFinished(SearchStats stats) {
+        searches++;
+        totalNodes += stats.getNodes();
+        totalNanos += stats.getNanos();
+        maxNanos = Math.max(maxNanos, stats.getNanos());
+        last = stats;
+    }
+
+    /*
+     * Register this monitor with the platform MBean server under a unique name.
+     * Failures are reported and otherwise ignored, since monitoring is optional.
+     */
+    public synchronized void register() {
+        if (name != null) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("GameLibrary:type=TicTacToeSearch,name=ai" + INSTANCES.incrementAndGet());
+            server.registerMBean(this, objectName);
+            name = objectName;
+        } catch (JMException e) {
+            System.err.println("Search monitor disabled: " + e);
+        }
+    }
+
+    /*
+     * Remove this monitor from the platform MBean server, for example when its game window closes.
+     */
+    public synchronized void unregister() {
+        if (name == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            System.err.println("Could not unregister the search monitor " + name + ": " + e);
+        }
+        name = null;
+    }
+
+    /*
+     * Get the statistics of the most recent search.
+     * @return the last search, or null if none has finished yet
+     */
+    public synchronized SearchStats getLastStats() {
+        return last;
+    }
+
+    @Override
+    public synchronized long getSearches() {
+        return searches;
+    }
+
+    @Override
+    public synchronized long getTotalNodes() {
+        return totalNodes;
+    }
+
+    @Override
+    public synchronized double getAverageMillis() {
+        return searches == 0 ? 0.0 : totalNanos / 1e6 / searches;
+    }
+
+    @Override
+    public synchronized double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+
+    @Override
+    public synchronized long getLastNodes() {
+        return last == null ? 0 : last.getNodes();
+    }
+
+    @Override
+    public synchronized long getLastAlphaCutoffs() {
+        return last == null ? 0 : last.getAlphaCutoffs();
+    }
+
+    @Override
+    public synchronized long getLastBetaCutoffs() {
+        return last == null ? 0 : last.getBetaCutoffs();
+    }
+
+    @Override
+    public synchronized int getLastMaxDepth() {
+        return last == null ? 0 : last.getMaxDepth();
+    }
+
+    @Override
+    public synchronized double getLastTableHitRate() {
+        return last == null ? 0.0 : last.getTableHitRate();
+    }
+
+    @Override
+    public synchronized double getLastMillis() {
+        return last == null ? 0.0 : last.getMillis();
+    }
+
+    @Override
+    public synchronized double getLastNodesPerSecond() {
+        return last == null ? 0.0 : last.getNodesPerSecond();
+    }
+
+    @Override
+    public synchronized String getLastSearch() {
+        return last == null ? "" : last.toString();
+    }
+
+    @Override
+    public synchronized void reset() {
+        searches = 0;
+        totalNodes = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+        last = null;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * SearchMonitorMXBean interface is the JMX view of a SearchMonitor.
+ * JConsole or VisualVM show it under GameLibrary:type=TicTacToeSearch.
+ */
+public interface SearchMonitorMXBean {
+    long getSearches();
+
+    long getTotalNodes();
+
+    double getAverageMillis();
+
+    double getMaxMillis();
+
+    long getLastNodes();
+
+    long getLastAlphaCutoffs();
+
+    long getLastBetaCutoffs();
+
+    int getLastMaxDepth();
+
+    double getLastTableHitRate();
+
+    double getLastMillis();
+
+    double getLastNodesPerSecond();
+
+    String getLastSearch();
+
+    /*
+     * Forget every search seen so far.
+     */
+    void reset();
+}
@@ -0,0 +1,128 @@
+/*
+ * SearchStats class describes the work the TicTacToeAI did to choose one move.
+ * Nodes are positions visited by the minimax search, or playouts for the Monte Carlo difficulty.
+ * Alpha cutoffs are pruned branches at nodes where the AI's opponent was to move,
+ * beta cutoffs at nodes where the AI itself was to move.
+ * Easy and Medium do not search, so only their time is filled in.
+ * Instances are immutable and safe to hand to other threads.
+ */
+public class SearchStats {
+    private final String difficulty;
+    private final int boardSize;
+    private final int row;
+    private final int col;
+    private final long nodes;
+    private final long alphaCutoffs;
+    private final long betaCutoffs;
+    private final int maxDepth;
+    private final long tableHits;
+    private final long tableProbes;
+    private final long nanos;
+    private final boolean cancelled;
+
+    /*
+     * Constructor to create a new SearchStats object.
+     * @param difficulty the difficulty that chose the move
+     * @param boardSize the number of rows and columns of the board
+     * @param row the row of the chosen move, or -1 if there was none
+     * @param col the column of the chosen move, or -1 if there was none
+     * @param nodes the positions visited, or playouts run
+     * @param alphaCutoffs the cutoffs at nodes where the opponent was to move
+     * @param betaCutoffs the cutoffs at nodes where the AI was to move
+     * @param maxDepth the deepest ply reached, counted from the current position
+     * @param tableHits the transposition table lookups that found an entry
+     * @param tableProbes all transposition table lookups
+     * @param nanos the wall time of the search
+     * @param cancelled true if the search was stopped before it finished
+     */
+    public SearchStats(String difficulty, int boardSize, int row, int col, long nodes, long alphaCutoffs, long betaCutoffs,
+                       int maxDepth, long tableHits, long tableProbes, long nanos, boolean cancelled) {
+        this.difficulty = difficulty;
+        this.boardSize = boardSize;
+        this.row = row;
+        this.col = col;
+        this.nodes = nodes;
+        this.alphaCutoffs = alphaCutoffs;
+        this.betaCutoffs = betaCutoffs;
+        this.maxDepth = maxDepth;
+        this.tableHits = tableHits;
+        this.tableProbes = tableProbes;
+        this.nanos = nanos;
+        this.cancelled = cancelled;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getAlphaCutoffs() {
+        return alphaCutoffs;
+    }
+
+    public long getBetaCutoffs() {
+        return betaCutoffs;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    /*
+     * Get the share of transposition table lookups that found an entry.
+     * @return the hit rate between 0 and 1
+     */
+    public double getTableHitRate() {
+        return tableProbes == 0 ? 0.0 : (double) tableHits / tableProbes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public double getMillis() {
+        return nanos / 1e6;
+    }
+
+    /*
+     * Get the search speed.
+     * @return nodes per second
+     */
+    public double getNodesPerSecond() {
+        return nanos == 0 ? 0.0 : nodes * 1e9 / nanos;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %dx%d: %.1f ms, %,d nodes (%,.0f/s), cutoffs a=%,d b=%,d, depth %d, TT %.0f%%%s",
+                difficulty, boardSize, boardSize, getMillis(), nodes, getNodesPerSecond(), alphaCutoffs, betaCutoffs,
+                maxDepth, getTableHitRate() * 100, cancelled ? " (cancelled)" : "");
+    }
+}
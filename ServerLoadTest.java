@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+/*
+ * ServerLoadTest class opens many connections to a running TicTacToeServer and plays random legal moves
+ * on all of them at once, as fast as the server answers. Every connection plays one game after another.
+ * At the end it prints the moves per second it saw, the round-trip latency percentiles from sending a
+ * MOVE to reading the reply, and the server's own STATS line.
+ * Usage: java ServerLoadTest [connections] [seconds] [difficulty] [size] [winLength] [port]
+ */
+public class ServerLoadTest {
+    private final int size;
+    private final String newGame;
+    private final Random random = new Random(1);
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private long moves;
+    private long games;
+    private long errors;
+
+    /*
+     * Constructor to create a new ServerLoadTest.
+     * @param difficulty the difficulty every game is played at
+     * @param size the number of rows and columns of the board
+     * @param winLength the number of symbols in a row needed to win
+     */
+    public ServerLoadTest(String difficulty, int size, int winLength) {
+        this.size = size;
+        this.newGame = "NEW " + difficulty.replace(' ', '_') + " " + size + " " + winLength + " X\n";
+    }
+
+    /*
+     * Play on the given number of connections for the given time and print the results.
+     */
+    public void run(int port, int connections, long seconds) throws IOException {
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < connections; i++) {
+                SocketChannel channel = SocketChannel.open(address);
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                Client client = new Client(channel, size);
+                channel.register(selector, SelectionKey.OP_READ, client);
+                client.send(newGame);
+            }
+            long start = System.nanoTime();
+            long deadline = start + seconds * 1_000_000_000L;
+            while (System.nanoTime() < deadline) {
+                selector.select(100);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Client client = (Client) key.attachment();
+                    if (client.channel.read(client.in) < 0) {
+                        key.cancel();
+                        continue;
+                    }
+                    readLines(client);
+                }
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d connections, %d games, %d moves in %.1f s: %.0f moves/s, %d errors%n",
+                    connections, games, moves, elapsed, moves / elapsed, errors);
+            System.out.printf("Round trip: p50 %.0f us, p99 %.0f us, max %.0f us%n",
+                    latency.getPercentile(50) / 1e3, latency.getPercentile(99) / 1e3, latency.getMax() / 1e3);
+            for (SelectionKey key : selector.keys()) {
+                ((Client) key.attachment()).channel.close();
+            }
+        }
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.write(ByteBuffer.wrap("STATS\nQUIT\n".getBytes(StandardCharsets.US_ASCII)));
+            ByteBuffer reply = ByteBuffer.allocate(1024);
+            while (channel.read(reply) > 0 && reply.get(reply.position() - 1) != '\n') {
+                // Keep reading until the whole line has arrived.
+            }
+            System.out.print(new String(reply.array(), 0, reply.position(), StandardCharsets.US_ASCII));
+        }
+    }
+
+    private void readLines(Client client) throws IOException {
+        ByteBuffer in = client.in;
+        in.flip();
+        int start = 0;
+        for (int i = 0; i < in.limit(); i++) {
+            if (in.get(i) == '\n') {
+                handle(client, new String(in.array(), start, i - start, StandardCharsets.US_ASCII));
+                start = i + 1;
+            }
+        }
+        in.position(start);
+        in.compact();
+    }
+
+    private void handle(Client client, String line) throws IOException {
+        if (line.startsWith("AI ")) {
+            String[] parts = line.split(" ");
+            client.taken[Integer.parseInt(parts[1]) * size + Integer.parseInt(parts[2])] = true;
+            client.free--;
+            moves++;
+            latency.record(System.nanoTime() - client.sentAt);
+            if (parts.length > 3) {
+                games++; // The AI's move ended the game.
+                client.send(newGame);
+            } else {
+                playRandomMove(client);
+            }
+        } else if (line.startsWith("OK")) {
+            Arrays.fill(client.taken, false);
+            client.free = size * size;
+            playRandomMove(client);
+        } else if (line.startsWith("RESULT")) {
+            latency.record(System.nanoTime() - client.sentAt);
+            games++;
+            client.send(newGame);
+        } else if (line.startsWith("ERR")) {
+            errors++;
+            client.send(newGame);
+        }
+    }
+
+    /*
+     * Send a MOVE for a random empty cell. The server reports the end of a game with the reply that causes it,
+     * so the board is never full here.
+     */
+    private void playRandomMove(Client client) throws IOException {
+        int pick = random.nextInt(client.free);
+        for (int cell = 0; cell < client.taken.length; cell++) {
+            if (!client.taken[cell] && pick-- == 0) {
+                client.taken[cell] = true;
+                client.free--;
+                client.sentAt = System.nanoTime();
+                client.send("MOVE " + (cell / size) + " " + (cell % size) + "\n");
+                return;
+            }
+        }
+    }
+
+    private static class Client {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(1024);
+        final boolean[] taken;
+        int free;
+        long sentAt;
+
+        Client(SocketChannel channel, int size) {
+            this.channel = channel;
+            this.taken = new boolean[size * size];
+        }
+
+        /*
+         * Send a short command. Each connection has at most one command in flight, so the socket buffer never fills.
+         */
+        void send(String line) throws IOException {
+            channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII)));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        String difficulty = args.length > 2 ? args[2].replace('_', ' ') : "Medium";
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        int winLength = args.length > 4 ? Integer.parseInt(args[4]) : (size == 3 ? 3 : Math.min(size, 5));
+        int port = args.length > 5 ? Integer.parseInt(args[5]) : TicTacToeServer.DEFAULT_PORT;
+        new ServerLoadTest(difficulty, size, winLength).run(port, connections, seconds);
+    }
+}
@@ -0,0 +1,611 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class holds the rules of a Snake arena: many snakes, steered by players or by a simple AI, on one board
+ * that wraps around its edges. Each tick every living snake moves one cell. A snake that runs into a body (its own
+ * or another's) dies, and so do all snakes whose heads move into the same cell. Every other segment of a dead snake
+ * turns into food, and the snake comes back RESPAWN_TICKS later somewhere else with its starting length.
+ * Eaten food is replaced, so the board keeps at least foodCount pieces.
+ *
+ * One grid holds the whole board: EMPTY, FOOD, or 1 + the number of the snake whose body covers the cell.
+ * Every collision is a lookup in it instead of a check of each snake against the others: a head hits a body
+ * if its next cell is covered (unless that cell is a tail moving away this tick), and two heads meet if one of
+ * the four cells around the next cell holds the head of another snake moving into it.
+ *
+ * A tick runs in phases over the snakes, each split into stripes stepped in parallel on a ForkJoinPool:
+ * 1. decide: the AI snakes choose a direction, and every snake works out its next cell;
+ * 2. resolve: every snake reads the grid to find out whether it eats or dies;
+ * 3. clear: tails that move away and the bodies of dead snakes leave the grid;
+ * 4. move: the survivors write their new heads.
+ * Within a phase the grid is either only read, or each snake only writes its own cells, so no phase needs a lock
+ * and the result does not depend on which thread runs which snake. The AI draws its random turns from a hash of the
+ * seed, the snake and the tick, and food and respawns are placed on the calling thread after the phases, so the same
+ * seed and inputs give the same game on any number of threads.
+ * For example: java SnakeArena 500 10 4 runs 500 AI snakes for 10 seconds on 4 threads and prints the tick times.
+ */
+public class SnakeArena {
+    public static final int EMPTY = 0;
+    public static final int FOOD = -1;
+    public static final int RESPAWN_TICKS = 20;
+    private static final int START_LENGTH = 4;
+    private static final int SPAWN_TRIES = 64;
+    private static final int FOOD_TRIES = 64;
+    private static final int SIGHT = 12;      // How far an AI snake looks for food, in cells in each direction.
+    private static final int ROOM_LIMIT = 32; // Free cells a move needs around it to count as safe.
+    private static final String DIRECTIONS = "UDLR";
+
+    private static final int DECIDE = 0;
+    private static final int RESOLVE = 1;
+    private static final int CLEAR = 2;
+    private static final int MOVE = 3;
+
+    private final int columns;
+    private final int rows;
+    private final int snakeCount;
+    private final int foodTarget;
+    private final long seed;
+    private final Random random;
+    private final int[] grid;
+
+    // Per snake. A body is a ring buffer of cells whose capacity is a power of two; heads[k] indexes the head.
+    private final int[][] bodies;
+    private final int[] heads;
+    private final int[] lengths;
+    private final int[] directions; // 0 to 3 for 'U', 'D', 'L', 'R'.
+    private final int[] inputs;     // The direction a player asked for, or -1.
+    private final boolean[] human;
+    private final boolean[] alive;
+    private final int[] scores;
+    private final int[] respawnTicks;
+    private final int[] targets;    // The food an AI snake is heading for, or -1.
+    private final int[] nextCells;
+    private final boolean[] eats;
+    private final boolean[] dies;
+    private final int[] dropped;    // Food left by a snake that died this tick.
+
+    private int ticks;
+    private int foodCount;
+    private int aliveCount;
+
+    private final ForkJoinPool pool;
+    private final Stripe[] stripes;
+    private final RecursiveAction runPhase;
+    private int phase; // The phase the stripes run.
+
+    /**
+     * The snakes from first (inclusive) to last (exclusive), run by one task, with the scratch space of its searches.
+     */
+    private final class Stripe extends RecursiveAction {
+        private final int first;
+        private final int last;
+        private final int[] seen = new int[columns * rows]; // Valid where seen[cell] == stamp.
+        private final int[] queue = new int[ROOM_LIMIT + 4];
+        private final int[] moves = new int[4]; // The AI's moves, best first,
+        private final int[] ranks = new int[4]; // and how good each looks.
+        private int stamp;
+
+        Stripe(int first, int last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            for (int k = first; k < last; k++) {
+                if (!alive[k]) continue;
+                switch (phase) {
+                    case DECIDE: decide(k, this); break;
+                    case RESOLVE: resolve(k); break;
+                    case CLEAR: clear(k); break;
+                    default: move(k); break;
+                }
+            }
+        }
+
+        /**
+         * Counts the free cells reachable from a cell, stopping at ROOM_LIMIT.
+         */
+        int room(int start) {
+            stamp++;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            seen[start] = stamp;
+            while (head < tail && tail < ROOM_LIMIT) {
+                int cell = queue[head++];
+                for (int d = 0; d < 4 && tail < ROOM_LIMIT; d++) {
+                    int next = neighbour(cell, d);
+                    if (seen[next] != stamp && grid[next] <= EMPTY) {
+                        seen[next] = stamp;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            return tail;
+        }
+    }
+
+    /**
+     * Constructor for the SnakeArena class. Places every snake and the food.
+     * @param columns The number of columns of the board.
+     * @param rows The number of rows of the board.
+     * @param snakeCount The number of snakes; all are steered by the AI until setHuman() is called.
+     * @param foodCount The number of pieces of food to keep on the board.
+     * @param seed The seed of the game; the same seed and inputs always give the same game.
+     * @param threads The number of threads to run the phases on; 1 runs them on the calling thread.
+     */
+    public SnakeArena(int columns, int rows, int snakeCount, int foodCount, long seed, int threads) {
+        this.columns = columns;
+        this.rows = rows;
+        this.snakeCount = snakeCount;
+        this.foodTarget = foodCount;
+        this.seed = seed;
+        random = new Random(seed);
+        grid = new int[columns * rows];
+        bodies = new int[snakeCount][];
+        heads = new int[snakeCount];
+        lengths = new int[snakeCount];
+        directions = new int[snakeCount];
+        inputs = new int[snakeCount];
+        human = new boolean[snakeCount];
+        alive = new boolean[snakeCount];
+        scores = new int[snakeCount];
+        respawnTicks = new int[snakeCount];
+        targets = new int[snakeCount];
+        nextCells = new int[snakeCount];
+        eats = new boolean[snakeCount];
+        dies = new boolean[snakeCount];
+        dropped = new int[snakeCount];
+        for (int k = 0; k < snakeCount; k++) {
+            bodies[k] = new int[16];
+            inputs[k] = -1;
+            spawn(k);
+        }
+        placeFood();
+
+        int stripeCount = Math.max(1, Math.min(threads, snakeCount));
+        stripes = new Stripe[stripeCount];
+        for (int s = 0; s < stripeCount; s++) {
+            stripes[s] = new Stripe((int) ((long) snakeCount * s / stripeCount),
+                    (int) ((long) snakeCount * (s + 1) / stripeCount));
+        }
+        pool = stripeCount > 1 ? new ForkJoinPool(stripeCount) : null;
+        runPhase = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                for (Stripe stripe : stripes) {
+                    stripe.reinitialize();
+                }
+                ForkJoinTask.invokeAll(stripes);
+            }
+        };
+    }
+
+    /**
+     * Returns the side of a square board with room for a number of snakes, about 80 cells per snake.
+     */
+    public static int sideFor(int snakes) {
+        return Math.max(16, (int) Math.ceil(Math.sqrt(snakes * 80.0)));
+    }
+
+    /**
+     * Advances every snake by one cell, resolves the collisions, and brings back the snakes whose time has come.
+     */
+    public void tick() {
+        ticks++;
+        runPhase(DECIDE);
+        runPhase(RESOLVE);
+        runPhase(CLEAR);
+        runPhase(MOVE);
+        for (int k = 0; k < snakeCount; k++) {
+            if (alive[k]) {
+                if (dies[k]) {
+                    alive[k] = false;
+                    aliveCount--;
+                    respawnTicks[k] = ticks + RESPAWN_TICKS;
+                    foodCount += dropped[k];
+                } else if (eats[k]) {
+                    foodCount--;
+                }
+            } else if (ticks >= respawnTicks[k]) {
+                spawn(k);
+            }
+        }
+        placeFood();
+    }
+
+    private void runPhase(int phase) {
+        this.phase = phase;
+        if (pool == null) {
+            stripes[0].compute();
+        } else {
+            runPhase.reinitialize();
+            pool.invoke(runPhase);
+        }
+    }
+
+    /**
+     * Decide phase: chooses the direction of snake k and its next cell. Only reads the grid.
+     */
+    private void decide(int k, Stripe stripe) {
+        int direction = directions[k];
+        if (human[k]) {
+            if (inputs[k] >= 0 && inputs[k] != reverse(direction)) {
+                direction = inputs[k];
+            }
+            inputs[k] = -1;
+        } else {
+            direction = think(k, stripe);
+        }
+        directions[k] = direction;
+        nextCells[k] = neighbour(bodies[k][heads[k]], direction);
+    }
+
+    /**
+     * The AI: heads for the nearest food it can see along a move with enough room around it, wanders when it
+     * sees none, and takes the move with the most room when no move is safe.
+     * The moves are ranked first and their room counted in that order, so usually only one is searched.
+     */
+    private int think(int k, Stripe stripe) {
+        int head = bodies[k][heads[k]];
+        int target = targets[k];
+        if (target < 0 || grid[target] != FOOD) {
+            target = targets[k] = findFood(head);
+        }
+        int hash = mix(seed, k, ticks);
+        int straight = directions[k];
+        int[] moves = stripe.moves;
+        int[] ranks = stripe.ranks;
+        int count = 0;
+        for (int d = 0; d < 4; d++) {
+            if (d == reverse(straight) || grid[neighbour(head, d)] > EMPTY) continue;
+            int rank;
+            if (target >= 0) {
+                rank = -distance(neighbour(head, d), target) * 4 + (d == straight ? 1 : 0);
+            } else {
+                // No food in sight: go straight, and turn once in a while.
+                rank = d == straight ? 2 : ((hash >>> (d * 3)) & 7) == 0 ? 3 : 0;
+            }
+            int i = count++;
+            for (; i > 0 && ranks[i - 1] < rank; i--) {
+                moves[i] = moves[i - 1];
+                ranks[i] = ranks[i - 1];
+            }
+            moves[i] = d;
+            ranks[i] = rank;
+        }
+        int need = Math.min(ROOM_LIMIT, lengths[k] + 1);
+        int roomiest = straight;
+        int mostRoom = -1;
+        for (int i = 0; i < count; i++) {
+            int room = stripe.room(neighbour(head, moves[i]));
+            if (room >= need) {
+                return moves[i];
+            }
+            if (room > mostRoom) {
+                mostRoom = room;
+                roomiest = moves[i];
+            }
+        }
+        return roomiest;
+    }
+
+    /**
+     * Returns the nearest food within SIGHT cells of a cell, searched in squares of growing size, or -1.
+     */
+    private int findFood(int cell) {
+        int column = cell % columns;
+        int row = cell / columns;
+        for (int r = 1; r <= SIGHT; r++) {
+            for (int i = -r; i <= r; i++) {
+                if (grid[wrap(column + i, row - r)] == FOOD) return wrap(column + i, row - r);
+                if (grid[wrap(column + i, row + r)] == FOOD) return wrap(column + i, row + r);
+                if (grid[wrap(column - r, row + i)] == FOOD) return wrap(column - r, row + i);
+                if (grid[wrap(column + r, row + i)] == FOOD) return wrap(column + r, row + i);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Resolve phase: whether snake k eats or dies. Only reads the grid and the decisions.
+     */
+    private void resolve(int k) {
+        int next = nextCells[k];
+        int content = grid[next];
+        eats[k] = content == FOOD;
+        boolean crashes = content > EMPTY && !isLeavingTail(next, content - 1);
+        // Two heads meet if another snake's head is next to this cell and moves into it.
+        for (int d = 0; d < 4 && !crashes; d++) {
+            int around = neighbour(next, d);
+            int j = grid[around] - 1;
+            if (j >= 0 && j != k && alive[j] && nextCells[j] == next && bodies[j][heads[j]] == around) {
+                crashes = true;
+            }
+        }
+        dies[k] = crashes;
+    }
+
+    /**
+     * Returns true if the cell is the tail of snake j and the tail moves away this tick, that is if j does not eat.
+     */
+    private boolean isLeavingTail(int cell, int j) {
+        return alive[j] && tailOf(j) == cell && grid[nextCells[j]] != FOOD;
+    }
+
+    /**
+     * Clear phase: a dead snake leaves the grid, every other segment but its tail turning into food;
+     * a surviving snake that does not eat takes its tail off. Each snake only writes its own cells.
+     */
+    private void clear(int k) {
+        int[] body = bodies[k];
+        int mask = body.length - 1;
+        if (dies[k]) {
+            int food = 0;
+            for (int i = 0; i < lengths[k]; i++) {
+                int cell = body[(heads[k] - i) & mask];
+                if (i % 2 == 0 && i < lengths[k] - 1) {
+                    grid[cell] = FOOD;
+                    food++;
+                } else {
+                    grid[cell] = EMPTY;
+                }
+            }
+            dropped[k] = food;
+        } else if (!eats[k]) {
+            grid[tailOf(k)] = EMPTY;
+            lengths[k]--;
+        }
+    }
+
+    /**
+     * Move phase: a surviving snake writes its new head, growing if it ate.
+     * No two survivors share a next cell, so the writes never overlap.
+     */
+    private void move(int k) {
+        if (dies[k]) return;
+        if (lengths[k] == bodies[k].length) {
+            grow(k);
+        }
+        int next = nextCells[k];
+        heads[k] = (heads[k] + 1) & (bodies[k].length - 1);
+        bodies[k][heads[k]] = next;
+        lengths[k]++;
+        grid[next] = k + 1;
+        if (eats[k]) {
+            scores[k]++;
+        }
+    }
+
+    /**
+     * Doubles the ring buffer of snake k, keeping its cells from the tail to the head.
+     */
+    private void grow(int k) {
+        int[] body = bodies[k];
+        int[] larger = new int[body.length * 2];
+        for (int i = 0; i < lengths[k]; i++) {
+            larger[i] = body[(heads[k] - lengths[k] + 1 + i) & (body.length - 1)];
+        }
+        bodies[k] = larger;
+        heads[k] = lengths[k] - 1;
+    }
+
+    /**
+     * Places snake k on a random free line of cells, START_LENGTH long with free space ahead, heading in a random
+     * direction. If no such place is found, it tries again on the next tick.
+     */
+    private void spawn(int k) {
+        for (int attempt = 0; attempt < SPAWN_TRIES; attempt++) {
+            int head = random.nextInt(grid.length);
+            int direction = random.nextInt(4);
+            boolean free = grid[neighbour(head, direction)] == EMPTY;
+            int cell = head;
+            for (int i = 0; i < START_LENGTH && free; i++) {
+                free = grid[cell] == EMPTY;
+                cell = neighbour(cell, reverse(direction));
+            }
+            if (!free) continue;
+            int[] body = bodies[k];
+            cell = head;
+            for (int i = 0; i < START_LENGTH; i++) {
+                body[START_LENGTH - 1 - i] = cell;
+                grid[cell] = k + 1;
+                cell = neighbour(cell, reverse(direction));
+            }
+            heads[k] = START_LENGTH - 1;
+            lengths[k] = START_LENGTH;
+            directions[k] = direction;
+            inputs[k] = -1;
+            targets[k] = -1;
+            scores[k] = 0;
+            dies[k] = false;
+            eats[k] = false;
+            alive[k] = true;
+            aliveCount++;
+            return;
+        }
+        respawnTicks[k] = ticks + 1;
+    }
+
+    /**
+     * Puts food on random empty cells until the board has foodTarget pieces, giving up on a piece after FOOD_TRIES tries.
+     */
+    private void placeFood() {
+        while (foodCount < foodTarget) {
+            int cell = -1;
+            for (int i = 0; i < FOOD_TRIES && cell < 0; i++) {
+                int candidate = random.nextInt(grid.length);
+                if (grid[candidate] == EMPTY) cell = candidate;
+            }
+            if (cell < 0) return; // The board is too full; try again next tick.
+            grid[cell] = FOOD;
+            foodCount++;
+        }
+    }
+
+    private int tailOf(int k) {
+        return bodies[k][(heads[k] - lengths[k] + 1) & (bodies[k].length - 1)];
+    }
+
+    /**
+     * Returns the neighbour of a cell in direction d ('U', 'D', 'L', 'R' as 0 to 3), wrapping around the edges.
+     */
+    private int neighbour(int cell, int d) {
+        int column = cell % columns;
+        int row = cell / columns;
+        switch (d) {
+            case 0: row = (row == 0) ? rows - 1 : row - 1; break;
+            case 1: row = (row == rows - 1) ? 0 : row + 1; break;
+            case 2: column = (column == 0) ? columns - 1 : column - 1; break;
+            default: column = (column == columns - 1) ? 0 : column + 1; break;
+        }
+        return row * columns + column;
+    }
+
+    private int wrap(int column, int row) {
+        return Math.floorMod(row, rows) * columns + Math.floorMod(column, columns);
+    }
+
+    /**
+     * Returns the number of steps between two cells, going around the edges where that is shorter.
+     */
+    private int distance(int a, int b) {
+        int dx = Math.abs(a % columns - b % columns);
+        int dy = Math.abs(a / columns - b / columns);
+        return Math.min(dx, columns - dx) + Math.min(dy, rows - dy);
+    }
+
+    private static int reverse(int d) {
+        return d ^ 1;
+    }
+
+    /**
+     * A hash of the seed, a snake and a tick, for random choices that do not depend on the order snakes are run in.
+     */
+    private static int mix(long seed, int k, int tick) {
+        long h = seed * 0x9E3779B97F4A7C15L + k * 0xBF58476D1CE4E5B9L + tick * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        h *= 0xD6E8FEB86659FD93L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Lets a player steer snake k, or hands it back to the AI.
+     */
+    public void setHuman(int k, boolean isHuman) {
+        human[k] = isHuman;
+        inputs[k] = -1;
+    }
+
+    public boolean isHuman(int k) {
+        return human[k];
+    }
+
+    /**
+     * Sets the direction a player's snake takes on the next tick; reversing is ignored, as in SnakeEngine.
+     * @param k The snake.
+     * @param direction 'U', 'D', 'L' or 'R'.
+     */
+    public void setDirection(int k, char direction) {
+        int d = DIRECTIONS.indexOf(direction);
+        if (d >= 0) {
+            inputs[k] = d;
+        }
+    }
+
+    /**
+     * Returns what covers a cell: EMPTY, FOOD, or 1 + the number of the snake whose body is there.
+     */
+    public int getCell(int cell) {
+        return grid[cell];
+    }
+
+    public boolean isAlive(int k) {
+        return alive[k];
+    }
+
+    public int getLength(int k) {
+        return alive[k] ? lengths[k] : 0;
+    }
+
+    /**
+     * Returns the cell of segment i of snake k, 0 being the head.
+     */
+    public int getSnakeCell(int k, int i) {
+        return bodies[k][(heads[k] - i) & (bodies[k].length - 1)];
+    }
+
+    public char getDirection(int k) {
+        return DIRECTIONS.charAt(directions[k]);
+    }
+
+    /**
+     * Returns the pieces of food snake k has eaten since it last spawned.
+     */
+    public int getScore(int k) {
+        return scores[k];
+    }
+
+    /**
+     * Returns the tick on which a dead snake comes back.
+     */
+    public int getRespawnTick(int k) {
+        return respawnTicks[k];
+    }
+
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    public int getSnakeCount() {
+        return snakeCount;
+    }
+
+    public int getFoodCount() {
+        return foodCount;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        int snakes = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int side = sideFor(snakes);
+        SnakeArena arena = new SnakeArena(side, side, snakes, snakes * 2, 1, threads);
+        LatencyHistogram tickTimes = new LatencyHistogram();
+        long aliveSum = 0;
+        long end = System.nanoTime() + (long) (seconds * 1e9);
+        while (System.nanoTime() < end) {
+            long start = System.nanoTime();
+            arena.tick();
+            tickTimes.record(System.nanoTime() - start);
+            aliveSum += arena.getAliveCount();
+        }
+        arena.close();
+        System.out.printf("%d snakes on a %d x %d board, %d threads: %,d ticks, %.0f alive on average%nTick times: %s%n",
+                snakes, side, side, threads, arena.getTicks(), (double) aliveSum / Math.max(1, arena.getTicks()), tickTimes);
+    }
+}
@@ -0,0 +1,168 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * This class plays Snake in a SnakeArena: the player steers snake 0 (white, with a green head) among hundreds of
+ * AI snakes. The controls are those of SnakePanel; press P to let the AI steer your snake too.
+ * A dead snake comes back a moment later, with its score back at 0.
+ *
+ * The board is drawn as one image with a pixel per cell, scaled up to the panel. Each tick rewrites the pixels from
+ * the arena's grid, so a frame costs the same however many snakes there are and however long they grow.
+ * Press F3 (or start with -Dsnake.overlay=true) to show the tick and paint times measured by a FrameMonitor.
+ */
+public class SnakeArenaPanel extends JPanel implements ActionListener {
+    private static final int DEFAULT_SIZE = 600;
+    private static final int PLAYER = 0;
+    private static final int FOOD_COLOR = 0xE03030;
+    private static final int PLAYER_COLOR = 0xFFFFFF;
+    private static final int PLAYER_HEAD_COLOR = 0x00FF00;
+    private static final Font SCORE_FONT = new Font("Arial", Font.BOLD, 16);
+    private static final Font INFO_FONT = new Font("Arial", Font.PLAIN, 12);
+    private static final Color HUD_BACKGROUND = new Color(0, 0, 0, 170);
+
+    private final SnakeArena arena;
+    private final Timer timer;
+    private final BufferedImage image;
+    private final int[] pixels;
+    private final int[] colors; // The body color of each snake, by number + 1; 0 is the empty cell.
+    private final int[] headColors;
+    private final FrameMonitor frames;
+    private boolean overlayShown = Boolean.getBoolean("snake.overlay"); // Toggled with F3.
+
+    /**
+     * Constructor for the SnakeArenaPanel class.
+     * @param snakes The number of snakes, the player's included; the board is sized to fit them.
+     * @param tickMillis The time between ticks.
+     */
+    public SnakeArenaPanel(int snakes, int tickMillis) {
+        int side = SnakeArena.sideFor(snakes);
+        arena = new SnakeArena(side, side, snakes, snakes * 2, System.nanoTime(), Runtime.getRuntime().availableProcessors());
+        arena.setHuman(PLAYER, System.getProperty("snake.autopilot") == null);
+        image = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        colors = new int[snakes + 1];
+        headColors = new int[snakes + 1];
+        for (int k = 0; k < snakes; k++) {
+            // Hues spread by the golden angle, so neighbouring numbers get distant colors.
+            float hue = (k * 0.618034f) % 1f;
+            colors[k + 1] = Color.HSBtoRGB(hue, 0.65f, 0.75f) & 0xFFFFFF;
+            headColors[k + 1] = Color.HSBtoRGB(hue, 0.35f, 1f) & 0xFFFFFF;
+        }
+        colors[PLAYER + 1] = PLAYER_COLOR;
+        headColors[PLAYER + 1] = PLAYER_HEAD_COLOR;
+        frames = new FrameMonitor("Snake Arena", tickMillis * 1_000_000L);
+
+        setBackground(Color.BLACK);
+        setPreferredSize(new Dimension(DEFAULT_SIZE, DEFAULT_SIZE));
+        setFocusable(true);
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                int key = e.getKeyCode();
+                if (key == KeyEvent.VK_P) {
+                    arena.setHuman(PLAYER, !arena.isHuman(PLAYER));
+                } else if (key == KeyEvent.VK_F3) {
+                    overlayShown = !overlayShown;
+                    repaint();
+                } else if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
+                    steer('L');
+                } else if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
+                    steer('R');
+                } else if (key == KeyEvent.VK_UP || key == KeyEvent.VK_W) {
+                    steer('U');
+                } else if (key == KeyEvent.VK_DOWN || key == KeyEvent.VK_S) {
+                    steer('D');
+                }
+            }
+        });
+        updateImage();
+        timer = new Timer(tickMillis, this);
+        timer.start();
+    }
+
+    private void steer(char direction) {
+        arena.setDirection(PLAYER, direction);
+        frames.inputReceived();
+    }
+
+    /**
+     * Rewrites every pixel from the arena's grid, then marks the heads.
+     */
+    private void updateImage() {
+        for (int cell = 0; cell < pixels.length; cell++) {
+            int content = arena.getCell(cell);
+            pixels[cell] = content == SnakeArena.FOOD ? FOOD_COLOR : colors[content];
+        }
+        for (int k = 0; k < arena.getSnakeCount(); k++) {
+            if (arena.isAlive(k)) {
+                pixels[arena.getSnakeCell(k, 0)] = headColors[k + 1];
+            }
+        }
+    }
+
+    /**
+     * Paints the board scaled to the largest square that fits, then the player's score and the number of snakes alive.
+     * @param g The Graphics object used for painting.
+     */
+    @Override
+    public void paintComponent(Graphics g) {
+        frames.beginPaint();
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
+        int size = Math.min(getWidth(), getHeight());
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g2d.drawImage(image, 0, 0, size, size, null);
+
+        g2d.setColor(HUD_BACKGROUND);
+        g2d.fillRect(0, 0, 260, 44);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setColor(Color.YELLOW);
+        g2d.setFont(SCORE_FONT);
+        if (arena.isAlive(PLAYER)) {
+            g2d.drawString("Score: " + arena.getScore(PLAYER) + (arena.isHuman(PLAYER) ? "" : " (autopilot)"), 10, 20);
+        } else {
+            int seconds = (int) Math.ceil((arena.getRespawnTick(PLAYER) - arena.getTicks()) * timer.getDelay() / 1000.0);
+            g2d.drawString("You crashed. Back in " + Math.max(seconds, 0) + " s", 10, 20);
+        }
+        g2d.setColor(Color.LIGHT_GRAY);
+        g2d.setFont(INFO_FONT);
+        g2d.drawString(arena.getAliveCount() + " of " + arena.getSnakeCount() + " snakes alive", 10, 38);
+        frames.endPaint();
+        if (overlayShown) {
+            frames.drawOverlay(g2d, getWidth() - FrameMonitor.OVERLAY_WIDTH, 0);
+        }
+    }
+
+    /**
+     * Stops the timer and the arena's threads when the panel leaves its window.
+     * Exports the frame histograms if -Dframes.export is set.
+     */
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        timer.stop();
+        arena.close();
+        frames.exportHistograms();
+    }
+
+    /**
+     * Action performed method for the timer.
+     * Advances the arena by one tick, redraws the image and repaints the whole panel,
+     * since snakes move all over the board on every tick.
+     * @param e The ActionEvent triggered by the timer.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        frames.beginTick();
+        arena.tick();
+        frames.endTick();
+        updateImage();
+        if (isShowing()) {
+            paintImmediately(0, 0, getWidth(), getHeight());
+            frames.frameShown();
+        }
+    }
+}
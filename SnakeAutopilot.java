@@ -0,0 +1,315 @@
+/**
+ * This class steers the snake of a SnakeEngine by itself, for demos and for running the game at full speed.
+ * Call nextDirection() before each step and pass the result to step().
+ *
+ * The default strategy searches the board breadth-first (which on this grid of equal steps finds the same
+ * shortest paths as A*) and:
+ * 1. goes for the food along the shortest path, if after eating the snake could still reach its own tail;
+ * 2. otherwise follows its tail, taking the neighbour farthest from it, to stall until the food becomes safe;
+ * 3. otherwise moves to the neighbour with the most room left.
+ * The search knows that the body moves: the segment i cells from the head leaves its cell after (length - i) ticks,
+ * so a path may enter a body cell that will be empty by the time the head gets there.
+ * The safety check replays the path on a virtual snake: its body is the path followed by the front of the real body.
+ * Near the end of a game the food can sit where it never becomes safe; after stalling for twice as many ticks as the
+ * board has cells, the snake takes the shortest path anyway, so a game always ends.
+ *
+ * The Hamiltonian strategy follows a fixed cycle through every cell of the board, which can never run into the body,
+ * so the snake always fills the whole board. It needs an even number of rows or columns; on other boards, or when the
+ * cycle's next cell is blocked (after switching strategy mid-game), the default strategy decides.
+ *
+ * The searches only use int arrays allocated in the constructor. Instead of clearing them, each search takes a new
+ * stamp and treats entries with an older stamp as unset, so a decision allocates nothing and costs O(cells) at most.
+ * The time of every decision is recorded in a LatencyHistogram.
+ */
+public class SnakeAutopilot {
+    private static final String DIRECTIONS = "UDLR";
+
+    private final SnakeEngine engine;
+    private final int columns;
+    private final int rows;
+    private final boolean hamiltonian;
+    private final int[] cycleNext; // The cell after each cell on the Hamiltonian cycle, or null if the board has none.
+
+    // Breadth-first search, valid where seen[cell] == searchStamp.
+    private final int[] seen;
+    private final int[] depth;
+    private final int[] parent;
+    private final int[] queue;
+    private int searchStamp;
+    private int lastVisited; // The number of cells the last search visited.
+
+    // The body the search steers around, valid where bodyMark[cell] == bodyStamp: the cell is free from tick freeAt[cell].
+    private final int[] bodyMark;
+    private final int[] freeAt;
+    private int bodyStamp;
+
+    private int lastScore;    // The score when the snake last ate,
+    private int lastMealTick; // and the tick it ate on.
+
+    private final int[] virtualBody; // The body after following a path: path cells from the food back, then the old front.
+    private final LatencyHistogram decisionTimes = new LatencyHistogram();
+
+    /**
+     * Constructor for the SnakeAutopilot class. Allocates everything the searches need.
+     * @param engine The game to steer.
+     * @param hamiltonian true to follow a Hamiltonian cycle, false to search for the food.
+     */
+    public SnakeAutopilot(SnakeEngine engine, boolean hamiltonian) {
+        this.engine = engine;
+        this.columns = engine.getColumns();
+        this.rows = engine.getRows();
+        this.hamiltonian = hamiltonian;
+        int cells = columns * rows;
+        seen = new int[cells];
+        depth = new int[cells];
+        parent = new int[cells];
+        queue = new int[cells];
+        bodyMark = new int[cells];
+        freeAt = new int[cells];
+        virtualBody = new int[cells + 1];
+        cycleNext = hamiltonian ? buildCycle() : null;
+    }
+
+    /**
+     * Returns the direction to pass to the next step() and records how long the decision took.
+     */
+    public char nextDirection() {
+        long start = System.nanoTime();
+        char direction = decide();
+        decisionTimes.record(System.nanoTime() - start);
+        return direction;
+    }
+
+    /**
+     * Returns the times of the decisions made so far, in nanoseconds.
+     */
+    public LatencyHistogram getDecisionTimes() {
+        return decisionTimes;
+    }
+
+    public boolean isHamiltonian() {
+        return hamiltonian;
+    }
+
+    private char decide() {
+        if (!engine.isInGame()) {
+            return engine.getDirection();
+        }
+        int head = engine.getSnakeCell(0);
+        markRealBody();
+        if (cycleNext != null && isPassable(cycleNext[head], 1)) {
+            return directionTo(head, cycleNext[head]);
+        }
+
+        // Following the tail can repeat the same loop forever while the food stays in an unsafe pocket. After twice as
+        // many ticks as the board has cells without eating, the snake goes for the food anyway, and grows or dies.
+        if (engine.getScore() != lastScore || engine.getTicks() < lastMealTick) {
+            lastScore = engine.getScore();
+            lastMealTick = engine.getTicks();
+        }
+        boolean stalled = engine.getTicks() - lastMealTick > 2 * columns * rows;
+
+        // 1. The shortest path to the food, if the snake can still reach its tail after eating.
+        int food = engine.getFoodCell();
+        if (food >= 0 && search(head, 0, food) > 0) {
+            int step = firstStep(head, food);
+            if (stalled || isSafeAfterEating(head, food)) {
+                return directionTo(head, step);
+            }
+            markRealBody(); // The safety check marked the virtual body.
+        }
+
+        // 2. Follow the tail, the long way round. The food is left alone here: eating it would keep the tail still.
+        int tail = engine.getSnakeCell(engine.getSnakeLength() - 1);
+        int best = -1;
+        int bestDistance = -1;
+        for (int k = 0; k < 4; k++) {
+            int next = neighbour(head, k);
+            if (next != food && isPassable(next, 1)) {
+                int distance = search(next, 1, tail);
+                if (distance > bestDistance) {
+                    best = next;
+                    bestDistance = distance;
+                }
+            }
+        }
+        if (best >= 0) {
+            return directionTo(head, best);
+        }
+
+        // 3. No way back to the tail: take the neighbour with the most room.
+        int bestRoom = 0;
+        for (int k = 0; k < 4; k++) {
+            int next = neighbour(head, k);
+            if (isPassable(next, 1)) {
+                search(next, 1, -1);
+                int room = lastVisited;
+                if (room > bestRoom) {
+                    best = next;
+                    bestRoom = room;
+                }
+            }
+        }
+        return best >= 0 ? directionTo(head, best) : engine.getDirection();
+    }
+
+    /**
+     * Marks the cells of the real body with the tick each one is left on.
+     */
+    private void markRealBody() {
+        bodyStamp++;
+        int length = engine.getSnakeLength();
+        for (int i = 0; i < length; i++) {
+            int cell = engine.getSnakeCell(i);
+            bodyMark[cell] = bodyStamp;
+            freeAt[cell] = length - i;
+        }
+    }
+
+    /**
+     * Returns true if the head can be in the cell at the given tick: no body is there by then.
+     */
+    private boolean isPassable(int cell, int tick) {
+        return bodyMark[cell] != bodyStamp || freeAt[cell] <= tick;
+    }
+
+    /**
+     * Searches breadth-first from a cell, around the marked body.
+     * @param start The cell to start from, reached at tick startTick.
+     * @param startTick The tick the search starts at.
+     * @param target The cell to find, or -1 to visit every reachable cell.
+     * @return The number of ticks from start to target, or -1 if it cannot be reached (always -1 without a target).
+     *         lastVisited holds the number of cells visited.
+     */
+    private int search(int start, int startTick, int target) {
+        searchStamp++;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        seen[start] = searchStamp;
+        depth[start] = 0;
+        parent[start] = -1;
+        while (head < tail) {
+            int cell = queue[head++];
+            if (cell == target) {
+                lastVisited = tail;
+                return depth[cell];
+            }
+            int nextDepth = depth[cell] + 1;
+            for (int k = 0; k < 4; k++) {
+                int next = neighbour(cell, k);
+                if (seen[next] != searchStamp && isPassable(next, startTick + nextDepth)) {
+                    seen[next] = searchStamp;
+                    depth[next] = nextDepth;
+                    parent[next] = cell;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        lastVisited = tail;
+        return -1;
+    }
+
+    /**
+     * Returns the first cell on the path the last search found from start to target.
+     */
+    private int firstStep(int start, int target) {
+        int cell = target;
+        while (parent[cell] != start) {
+            cell = parent[cell];
+        }
+        return cell;
+    }
+
+    /**
+     * Checks whether, after following the path the last search found to the food and eating it,
+     * the snake could still reach its tail. Marks the virtual body, replacing the real one.
+     */
+    private boolean isSafeAfterEating(int head, int food) {
+        int length = engine.getSnakeLength() + 1; // Eating grows the snake.
+        if (length >= columns * rows) {
+            return true; // The snake fills the board, and the game is won.
+        }
+        int count = 0;
+        for (int cell = food; cell != head && count < length; cell = parent[cell]) {
+            virtualBody[count++] = cell;
+        }
+        for (int i = 0; count < length; i++) {
+            virtualBody[count++] = engine.getSnakeCell(i);
+        }
+        bodyStamp++;
+        for (int i = 0; i < length; i++) {
+            bodyMark[virtualBody[i]] = bodyStamp;
+            freeAt[virtualBody[i]] = length - i;
+        }
+        // From the food, the virtual tail is reachable one tick after it moves away.
+        return search(food, 0, virtualBody[length - 1]) >= 0;
+    }
+
+    /**
+     * Returns the neighbour of a cell in direction k ('U', 'D', 'L', 'R'), wrapping around the board edges.
+     */
+    private int neighbour(int cell, int k) {
+        int column = cell % columns;
+        int row = cell / columns;
+        switch (k) {
+            case 0: row = (row == 0) ? rows - 1 : row - 1; break;
+            case 1: row = (row == rows - 1) ? 0 : row + 1; break;
+            case 2: column = (column == 0) ? columns - 1 : column - 1; break;
+            default: column = (column == columns - 1) ? 0 : column + 1; break;
+        }
+        return row * columns + column;
+    }
+
+    /**
+     * Returns the direction from a cell to one of its neighbours.
+     */
+    private char directionTo(int from, int to) {
+        for (int k = 0; k < 4; k++) {
+            if (neighbour(from, k) == to) {
+                return DIRECTIONS.charAt(k);
+            }
+        }
+        return engine.getDirection();
+    }
+
+    /**
+     * Builds a Hamiltonian cycle of the board without using the wrap-around edges.
+     * With an even number of rows: along the top row to the right, then in rows 1 and down, zigzag through
+     * columns 1 and up (right to left on odd rows), and back up column 0. With an even number of columns the same
+     * path is laid out transposed.
+     * @return The next cell of every cell on the cycle, or null if both sides are odd and there is no cycle.
+     */
+    private int[] buildCycle() {
+        boolean transposed = rows % 2 != 0;
+        int height = transposed ? columns : rows; // The layout is in (line, position) terms, line being a row
+        int width = transposed ? rows : columns;  // unless transposed.
+        if (height % 2 != 0 || width < 2) {
+            return null;
+        }
+        int[] order = new int[height * width];
+        int n = 0;
+        for (int x = 0; x < width; x++) {
+            order[n++] = cellAt(0, x, transposed);
+        }
+        for (int y = 1; y < height; y++) {
+            if (y % 2 == 1) {
+                for (int x = width - 1; x >= 1; x--) order[n++] = cellAt(y, x, transposed);
+            } else {
+                for (int x = 1; x < width; x++) order[n++] = cellAt(y, x, transposed);
+            }
+        }
+        for (int y = height - 1; y >= 1; y--) {
+            order[n++] = cellAt(y, 0, transposed);
+        }
+        int[] next = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            next[order[i]] = order[(i + 1) % order.length];
+        }
+        return next;
+    }
+
+    private int cellAt(int y, int x, boolean transposed) {
+        return transposed ? x * columns + y : y * columns + x;
+    }
+}
@@ -0,0 +1,296 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class runs many Snake games side by side, for training and evaluating agents on the rules of SnakeEngine.
+ * Every call to step() takes one action per game and advances all of them; a game that ends reports it and starts
+ * again right away with a new seed, so the batch always holds envs running games.
+ *
+ * The observations of all games are kept in one direct byte buffer in native order, which other code can read
+ * without copying: game i owns the bytes from i * getCellCount(), one byte per cell, row by row, with EMPTY, BODY,
+ * HEAD or FOOD. A step rewrites only the few cells that changed. The rewards (+1 for food, -1 for crashing, 0 otherwise;
+ * the meal that fills the board ends the game with +1), done flags and scores are plain arrays indexed by game,
+ * overwritten by each step.
+ *
+ * The games are split into contiguous stripes that a ForkJoinPool steps in parallel. The stripe tasks are created
+ * once and reinitialized on every step, so stepping creates no objects. Game i of episode k is seeded with
+ * seed + k * envs + i, so a batch run is reproducible whatever the number of threads.
+ * For example: java SnakeBatch 4096 10 4 plays random actions in 4096 games for 10 seconds on 4 threads
+ * and prints the env-steps per second.
+ */
+public class SnakeBatch {
+    public static final byte EMPTY = 0;
+    public static final byte BODY = 1;
+    public static final byte HEAD = 2;
+    public static final byte FOOD = 3;
+    private static final String DIRECTIONS = "UDLR";
+
+    private final int envs;
+    private final int cells;
+    private final long seed;
+    private final SnakeEngine[] engines;
+    private final int[] episodes;
+    private final ByteBuffer observations;
+    private final float[] rewards;
+    private final boolean[] dones;
+    private final int[] finalScores;
+
+    private final ForkJoinPool pool;
+    private final Stripe[] stripes;
+    private final RecursiveAction stepAll;
+    private byte[] actions; // The actions of the step in progress.
+
+    private long totalSteps;
+    private long stepNanos;
+
+    /**
+     * The games from first (inclusive) to last (exclusive), stepped by one task.
+     */
+    private final class Stripe extends RecursiveAction {
+        private final int first;
+        private final int last;
+
+        Stripe(int first, int last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = first; i < last; i++) {
+                stepGame(i);
+            }
+        }
+    }
+
+    /**
+     * Constructor for the SnakeBatch class. Creates and resets every game.
+     * @param envs The number of games.
+     * @param columns The number of columns of each board.
+     * @param rows The number of rows of each board.
+     * @param seed The seed of the first game; the others follow from it.
+     * @param threads The number of threads to step with; 1 steps on the calling thread.
+     */
+    public SnakeBatch(int envs, int columns, int rows, long seed, int threads) {
+        this.envs = envs;
+        this.cells = columns * rows;
+        this.seed = seed;
+        engines = new SnakeEngine[envs];
+        for (int i = 0; i < envs; i++) {
+            engines[i] = new SnakeEngine(columns * SnakeEngine.TILE_SIZE, rows * SnakeEngine.TILE_SIZE, seed + i);
+        }
+        episodes = new int[envs];
+        observations = ByteBuffer.allocateDirect(envs * cells).order(ByteOrder.nativeOrder());
+        rewards = new float[envs];
+        dones = new boolean[envs];
+        finalScores = new int[envs];
+
+        int stripeCount = Math.max(1, Math.min(threads, envs));
+        stripes = new Stripe[stripeCount];
+        for (int s = 0; s < stripeCount; s++) {
+            stripes[s] = new Stripe((int) ((long) envs * s / stripeCount), (int) ((long) envs * (s + 1) / stripeCount));
+        }
+        pool = stripeCount > 1 ? new ForkJoinPool(stripeCount) : null;
+        stepAll = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                for (Stripe stripe : stripes) {
+                    stripe.reinitialize();
+                }
+                ForkJoinTask.invokeAll(stripes);
+            }
+        };
+        reset();
+    }
+
+    /**
+     * Starts every game again from its first episode and rewrites all observations.
+     */
+    public void reset() {
+        for (int i = 0; i < envs; i++) {
+            episodes[i] = 0;
+            engines[i].reset(seedOf(i));
+            rewards[i] = 0;
+            dones[i] = false;
+            finalScores[i] = 0;
+            writeObservation(i);
+        }
+    }
+
+    /**
+     * Advances every game by one tick.
+     * @param actions One action per game: 0 to 3 for up, down, left and right; anything else keeps the direction.
+     *                Read during the call only.
+     */
+    public void step(byte[] actions) {
+        if (actions.length < envs) {
+            throw new IllegalArgumentException("Expected " + envs + " actions, got " + actions.length);
+        }
+        long start = System.nanoTime();
+        this.actions = actions;
+        if (pool == null) {
+            stripes[0].compute();
+        } else {
+            stepAll.reinitialize();
+            pool.invoke(stepAll);
+        }
+        this.actions = null;
+        stepNanos += System.nanoTime() - start;
+        totalSteps += envs;
+    }
+
+    /**
+     * Steps one game and updates its observation, reward and done flag; restarts it if it ended.
+     */
+    private void stepGame(int i) {
+        SnakeEngine engine = engines[i];
+        int action = actions[i];
+        char direction = action >= 0 && action < 4 ? DIRECTIONS.charAt(action) : engine.getDirection();
+        int base = i * cells;
+        int oldHead = engine.getSnakeCell(0);
+        int oldTail = engine.getSnakeCell(engine.getSnakeLength() - 1);
+        int oldScore = engine.getScore();
+        if (!engine.step(direction)) {
+            rewards[i] = engine.getFreeCellCount() == 0 ? 1 : -1; // A full board is a win, not a crash.
+            dones[i] = true;
+            finalScores[i] = engine.getScore();
+            episodes[i]++;
+            engine.reset(seedOf(i));
+            writeObservation(i);
+            return;
+        }
+        rewards[i] = engine.getScore() > oldScore ? 1 : 0;
+        dones[i] = false;
+        // Only these cells change: the tail leaves (unless the snake grew), the old head becomes body,
+        // the new head arrives, and new food appears after a meal.
+        if (!engine.isOccupied(oldTail)) {
+            observations.put(base + oldTail, EMPTY);
+        }
+        observations.put(base + oldHead, BODY);
+        observations.put(base + engine.getSnakeCell(0), HEAD);
+        if (engine.getFoodCell() >= 0) {
+            observations.put(base + engine.getFoodCell(), FOOD);
+        }
+    }
+
+    /**
+     * Writes the whole observation of one game.
+     */
+    private void writeObservation(int i) {
+        SnakeEngine engine = engines[i];
+        int base = i * cells;
+        for (int cell = 0; cell < cells; cell++) {
+            observations.put(base + cell, engine.isOccupied(cell) ? BODY : EMPTY);
+        }
+        observations.put(base + engine.getSnakeCell(0), HEAD);
+        if (engine.getFoodCell() >= 0) {
+            observations.put(base + engine.getFoodCell(), FOOD);
+        }
+    }
+
+    private long seedOf(int i) {
+        return seed + (long) episodes[i] * envs + i;
+    }
+
+    /**
+     * Returns the observations of all games, envs * getCellCount() bytes in native order.
+     * The buffer is updated in place by every step; do not change it.
+     */
+    public ByteBuffer getObservations() {
+        return observations;
+    }
+
+    /**
+     * Returns the reward of each game in the last step.
+     */
+    public float[] getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Returns whether each game ended in the last step (its observation already shows the next game).
+     */
+    public boolean[] getDones() {
+        return dones;
+    }
+
+    /**
+     * Returns the score each game ended with, valid where getDones() is true.
+     */
+    public int[] getFinalScores() {
+        return finalScores;
+    }
+
+    /**
+     * Returns the game at an index, for reading its state; it must not be stepped directly.
+     */
+    public SnakeEngine getEngine(int i) {
+        return engines[i];
+    }
+
+    public int getEnvCount() {
+        return envs;
+    }
+
+    public int getCellCount() {
+        return cells;
+    }
+
+    /**
+     * Returns the number of single-game steps taken so far.
+     */
+    public long getTotalSteps() {
+        return totalSteps;
+    }
+
+    /**
+     * Returns the single-game steps per second over the time spent in step().
+     */
+    public double getStepsPerSecond() {
+        return stepNanos == 0 ? 0 : totalSteps / (stepNanos / 1e9);
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        int envs = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        SnakeBatch batch = new SnakeBatch(envs, 24, 24, 1, threads);
+        byte[] actions = new byte[envs];
+        int random = 0x9E3779B9;
+        long episodes = 0;
+        long scores = 0;
+        long end = System.nanoTime() + (long) (seconds * 1e9);
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < envs; i++) {
+                random ^= random << 13;
+                random ^= random >>> 17;
+                random ^= random << 5;
+                actions[i] = (byte) (random & 3);
+            }
+            batch.step(actions);
+            boolean[] dones = batch.getDones();
+            for (int i = 0; i < envs; i++) {
+                if (dones[i]) {
+                    episodes++;
+                    scores += batch.getFinalScores()[i];
+                }
+            }
+        }
+        batch.close();
+        System.out.printf("%d games on %d threads: %,d env-steps, %,.0f env-steps/sec, %,d episodes, average score %.1f%n",
+                envs, threads, batch.getTotalSteps(), batch.getStepsPerSecond(), episodes,
+                episodes == 0 ? 0.0 : (double) scores / episodes);
+    }
+}
@@ -0,0 +1,300 @@
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferStrategy;
+import java.util.Random;
+
+/**
+ * This class plays the Snake game with active rendering, as an alternative to SnakePanel.
+ * Instead of a Swing Timer on the Event Dispatch Thread, a dedicated loop thread runs the game:
+ * it advances the engine on a fixed time step, independent of the frame rate, and draws every frame itself
+ * into a BufferStrategy (a back buffer that is shown in one go), so nothing waits for Swing to repaint.
+ * Between two ticks the head and the tail slide from their previous cell toward the current one,
+ * so the snake moves smoothly even at a fast speed and a high frame rate. The picture is therefore one tick
+ * behind the game, which is the usual price of interpolation.
+ * The frame rate can be capped; without a cap the loop draws as fast as it can.
+ * The time between frames is recorded in a LatencyHistogram and shown in the top-right corner once a second.
+ * A FrameMonitor also measures every tick, draw and frame; start with -Dframes.export=directory to write its
+ * histograms as CSV when the canvas stops.
+ * Press P to let SnakeAutopilot steer; with a tick of 1 ms it plays at full speed, and its decision latency is shown too.
+ * The key listener only sets volatile fields; the engine is touched by the loop thread alone.
+ */
+public class SnakeCanvas extends Canvas implements Runnable {
+    private static final int TILE_SIZE = SnakeEngine.TILE_SIZE;
+    private static final int DEFAULT_WIDTH = 600;
+    private static final int DEFAULT_HEIGHT = 600;
+    private static final long MAX_FRAME_NANOS = 250_000_000L; // Longer stalls are not caught up tick by tick.
+
+    private static final Font SCORE_FONT = new Font("Arial", Font.BOLD, 16);
+    private static final Font PACE_FONT = new Font("Arial", Font.PLAIN, 12);
+
+    private final Random seeds = new Random();
+    private final SnakeEngine engine = new SnakeEngine(DEFAULT_WIDTH, DEFAULT_HEIGHT, seeds.nextInt());
+    private final SnakeRecorder recorder = new SnakeRecorder(engine);
+    private final long tickNanos;
+    private final long frameNanos; // 0 when the frame rate is not capped.
+
+    private volatile char nextDirection; // The direction of the last key pressed, passed to the next step.
+    private volatile boolean restartRequested;
+    private volatile boolean autopilotOn; // Toggled with P.
+    private volatile boolean running;
+    private Thread loop;
+
+    // Used by the loop thread only.
+    private SnakeSprites sprites;
+    private SnakeAutopilot autopilot; // Created when first turned on.
+    private int previousHead;
+    private int previousTail;
+    private final FrameMonitor frames;
+    private final LatencyHistogram recentFrames = new LatencyHistogram(); // The frames of the last second.
+    private long paceStart;
+    private int paceTicks;
+    private String paceText = "";
+    private int scoreShown;
+    private String scoreText = "Score: 0";
+
+    /**
+     * Constructor for the SnakeCanvas class.
+     * @param tickMillis The time step of the game in milliseconds; smaller is faster.
+     * @param maxFps The highest frame rate to draw at, or 0 for no cap.
+     */
+    public SnakeCanvas(int tickMillis, int maxFps) {
+        this.tickNanos = Math.max(1, tickMillis) * 1_000_000L;
+        this.frameNanos = maxFps > 0 ? 1_000_000_000L / maxFps : 0;
+        this.frames = new FrameMonitor("Snake Canvas", frameNanos);
+        this.autopilotOn = System.getProperty("snake.autopilot") != null;
+        setBackground(Color.BLACK);
+        setPreferredSize(new Dimension(DEFAULT_WIDTH, DEFAULT_HEIGHT));
+        setIgnoreRepaint(true); // Everything is drawn by the loop thread.
+        setFocusable(true);
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                int key = e.getKeyCode();
+                if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
+                    nextDirection = 'L';
+                } else if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
+                    nextDirection = 'R';
+                } else if (key == KeyEvent.VK_UP || key == KeyEvent.VK_W) {
+                    nextDirection = 'U';
+                } else if (key == KeyEvent.VK_DOWN || key == KeyEvent.VK_S) {
+                    nextDirection = 'D';
+                } else if (key == KeyEvent.VK_P) {
+                    autopilotOn = !autopilotOn;
+                } else if (key == KeyEvent.VK_ENTER) {
+                    restartRequested = true; // The loop restarts the game if it is over.
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates the buffers and starts the loop thread. The canvas must be showing.
+     */
+    public void start() {
+        if (running) return;
+        createBufferStrategy(2);
+        running = true;
+        loop = new Thread(this, "Snake loop");
+        loop.start();
+        requestFocusInWindow();
+    }
+
+    /**
+     * Stops the loop thread, waiting for the frame it is drawing, and exports the frame histograms
+     * if -Dframes.export is set.
+     */
+    public void stop() {
+        if (!running) return;
+        running = false;
+        try {
+            loop.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        frames.exportHistograms();
+    }
+
+    /**
+     * Starts a new game on the loop thread.
+     */
+    private void newGame() {
+        engine.reset(seeds.nextInt());
+        recorder.start();
+        nextDirection = engine.getDirection();
+        previousHead = engine.getSnakeCell(0);
+        previousTail = engine.getSnakeCell(engine.getSnakeLength() - 1);
+    }
+
+    /**
+     * Body of the loop thread.
+     * Each frame adds the time since the previous frame to a lag, runs as many fixed ticks as fit in it,
+     * and draws the state with the rest of the lag as the progress toward the next tick.
+     */
+    @Override
+    public void run() {
+        newGame();
+        long previous = System.nanoTime();
+        long lag = 0;
+        paceStart = previous;
+        while (running) {
+            long frameStart = System.nanoTime();
+            long elapsed = frameStart - previous;
+            previous = frameStart;
+            recentFrames.record(elapsed);
+
+            if (restartRequested) {
+                restartRequested = false;
+                if (!engine.isInGame()) {
+                    newGame();
+                    lag = 0;
+                }
+            }
+            lag += Math.min(elapsed, MAX_FRAME_NANOS);
+            while (lag >= tickNanos) {
+                lag -= tickNanos;
+                if (engine.isInGame()) {
+                    previousHead = engine.getSnakeCell(0);
+                    previousTail = engine.getSnakeCell(engine.getSnakeLength() - 1);
+                    frames.beginTick();
+                    recorder.step(autopilotOn ? autopilot().nextDirection() : nextDirection);
+                    frames.endTick();
+                    paceTicks++;
+                }
+            }
+            if (frameStart - paceStart >= 1_000_000_000L) {
+                double seconds = (frameStart - paceStart) / 1e9;
+                paceText = String.format("%.0f fps  p99 %.1f ms  %.0f ticks/s",
+                        recentFrames.getCount() / seconds, recentFrames.getPercentile(99) / 1e6, paceTicks / seconds);
+                if (autopilotOn) {
+                    paceText += String.format("  autopilot p99 %.1f us", autopilot().getDecisionTimes().getPercentile(99) / 1e3);
+                }
+                recentFrames.clear();
+                paceTicks = 0;
+                paceStart = frameStart;
+            }
+
+            render((double) lag / tickNanos);
+            waitForNextFrame(frameStart);
+        }
+    }
+
+    /**
+     * Returns the autopilot, creating it on first use. Start with -Dsnake.autopilot=hamiltonian to follow
+     * a Hamiltonian cycle instead of searching for the food.
+     */
+    private SnakeAutopilot autopilot() {
+        if (autopilot == null) {
+            autopilot = new SnakeAutopilot(engine, "hamiltonian".equalsIgnoreCase(System.getProperty("snake.autopilot")));
+        }
+        return autopilot;
+    }
+
+    /**
+     * Waits until the next frame is due under the frame cap.
+     * Sleeps while more than two milliseconds are left, since a sleep may overshoot by about a millisecond,
+     * and yields for the rest.
+     * @param frameStart The time the current frame started, from System.nanoTime().
+     */
+    private void waitForNextFrame(long frameStart) {
+        if (frameNanos == 0) {
+            Thread.yield();
+            return;
+        }
+        long deadline = frameStart + frameNanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > 2_000_000L) {
+                try {
+                    Thread.sleep((remaining - 1_000_000L) / 1_000_000L);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Draws one frame into the back buffer and shows it.
+     * The loops redraw the frame if the buffer's contents were lost, for example when the window was minimized.
+     * @param alpha The progress from the previous tick to the next one, from 0 to 1.
+     */
+    private void render(double alpha) {
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) return;
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                frames.beginPaint();
+                try {
+                    draw(g2d, alpha);
+                } finally {
+                    frames.endPaint();
+                    g2d.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync(); // Some platforms queue the drawing; flush it now to keep the pacing even.
+        frames.frameShown();
+    }
+
+    /**
+     * Draws the board, the score and the frame pacing, or the game over screen.
+     */
+    private void draw(Graphics2D g2d, double alpha) {
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(0, 0, getWidth(), getHeight());
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        if (engine.isInGame()) {
+            double scale = g2d.getTransform().getScaleX();
+            if (sprites == null || sprites.getScale() != scale) {
+                sprites = new SnakeSprites(TILE_SIZE, scale);
+            }
+            if (engine.getFoodCell() >= 0) {
+                sprites.drawFood(g2d, engine.getFoodX(), engine.getFoodY());
+            }
+            int length = engine.getSnakeLength();
+            for (int segment = 1; segment < length - 1; segment++) {
+                sprites.drawBody(g2d, engine.getSnakeX(segment), engine.getSnakeY(segment));
+            }
+            int tail = engine.getSnakeCell(length - 1);
+            sprites.drawBody(g2d, slide(previousTail, tail, alpha, true), slide(previousTail, tail, alpha, false));
+            // The head is drawn last here: it slides over the segment it has just left.
+            int head = engine.getSnakeCell(0);
+            sprites.drawHead(g2d, slide(previousHead, head, alpha, true), slide(previousHead, head, alpha, false),
+                    engine.getDirection());
+
+            g2d.setColor(Color.YELLOW);
+            g2d.setFont(SCORE_FONT);
+            if (scoreShown != engine.getScore()) {
+                scoreShown = engine.getScore();
+                scoreText = "Score: " + scoreShown;
+            }
+            g2d.drawString(scoreText, 10, 20);
+        } else {
+            SnakePanel.drawGameOver(g2d, getWidth(), getHeight(), engine.getScore());
+        }
+        g2d.setColor(Color.LIGHT_GRAY);
+        g2d.setFont(PACE_FONT);
+        g2d.drawString(paceText, getWidth() - g2d.getFontMetrics().stringWidth(paceText) - 10, 18);
+    }
+
+    /**
+     * Returns the pixel between two cells at the given progress.
+     * Cells that are not neighbours (the snake wrapped around the edge) are not blended: the new cell is used.
+     * @param from The cell before the tick.
+     * @param to The cell after the tick.
+     * @param alpha The progress from 0 to 1.
+     * @param x true for the x pixel, false for the y pixel.
+     */
+    private int slide(int from, int to, double alpha, boolean x) {
+        int columns = engine.getColumns();
+        int fromPixel = (x ? from % columns : from / columns) * TILE_SIZE;
+        int toPixel = (x ? to % columns : to / columns) * TILE_SIZE;
+        boolean neighbours = Math.abs(from % columns - to % columns) + Math.abs(from / columns - to / columns) == 1;
+        if (!neighbours) return toPixel;
+        return (int) Math.round(fromPixel + (toPixel - fromPixel) * alpha);
+    }
+}
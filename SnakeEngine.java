@@ -0,0 +1,384 @@
+import java.util.Arrays;
+
+/**
+ * This class holds the rules of the Snake game without any Swing code, so a game can be stepped headless.
+ * The snake lives on a grid of TILE_SIZE pixel cells. Cells are numbered row by row (row * columns + column);
+ * the getters also give pixel positions, as SnakePanel draws them.
+ * Each tick moves the snake one cell in the current direction (wrapping around the board edges),
+ * lets it eat the food and grow, and ends the game when the head runs into the body.
+ * The engine is deterministic: the food comes from one random generator seeded when the game starts, so the same seed
+ * and the same directions passed to step() give the same game in the GUI, in tools and in bulk simulations.
+ * The generator is the one of java.util.Random, written out so its state can be saved: saveState() and restoreState()
+ * capture a game exactly at any tick, which lets SnakeReplay seek without replaying from the start.
+ * SnakePanel calls step() once every TICK_MILLIS and draws the result; headless code can call it in a loop.
+ *
+ * The body is a ring buffer of cells: a tick writes the new head in front and, unless the snake grows, drops
+ * the tail at the back, so nothing is shifted. A bitset marks the cells the body covers, so a collision is one
+ * bit test. The cells the body does not cover are kept in a free list with the position of each cell in it, so a
+ * cell is added or removed by swapping with the last entry, and the food is placed by picking one random entry.
+ * The food therefore never lands on the snake, even on a nearly full board. A tick, including placing new food,
+ * costs the same however long the snake is and allocates nothing. The game ends when the snake fills the board.
+ */
+public class SnakeEngine {
+    public static final int TILE_SIZE = 25;
+    public static final int TICK_MILLIS = 140; // The fixed time step of the game in the GUI.
+    private static final int START_LENGTH = 5;
+
+    private final int boardWidth;
+    private final int boardHeight;
+    private final int columns;
+    private final int rows;
+    private final int[] body;       // Ring buffer of body cells; the head is at index head.
+    private final int mask;         // body.length - 1; the length is a power of two.
+    private final long[] occupied;  // One bit per cell, set while the body covers it.
+    private final int[] freeCells;  // The cells the body does not cover, in no particular order.
+    private final int[] freeIndex;  // The position of each cell in freeCells, or -1 while the body covers it.
+    private int freeCount;
+    private int head;
+    private int snakeLength;
+    private long random; // The 48-bit state of the generator, as in java.util.Random.
+    private long seed;
+    private int ticks;
+
+    private int food;
+    private char direction;
+    private boolean inGame;
+    private int score;
+
+    /**
+     * Constructor for the SnakeEngine class.
+     * @param boardWidth The width of the board in pixels, a multiple of TILE_SIZE.
+     * @param boardHeight The height of the board in pixels, a multiple of TILE_SIZE.
+     * @param seed The seed of the first game.
+     */
+    public SnakeEngine(int boardWidth, int boardHeight, long seed) {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.columns = boardWidth / TILE_SIZE;
+        this.rows = boardHeight / TILE_SIZE;
+        int cells = columns * rows;
+        body = new int[Integer.highestOneBit(Math.max(1, cells - 1)) << 1];
+        mask = body.length - 1;
+        occupied = new long[(cells + 63) >>> 6];
+        freeCells = new int[cells];
+        freeIndex = new int[cells];
+        reset(seed);
+    }
+
+    /**
+     * Starts a new game: a short snake heading right, a score of 0 and fresh food.
+     * @param seed The seed for the food positions; the same seed and moves always give the same game.
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        random = (seed ^ 0x5DEECE66DL) & ((1L << 48) - 1);
+        ticks = 0;
+        score = 0;
+        direction = 'R';
+        inGame = true;
+        Arrays.fill(occupied, 0);
+        freeCount = freeCells.length;
+        for (int cell = 0; cell < freeCount; cell++) {
+            freeCells[cell] = cell;
+            freeIndex[cell] = cell;
+        }
+        // Initialize snake starting position: row 4, heading right from column 4 to column 0.
+        snakeLength = START_LENGTH;
+        head = START_LENGTH - 1;
+        for (int i = 0; i < START_LENGTH; i++) {
+            int cell = 4 * columns + (4 - i);
+            body[(head - i) & mask] = cell;
+            cover(cell);
+        }
+        locateFood();
+    }
+
+    /**
+     * Advances the game by one tick in the given direction.
+     * This is the only input of the game: turning and moving happen together, so a game is fully described by
+     * its seed and the direction passed to each step. A direction that would reverse the snake is ignored.
+     * @param newDirection The direction for this tick: 'U', 'D', 'L' or 'R'.
+     * @return true if the game is still running after the tick.
+     */
+    public boolean step(char newDirection) {
+        turn(newDirection);
+        return tick();
+    }
+
+    /**
+     * Advances the game by one tick in the current direction.
+     * The head moves into the next cell; the snake grows if that cell has the food, and otherwise the tail
+     * leaves its cell. The game ends if the head lands on the body, so the head may follow the tail closely.
+     * Does nothing once the game is over.
+     * @return true if the game is still running after the tick.
+     */
+    public boolean tick() {
+        if (inGame) {
+            ticks++;
+            int next = nextCell(body[head]);
+            boolean grows = next == food;
+            if (!grows) {
+                uncover(body[(head - snakeLength + 1) & mask]);
+            }
+            // The head hits the body if its cell is still covered once the tail has moved.
+            if (isOccupied(next)) {
+                inGame = false;
+            } else {
+                cover(next);
+            }
+            head = (head + 1) & mask;
+            body[head] = next;
+            if (grows) {
+                snakeLength++;
+                score += 10;
+                locateFood();
+            }
+        }
+        return inGame;
+    }
+
+    /**
+     * Returns the cell next to the given one in the current direction, wrapping around the board edges.
+     */
+    private int nextCell(int cell) {
+        int column = cell % columns;
+        int row = cell / columns;
+        switch (direction) {
+            case 'R': column = (column == columns - 1) ? 0 : column + 1; break;
+            case 'L': column = (column == 0) ? columns - 1 : column - 1; break;
+            case 'U': row = (row == 0) ? rows - 1 : row - 1; break;
+            case 'D': row = (row == rows - 1) ? 0 : row + 1; break;
+        }
+        return row * columns + column;
+    }
+
+    /**
+     * Marks a cell as covered by the body: sets its bit and swaps it out of the free list.
+     */
+    private void cover(int cell) {
+        occupied[cell >>> 6] |= 1L << cell;
+        int index = freeIndex[cell];
+        int last = freeCells[--freeCount];
+        freeCells[index] = last;
+        freeIndex[last] = index;
+        freeIndex[cell] = -1;
+    }
+
+    /**
+     * Marks a cell as no longer covered by the body: clears its bit and appends it to the free list.
+     */
+    private void uncover(int cell) {
+        occupied[cell >>> 6] &= ~(1L << cell);
+        freeCells[freeCount] = cell;
+        freeIndex[cell] = freeCount++;
+    }
+
+    /**
+     * Randomly locates the food in a cell the snake does not cover.
+     * If the snake covers the whole board there is nowhere left to go, and the game ends.
+     */
+    private void locateFood() {
+        if (freeCount == 0) {
+            food = -1;
+            inGame = false;
+            return;
+        }
+        food = freeCells[nextInt(freeCount)];
+    }
+
+    /**
+     * Returns a random number from 0 up to bound, exactly as java.util.Random.nextInt(bound) would.
+     */
+    private int nextInt(int bound) {
+        int r = next31();
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return (int) ((bound * (long) r) >> 31);
+        }
+        for (int u = r; u - (r = u % bound) + m < 0; u = next31()) {
+            // Rejected a value from the uneven top of the range; draw again.
+        }
+        return r;
+    }
+
+    private int next31() {
+        random = (random * 0x5DEECE66DL + 0xBL) & ((1L << 48) - 1);
+        return (int) (random >>> 17);
+    }
+
+    /**
+     * Returns the whole state of the game as numbers, for restoreState(): the board size, seed, generator, counters,
+     * direction, food, the body from tail to head and the free list in its current order.
+     * The free list is included because its order decides where the next food lands.
+     */
+    public int[] saveState() {
+        int[] state = new int[12 + snakeLength + freeCount];
+        state[0] = columns;
+        state[1] = rows;
+        state[2] = (int) (seed >>> 32);
+        state[3] = (int) seed;
+        state[4] = (int) (random >>> 32);
+        state[5] = (int) random;
+        state[6] = ticks;
+        state[7] = score;
+        state[8] = (direction << 1) | (inGame ? 1 : 0);
+        state[9] = food;
+        state[10] = snakeLength;
+        state[11] = freeCount;
+        int n = 12;
+        for (int i = snakeLength - 1; i >= 0; i--) {
+            state[n++] = getSnakeCell(i);
+        }
+        System.arraycopy(freeCells, 0, state, n, freeCount);
+        return state;
+    }
+
+    /**
+     * Puts the game back in a state returned by saveState() on an engine with the same board size.
+     * @param state The saved state.
+     */
+    public void restoreState(int[] state) {
+        if (state[0] != columns || state[1] != rows) {
+            throw new IllegalArgumentException("State of a " + state[0] + "x" + state[1] + " board, not " + columns + "x" + rows);
+        }
+        seed = ((long) state[2] << 32) | (state[3] & 0xFFFFFFFFL);
+        random = ((long) state[4] << 32) | (state[5] & 0xFFFFFFFFL);
+        ticks = state[6];
+        score = state[7];
+        direction = (char) (state[8] >>> 1);
+        inGame = (state[8] & 1) != 0;
+        food = state[9];
+        snakeLength = state[10];
+        freeCount = state[11];
+        Arrays.fill(occupied, 0);
+        int n = 12;
+        head = snakeLength - 1;
+        for (int i = 0; i < snakeLength; i++) {
+            int cell = state[n++];
+            body[i] = cell;
+            occupied[cell >>> 6] |= 1L << cell;
+        }
+        Arrays.fill(freeIndex, -1);
+        for (int i = 0; i < freeCount; i++) {
+            int cell = state[n++];
+            freeCells[i] = cell;
+            freeIndex[cell] = i;
+        }
+    }
+
+    /**
+     * Turns the snake, unless the new direction would reverse it onto its own neck.
+     * Anything other than 'U', 'D', 'L' or 'R' keeps the current direction.
+     * @param newDirection The new direction: 'U', 'D', 'L' or 'R'.
+     */
+    public void turn(char newDirection) {
+        boolean reverse = (newDirection == 'L' && direction == 'R') || (newDirection == 'R' && direction == 'L')
+                || (newDirection == 'U' && direction == 'D') || (newDirection == 'D' && direction == 'U');
+        boolean valid = newDirection == 'U' || newDirection == 'D' || newDirection == 'L' || newDirection == 'R';
+        if (valid && !reverse) {
+            direction = newDirection;
+        }
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHeight() {
+        return boardHeight;
+    }
+
+    /**
+     * Returns the number of cell columns of the board.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of cell rows of the board.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    public int getSnakeLength() {
+        return snakeLength;
+    }
+
+    /**
+     * Returns the cell of a body segment; segment 0 is the head.
+     */
+    public int getSnakeCell(int segment) {
+        return body[(head - segment) & mask];
+    }
+
+    /**
+     * Returns the x pixel of a body segment; segment 0 is the head.
+     */
+    public int getSnakeX(int segment) {
+        return (getSnakeCell(segment) % columns) * TILE_SIZE;
+    }
+
+    /**
+     * Returns the y pixel of a body segment; segment 0 is the head.
+     */
+    public int getSnakeY(int segment) {
+        return (getSnakeCell(segment) / columns) * TILE_SIZE;
+    }
+
+    /**
+     * Returns true if the snake's body covers the cell.
+     */
+    public boolean isOccupied(int cell) {
+        return (occupied[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Returns the number of cells the snake does not cover.
+     */
+    public int getFreeCellCount() {
+        return freeCount;
+    }
+
+    /**
+     * Returns the cell of the food, or -1 once the snake fills the board.
+     */
+    public int getFoodCell() {
+        return food;
+    }
+
+    public int getFoodX() {
+        return (food % columns) * TILE_SIZE;
+    }
+
+    public int getFoodY() {
+        return (food / columns) * TILE_SIZE;
+    }
+
+    public char getDirection() {
+        return direction;
+    }
+
+    public boolean isInGame() {
+        return inGame;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the seed the current game was started with.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of ticks played in the current game.
+     */
+    public int getTicks() {
+        return ticks;
+    }
+}
@@ -4,20 +4,48 @@ import java.awt.event.*;
 /*
  * This class creates a JFrame for the Snake game.
  * It sets the title, size, and default close operation.
+ * Start with -Dsnake.active=true to play on a SnakeCanvas (active rendering) instead of a SnakePanel;
+ * -Dsnake.tickMillis sets its speed and -Dsnake.fps caps its frame rate (0 for no cap).
+ * Start with -Dsnake.world=COLUMNSxROWS (for example 4096x4096) to play in a huge world on a SnakeWorldPanel;
+ * -Dsnake.food sets the number of pieces of food, by default one per 512 cells.
+ * Start with -Dsnake.arena=SNAKES (for example 500) to play among that many AI snakes on a SnakeArenaPanel;
+ * -Dsnake.tickMillis sets its speed.
  */
 public class SnakeFrame extends JFrame {
+    private SnakeCanvas canvas; // Only in active rendering mode.
+
     public SnakeFrame() {
         setTitle("Snake");
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setSize(625, 650);
         setLocationRelativeTo(null);
         setResizable(false);
-        add(new SnakePanel());
+        String worldSize = System.getProperty("snake.world");
+        Integer arenaSnakes = Integer.getInteger("snake.arena");
+        if (arenaSnakes != null) {
+            add(new SnakeArenaPanel(arenaSnakes, Integer.getInteger("snake.tickMillis", SnakeEngine.TICK_MILLIS)));
+        } else if (worldSize != null) {
+            String[] size = worldSize.toLowerCase().split("x");
+            int columns = Integer.parseInt(size[0].trim());
+            int rows = Integer.parseInt(size[size.length - 1].trim());
+            int food = Integer.getInteger("snake.food", (int) Math.max(1, (long) columns * rows / 512));
+            add(new SnakeWorldPanel(columns, rows, food));
+        } else if (Boolean.getBoolean("snake.active")) {
+            canvas = new SnakeCanvas(Integer.getInteger("snake.tickMillis", SnakeEngine.TICK_MILLIS),
+                    Integer.getInteger("snake.fps", 60));
+            add(canvas);
+        } else {
+            add(new SnakePanel());
+        }
         
         // When this window is closed, reopen the Game Launcher.
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
+                // Stop the loop thread before the window and its buffers are disposed.
+                if (canvas != null) {
+                    canvas.stop();
+                }
                 // Show GameLauncher when SnakeFrame is closing.
                 new GameLauncher().setVisible(true);
             }
@@ -25,5 +53,8 @@ public class SnakeFrame extends JFrame {
         });
         
         setVisible(true);
+        if (canvas != null) {
+            canvas.start();
+        }
     }
 }
\ No newline at end of file
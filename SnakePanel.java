@@ -13,29 +13,61 @@ import java.util.Random;
  * while the body is white.
  * The food is represented by a red circle.
  * When the snake reaches the end of the board, it wraps around to the other side.
+ * The game rules live in SnakeEngine; this panel only turns key presses into the direction for the next step,
+ * calls the engine once per fixed time step and draws its state.
+ * Drawing uses sprites rendered once by SnakeSprites, and each tick repaints only the cells that changed.
+ * Every finished game, with its seed and turns, is appended to the game log by SnakeRecorder, so it can be replayed exactly.
+ * SnakeCanvas plays the same game with active rendering instead.
+ * Press P to let SnakeAutopilot steer; the latency of its decisions is shown under the score, also on the game over screen.
+ * Press F3 (or start with -Dsnake.overlay=true) to show how long ticks and paints take, the frame jitter and the
+ * input latency, measured by a FrameMonitor that also records them as Flight Recorder events.
+ * Press R after a game over to watch its replay in a SnakeReplayViewer, which plays a SnakeReplay on a SnakePanel
+ * of its own: there the timer plays the recorded game at any speed instead of taking keys.
  */
 public class SnakePanel extends JPanel implements ActionListener {
-    private final int TILE_SIZE = 25;
+    private final int TILE_SIZE = SnakeEngine.TILE_SIZE;
     private final int DEFAULT_WIDTH = 600;
     private final int DEFAULT_HEIGHT = 600;
 
-    private final int[] snakeX = new int[(DEFAULT_WIDTH * DEFAULT_HEIGHT) / (TILE_SIZE * TILE_SIZE)];
-    private final int[] snakeY = new int[(DEFAULT_WIDTH * DEFAULT_HEIGHT) / (TILE_SIZE * TILE_SIZE)];
-    private int snakeLength = 5;
+    private final Random seeds = new Random();
+    private static final Font SCORE_FONT = new Font("Arial", Font.BOLD, 16);
+    private static final Font GAME_OVER_FONT = new Font("Arial", Font.BOLD, 36);
+    private static final Font FINAL_SCORE_FONT = new Font("Arial", Font.BOLD, 24);
+    private static final Font RESTART_FONT = new Font("Arial", Font.BOLD, 18);
+    private static final Font AUTOPILOT_FONT = new Font("Arial", Font.PLAIN, 12);
+    private static final Rectangle SCORE_AREA = new Rectangle(0, 0, 160, 28); // Where the score is drawn.
+    private static final Rectangle AUTOPILOT_AREA = new Rectangle(0, 28, 320, 18); // Where the autopilot's latency is drawn.
+    private static final int REPLAY_FRAME_MILLIS = 15;
+    private static final Rectangle OVERLAY_AREA = new Rectangle(600 - FrameMonitor.OVERLAY_WIDTH, 0,
+            FrameMonitor.OVERLAY_WIDTH, FrameMonitor.OVERLAY_HEIGHT); // Where the frame monitor is drawn.
 
-    private int foodX;
-    private int foodY;
-    private char direction = 'R';
-    private boolean inGame = true;
+    private final SnakeEngine engine = new SnakeEngine(DEFAULT_WIDTH, DEFAULT_HEIGHT, seeds.nextInt());
     private Timer timer;
-    private int score = 0;
+    private char nextDirection; // The direction of the last key pressed, passed to the next step.
+    private SnakeSprites sprites; // Rendered on the first paint, at the scale of the screen.
+    private int scoreShown;
+    private String scoreText = "Score: 0";
+
+    private final SnakeRecorder recorder = new SnakeRecorder(engine); // Logs each game with its seed and turns.
+    private SnakeAutopilot autopilot; // Steers the snake while not null; toggled with P.
+    private final FrameMonitor frames = new FrameMonitor("Snake", SnakeEngine.TICK_MILLIS * 1_000_000L);
+    private boolean overlayShown = Boolean.getBoolean("snake.overlay"); // Toggled with F3.
+
+    // Replay mode only.
+    private final SnakeReplay replay;
+    private double replaySpeed = 1;
+    private boolean replayPaused = true;
+    private double ticksOwed;      // Fractions of a tick not yet played at the current speed.
+    private long lastReplayFrame;  // System.nanoTime() of the last replay frame.
+    private Runnable replayListener;
 
     /**
      * Constructor for the SnakePanel class.
      * Sets up the panel with a black background and initializes the game.
-     * Adds key and mouse listeners for user input.
+     * Adds a key listener for user input.
      */
     public SnakePanel() {
+        this.replay = null;
         setBackground(Color.BLACK);
         setPreferredSize(new Dimension(DEFAULT_WIDTH, DEFAULT_HEIGHT));
         setFocusable(true);
@@ -43,17 +75,33 @@ public class SnakePanel extends JPanel implements ActionListener {
             @Override
             public void keyPressed(KeyEvent e) {
                 int key = e.getKeyCode();
-                // If game is active, update direction normally.
-                if (inGame) {
-                    if ((key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) && direction != 'R'){
-                        direction = 'L';
-                    } else if ((key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) && direction != 'L'){
-                        direction = 'R';
-                    } else if ((key == KeyEvent.VK_UP || key == KeyEvent.VK_W) && direction != 'D'){
-                        direction = 'U';
-                    } else if ((key == KeyEvent.VK_DOWN || key == KeyEvent.VK_S) && direction != 'U'){
-                        direction = 'D';
+                if (key == KeyEvent.VK_P) {
+                    toggleAutopilot();
+                    return;
+                }
+                if (key == KeyEvent.VK_F3) {
+                    overlayShown = !overlayShown;
+                    repaint(OVERLAY_AREA);
+                    return;
+                }
+                if (key == KeyEvent.VK_R && !engine.isInGame() && recorder.getReplay() != null) {
+                    new SnakeReplayViewer(recorder.getReplay()).setVisible(true);
+                    return;
+                }
+                // If game is active, the key sets the direction for the next step.
+                if (engine.isInGame()) {
+                    if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A){
+                        nextDirection = 'L';
+                    } else if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D){
+                        nextDirection = 'R';
+                    } else if (key == KeyEvent.VK_UP || key == KeyEvent.VK_W){
+                        nextDirection = 'U';
+                    } else if (key == KeyEvent.VK_DOWN || key == KeyEvent.VK_S){
+                        nextDirection = 'D';
+                    } else {
+                        return;
                     }
+                    frames.inputReceived();
                 } else {
                     // When game over, press Enter to restart.
                     if (key == KeyEvent.VK_ENTER) {
@@ -63,17 +111,149 @@ public class SnakePanel extends JPanel implements ActionListener {
             }
         });
 
-        // Temporary mouse click listener to output click coordinates
-    addMouseListener(new MouseAdapter(){
-        @Override
-        public void mouseClicked(MouseEvent e){
-            System.out.println("Mouse clicked at: (" + e.getX() + ", " + e.getY() + ")");
+        if (System.getProperty("snake.autopilot") != null) {
+            toggleAutopilot();
         }
-    });
-
         initGame();
     }
 
+    /**
+     * Constructor for a SnakePanel that plays back a recorded game instead of taking keys.
+     * It starts paused on the first tick; the controls are the replay methods below.
+     * @param replay The game to play back, recorded on a board of this panel's size.
+     */
+    public SnakePanel(SnakeReplay replay) {
+        if (replay.getColumns() != engine.getColumns() || replay.getRows() != engine.getRows()) {
+            throw new IllegalArgumentException("The replay is of a " + replay.getColumns() + " x " + replay.getRows()
+                    + " board, not " + engine.getColumns() + " x " + engine.getRows());
+        }
+        this.replay = replay;
+        setBackground(Color.BLACK);
+        setPreferredSize(new Dimension(DEFAULT_WIDTH, DEFAULT_HEIGHT));
+        timer = new Timer(REPLAY_FRAME_MILLIS, this);
+        replay.seek(engine, 0);
+    }
+
+    /**
+     * Shows the recorded game as it was on a tick.
+     * @param tick The tick, clamped to the length of the game.
+     */
+    public void seekReplay(int tick) {
+        ticksOwed = 0;
+        replay.seek(engine, tick);
+        repaint();
+        fireReplayChanged();
+    }
+
+    /**
+     * Sets how fast the replay plays, as a multiple of the normal speed of the game.
+     */
+    public void setReplaySpeed(double speed) {
+        replaySpeed = speed;
+    }
+
+    /**
+     * Pauses or resumes the replay. Resuming at the end of the game starts it again from the first tick.
+     */
+    public void setReplayPaused(boolean paused) {
+        if (paused == replayPaused) return;
+        replayPaused = paused;
+        if (paused) {
+            timer.stop();
+        } else {
+            if (isReplayAtEnd()) {
+                seekReplay(0);
+            }
+            ticksOwed = 0;
+            lastReplayFrame = System.nanoTime();
+            timer.start();
+        }
+        fireReplayChanged();
+    }
+
+    public boolean isReplayPaused() {
+        return replayPaused;
+    }
+
+    /**
+     * Returns the tick the replay is showing.
+     */
+    public int getReplayTick() {
+        return engine.getTicks();
+    }
+
+    /**
+     * Returns the score at the tick the replay is showing.
+     */
+    public int getReplayScore() {
+        return engine.getScore();
+    }
+
+    /**
+     * Sets the code run on the event dispatch thread after the replay moves, pauses or resumes.
+     */
+    public void setReplayListener(Runnable listener) {
+        replayListener = listener;
+    }
+
+    private boolean isReplayAtEnd() {
+        return !engine.isInGame() || engine.getTicks() >= replay.getTicks();
+    }
+
+    private void fireReplayChanged() {
+        if (replayListener != null) {
+            replayListener.run();
+        }
+    }
+
+    /**
+     * Plays the ticks owed since the last frame at the replay speed, then repaints the whole board,
+     * since at high speeds most of it changes between frames. Pauses at the end of the game.
+     */
+    private void replayFrame() {
+        long now = System.nanoTime();
+        ticksOwed += replaySpeed * (now - lastReplayFrame) / (SnakeEngine.TICK_MILLIS * 1e6);
+        lastReplayFrame = now;
+        int ticks = (int) Math.min(ticksOwed, replay.getTicks());
+        if (ticks > 0) {
+            ticksOwed -= ticks;
+            replay.seek(engine, engine.getTicks() + ticks);
+            repaint();
+            fireReplayChanged();
+        }
+        if (isReplayAtEnd()) {
+            setReplayPaused(true);
+        }
+    }
+
+    /**
+     * Stops the timer when the panel leaves its window, so a closed game or replay does not keep running.
+     * Exports the frame histograms if -Dframes.export is set.
+     */
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        if (timer != null) {
+            timer.stop();
+        }
+        if (replay == null) {
+            frames.exportHistograms();
+        }
+    }
+
+    /**
+     * Turns the autopilot on or off. Start with -Dsnake.autopilot=hamiltonian to follow a Hamiltonian cycle
+     * instead of searching for the food.
+     */
+    private void toggleAutopilot() {
+        if (autopilot == null) {
+            autopilot = new SnakeAutopilot(engine, "hamiltonian".equalsIgnoreCase(System.getProperty("snake.autopilot")));
+        } else {
+            autopilot = null;
+        }
+        repaint(AUTOPILOT_AREA);
+    }
+
     /**
      * Returns the width of the game board.
      * If the width is less than or equal to 0, returns the default width.
@@ -109,41 +289,16 @@ public class SnakePanel extends JPanel implements ActionListener {
      * Resets the game timer and starts the game loop.
      */
     private void initGame(){
-        snakeLength = 5;
-        score = 0;
-        direction = 'R';
-        inGame = true;
-        // Initialize snake starting position
-        for (int i = 0; i < snakeLength; i++) {
-            snakeX[i] = 100 - i * TILE_SIZE;
-            snakeY[i] = 100;
-        }
-        locateFood();
+        engine.reset(seeds.nextInt());
+        nextDirection = engine.getDirection();
+        recorder.start();
+        frames.framesPaused(); // The time on the game over screen is not a frame interval.
         if (timer != null) {
             timer.stop();
         }
-        timer = new Timer(140, this);
+        timer = new Timer(SnakeEngine.TICK_MILLIS, this);
         timer.start();
-    }
-
-    /**
-     * Randomly locates the food within the game board.
-     * The food will spawn in a grid that matches the snake's movement.
-     * The food's position is calculated based on the board dimensions and tile size.
-     */
-    private void locateFood(){
-        Random rand = new Random();
-        // Use fixed preferred size so the food grid exactly matches the snake.
-        Dimension dim = getPreferredSize();
-        int boardWidth = (int) dim.getWidth();   
-        int boardHeight = (int) dim.getHeight();  
-        // Calculate grid dimensions based on TILE_SIZE.
-        int gridX = boardWidth / TILE_SIZE;      
-        int gridY = boardHeight / TILE_SIZE;    
-        
-        // The apple will now spawn exactly in a cell that fits entirely in the board.
-        foodX = rand.nextInt(gridX) * TILE_SIZE;
-        foodY = rand.nextInt(gridY) * TILE_SIZE;
+        repaint();
     }
 
     /**
@@ -151,248 +306,207 @@ public class SnakePanel extends JPanel implements ActionListener {
      * The snake is drawn with a green head and white body, while the food is red.
      * The score is displayed in the top-left corner.
      * If the game is over, a "Game Over" message is displayed.
+     * Only the cells inside the clip are drawn, from pre-rendered sprites, so painting a few changed cells
+     * costs the same however long the snake is.
+     * A replay shows the board until its last tick.
      * @param g The Graphics object used for painting.
      */
     @Override
     public void paintComponent(Graphics g) {
+        frames.beginPaint();
         super.paintComponent(g);
-        if (inGame) {
+        if (engine.isInGame() || replay != null) {
             Graphics2D g2d = (Graphics2D) g;
-            // Draw food with an outline
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2d.setColor(Color.RED);
-            g2d.fillOval(foodX, foodY, TILE_SIZE, TILE_SIZE);
-            g2d.setColor(Color.DARK_GRAY);
-            g2d.drawOval(foodX, foodY, TILE_SIZE, TILE_SIZE);
-            
-            // Draw snake
-            for (int i = 0; i < snakeLength; i++) {
-                if (i == 0) {
-                    // Head: green fill with dark outline and eyes.
-                    g2d.setColor(Color.GREEN);
-                    g2d.fillRect(snakeX[i], snakeY[i], TILE_SIZE, TILE_SIZE);
-                    g2d.setColor(Color.DARK_GRAY);
-                    g2d.drawRect(snakeX[i], snakeY[i], TILE_SIZE, TILE_SIZE);
-                    drawEyes(g2d, snakeX[i], snakeY[i], direction);
-                } else {
-                    // Body: white fill with gray outline.
-                    g2d.setColor(Color.WHITE);
-                    g2d.fillRect(snakeX[i], snakeY[i], TILE_SIZE, TILE_SIZE);
-                    g2d.setColor(Color.GRAY);
-                    g2d.drawRect(snakeX[i], snakeY[i], TILE_SIZE, TILE_SIZE);
+            double scale = g2d.getTransform().getScaleX();
+            if (sprites == null || sprites.getScale() != scale) {
+                sprites = new SnakeSprites(TILE_SIZE, scale); // First paint, or moved to a screen with another scale.
+            }
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            }
+            // The cells whose sprites, margins included, reach into the clip.
+            int margin = SnakeSprites.MARGIN;
+            int firstColumn = Math.max(0, Math.floorDiv(clip.x - margin, TILE_SIZE));
+            int lastColumn = Math.min(engine.getColumns() - 1, (clip.x + clip.width + margin) / TILE_SIZE);
+            int firstRow = Math.max(0, Math.floorDiv(clip.y - margin, TILE_SIZE));
+            int lastRow = Math.min(engine.getRows() - 1, (clip.y + clip.height + margin) / TILE_SIZE);
+
+            int food = engine.getFoodCell();
+            int head = engine.getSnakeCell(0);
+            if (inRange(food, firstColumn, lastColumn, firstRow, lastRow)) {
+                sprites.drawFood(g2d, engine.getFoodX(), engine.getFoodY());
+            }
+            if (inRange(head, firstColumn, lastColumn, firstRow, lastRow)) {
+                sprites.drawHead(g2d, engine.getSnakeX(0), engine.getSnakeY(0), engine.getDirection());
+            }
+            // Body segments are drawn after the head, as before, so they cover its tongue.
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    int cell = row * engine.getColumns() + column;
+                    if (cell != head && engine.isOccupied(cell)) {
+                        sprites.drawBody(g2d, column * TILE_SIZE, row * TILE_SIZE);
+                    }
                 }
             }
             // Draw score in the top-left corner.
-            g2d.setColor(Color.YELLOW);
-            g2d.setFont(new Font("Arial", Font.BOLD, 16));
-            g2d.drawString("Score: " + score, 10, 20);
+            if (clip.intersects(SCORE_AREA)) {
+                if (scoreShown != engine.getScore()) {
+                    scoreShown = engine.getScore();
+                    scoreText = "Score: " + scoreShown;
+                }
+                g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g2d.setColor(Color.YELLOW);
+                g2d.setFont(SCORE_FONT);
+                g2d.drawString(scoreText, 10, 20);
+            }
+            if (autopilot != null && clip.intersects(AUTOPILOT_AREA)) {
+                drawAutopilotTimes(g2d);
+            }
+            frames.endPaint();
+            // Drawn after the paint is measured, so the overlay does not count itself.
+            if (overlayShown && clip.intersects(OVERLAY_AREA)) {
+                frames.drawOverlay(g2d, OVERLAY_AREA.x, OVERLAY_AREA.y);
+            }
+            return;
         } else {
-            gameOver(g);
+            drawGameOver(g, getBoardWidth(), getBoardHeight(), engine.getScore());
+            if (autopilot != null) {
+                drawAutopilotTimes(g); // The figures of the whole game stay readable on the game over screen.
+            }
+            if (recorder.getReplay() != null) {
+                String replayMsg = "Press R to Watch the Replay";
+                g.setFont(RESTART_FONT);
+                g.setColor(Color.LIGHT_GRAY);
+                g.drawString(replayMsg, (getBoardWidth() - g.getFontMetrics().stringWidth(replayMsg)) / 2,
+                        getBoardHeight() / 2 + 80);
+            }
         }
+        frames.endPaint();
     }
-    
+
     /**
-     * Draws the snake's eyes and tongue based on its direction.
-     * The eyes and the tongue is drawn in a different position based on the direction.
-     * @param g2d The Graphics2D object used for drawing.
-     * @param x The x-coordinate of the snake's head.
-     * @param y The y-coordinate of the snake's head.
-     * @param direction The current direction of the snake.
+     * Draws the autopilot's decision latency under the score.
      */
-    private void drawEyes(Graphics2D g2d, int x, int y, char direction) {
-        // Set parameters for larger, cuter eyes.
-        int eyeSize = 10;       // Bigger eye size
-        int offset = 3;         // Offset from the head border
-        int pupilSize = 6;      // Bigger pupil
-        int pupilOffset = 2;    // Offset for pupil within eye
+    private void drawAutopilotTimes(Graphics g) {
+        LatencyHistogram times = autopilot.getDecisionTimes();
+        g.setColor(Color.LIGHT_GRAY);
+        g.setFont(AUTOPILOT_FONT);
+        g.drawString(String.format("Autopilot: p50 %.1f us, p99 %.1f us, max %.1f us", times.getPercentile(50) / 1e3,
+                times.getPercentile(99) / 1e3, times.getMax() / 1e3), 10, 40);
+    }
 
-        // Calculate initial eye coordinates (top-left corner of each eye)
-        int eyeX1 = x + offset;
-        int eyeY1 = y + offset;
-        int eyeX2 = x + TILE_SIZE - offset - eyeSize;
-        int eyeY2 = y + offset;
+    /**
+     * Returns true if the cell lies within the given columns and rows.
+     */
+    private boolean inRange(int cell, int firstColumn, int lastColumn, int firstRow, int lastRow) {
+        if (cell < 0) return false;
+        int column = cell % engine.getColumns();
+        int row = cell / engine.getColumns();
+        return column >= firstColumn && column <= lastColumn && row >= firstRow && row <= lastRow;
+    }
 
-        // Adjust positions based on snake's direction.
-        switch(direction) {
-            case 'U':
-                // Eyes remain at top.
-                break;
-            case 'D':
-                // Move eyes to the bottom of the head.
-                eyeY1 = y + TILE_SIZE - offset - eyeSize;
-                eyeY2 = y + TILE_SIZE - offset - eyeSize;
-                break;
-            case 'L':
-                // Move eyes to the left side.
-                eyeX1 = x + offset;
-                eyeX2 = x + offset;
-                break;
-            case 'R':
-                // Move eyes to the right side.
-                eyeX1 = x + TILE_SIZE - offset - eyeSize;
-                eyeX2 = x + TILE_SIZE - offset - eyeSize;
-                break;
-        }
-        
-        // Draw the white part of the eyes.
-        g2d.setColor(Color.WHITE);
-        g2d.fillOval(eyeX1, eyeY1, eyeSize, eyeSize);
-        g2d.fillOval(eyeX2, eyeY2, eyeSize, eyeSize);
-        
-        // Draw the pupils.
-        g2d.setColor(Color.BLACK);
-        g2d.fillOval(eyeX1 + pupilOffset, eyeY1 + pupilOffset, pupilSize, pupilSize);
-        g2d.fillOval(eyeX2 + pupilOffset, eyeY2 + pupilOffset, pupilSize, pupilSize);
-        
-        // Draw a little tongue.
-        g2d.setColor(Color.RED);
-        int tongueWidth = 3;
-        int tongueHeight = 8;
-        int tongueX = x + (TILE_SIZE - tongueWidth) / 2;
-        int tongueY = 0;
-        // Position the tongue based on direction.
-        switch(direction) {
-            case 'U':
-                tongueY = y - tongueHeight/2;
-                break;
-            case 'D':
-                tongueY = y + TILE_SIZE - tongueHeight/2;
-                break;
-            case 'L':
-                tongueX = x - tongueWidth / 2;
-                tongueY = y + (TILE_SIZE - tongueHeight) / 2;
-                break;
-            case 'R':
-                tongueX = x + TILE_SIZE - tongueWidth/2;
-                tongueY = y + (TILE_SIZE - tongueHeight) / 2;
-                break;
-        }
-        // Draw the tongue with a rounded rectangle.
-        g2d.fillRect(tongueX, tongueY, tongueWidth, tongueHeight);
+    /**
+     * Repaints one cell and the margin around it right away.
+     * Each changed cell is painted on its own: repaint() would merge the old tail and the new head,
+     * which can be far apart, into one large rectangle.
+     * @param cell The cell to repaint.
+     */
+    private void repaintCell(int cell) {
+        if (cell < 0) return;
+        int margin = SnakeSprites.MARGIN;
+        paintImmediately((cell % engine.getColumns()) * TILE_SIZE - margin, (cell / engine.getColumns()) * TILE_SIZE - margin,
+                TILE_SIZE + 2 * margin, TILE_SIZE + 2 * margin);
     }
 
     /**
      * Displays a "Game Over" message and the score when the game ends.
      * The message is centered on the screen, and the score is displayed below it.
+     * SnakeCanvas and SnakeWorldPanel draw the same screen.
      * @param g The Graphics object used for drawing.
+     * @param width The width of the area to center in.
+     * @param height The height of the area to center in.
+     * @param score The final score.
      */
-    private void gameOver(Graphics g){
+    static void drawGameOver(Graphics g, int width, int height, int score){
         String msg = "Game Over";
-        Font font = new Font("Arial", Font.BOLD, 36);
-        FontMetrics metrics = getFontMetrics(font);
+        FontMetrics metrics = g.getFontMetrics(GAME_OVER_FONT);
         g.setColor(Color.RED);
-        g.setFont(font);
-        int msgX = (getBoardWidth() - metrics.stringWidth(msg)) / 2;
-        int msgY = getBoardHeight() / 2 - 20;
+        g.setFont(GAME_OVER_FONT);
+        int msgX = (width - metrics.stringWidth(msg)) / 2;
+        int msgY = height / 2 - 20;
         g.drawString(msg, msgX, msgY);
         
         String scoreMsg = "Score: " + score;
-        Font scoreFont = new Font("Arial", Font.BOLD, 24);
-        FontMetrics scoreMetrics = getFontMetrics(scoreFont);
+        FontMetrics scoreMetrics = g.getFontMetrics(FINAL_SCORE_FONT);
         g.setColor(Color.YELLOW);
-        g.setFont(scoreFont);
-        int scoreX = (getBoardWidth() - scoreMetrics.stringWidth(scoreMsg)) / 2;
+        g.setFont(FINAL_SCORE_FONT);
+        int scoreX = (width - scoreMetrics.stringWidth(scoreMsg)) / 2;
         int scoreY = msgY + 40;
         g.drawString(scoreMsg, scoreX, scoreY);
         
         String restartMsg = "Press Enter to Restart";
-        Font restartFont = new Font("Arial", Font.BOLD, 18);
-        FontMetrics restartMetrics = getFontMetrics(restartFont);
+        FontMetrics restartMetrics = g.getFontMetrics(RESTART_FONT);
         g.setColor(Color.CYAN);
-        g.setFont(restartFont);
-        int restartX = (getBoardWidth() - restartMetrics.stringWidth(restartMsg)) / 2;
+        g.setFont(RESTART_FONT);
+        int restartX = (width - restartMetrics.stringWidth(restartMsg)) / 2;
         int restartY = scoreY + 30;
         g.drawString(restartMsg, restartX, restartY);
     }
     
     /**
-     * Moves the snake in the current direction.
-     * The snake's body parts are shifted, and the head is moved based on the direction.
-     * The snake wraps around the board if it goes out of bounds.
+     * Action performed method for the timer.
+     * This method is called at regular intervals to update the game state.
+     * It advances the engine by one step in the direction of the last key pressed
+     * (turn, move, check for food, check for collisions) and stops the timer once the game is over.
+     * Then it repaints only the cells that changed. The tick, the paints and the frame are timed by the FrameMonitor.
+     * In a replay it plays the recorded game instead.
+     * @param e The ActionEvent triggered by the timer.
      */
-    private void move(){
-        // Shift body parts.
-        for (int i = snakeLength; i > 0; i--){
-            snakeX[i] = snakeX[i - 1];
-            snakeY[i] = snakeY[i - 1];
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (replay != null) {
+            replayFrame();
+            return;
         }
-        
-        // Move head based on direction.
-        switch(direction) {
-            case 'R': snakeX[0] += TILE_SIZE; break;
-            case 'L': snakeX[0] -= TILE_SIZE; break;
-            case 'U': snakeY[0] -= TILE_SIZE; break;
-            case 'D': snakeY[0] += TILE_SIZE; break;
+        if (!engine.isInGame()) {
+            return;
         }
-        
-        // Use the current board dimensions to wrap around.
-        int boardWidth = getBoardWidth();
-        int boardHeight = getBoardHeight();
-        
-        // For the X-direction
-        if (snakeX[0] < 0) {
-            snakeX[0] = boardWidth - TILE_SIZE;
-        } else if (snakeX[0] > boardWidth - TILE_SIZE) {  // when head goes beyond the last valid cell
-            snakeX[0] = 0;
+        frames.beginTick();
+        int oldHead = engine.getSnakeCell(0);
+        int oldTail = engine.getSnakeCell(engine.getSnakeLength() - 1);
+        int oldFood = engine.getFoodCell();
+        int oldScore = engine.getScore();
+        if (autopilot != null) {
+            nextDirection = autopilot.nextDirection();
         }
-        
-        // For the Y-direction
-        if (snakeY[0] < 0) {
-            snakeY[0] = boardHeight - TILE_SIZE;
-        } else if (snakeY[0] > boardHeight - TILE_SIZE) {
-            snakeY[0] = 0;
+        boolean running = recorder.step(nextDirection);
+        frames.endTick();
+        if (!running) {
+            timer.stop();
+            repaint(); // The whole panel changes to the game over screen.
+            return;
         }
-    }
-    
-    /**
-     * Checks if the snake has eaten the food.
-     * If the snake's head intersects with the food, the snake grows longer and the score increases.
-     * The food is then relocated to a new random position.
-     */
-    private void checkFood(){
-        // Create rectangles for the snake head and the fruit.
-        Rectangle headRect = new Rectangle(snakeX[0], snakeY[0], TILE_SIZE, TILE_SIZE);
-        Rectangle fruitRect = new Rectangle(foodX, foodY, TILE_SIZE, TILE_SIZE);
-        
-        // If any pixel touches, consider the fruit “eaten.”
-        if(headRect.intersects(fruitRect)) {
-            snakeLength++;
-            score += 10;
-            locateFood();
+        if (!isShowing()) {
+            return;
         }
-    }
-
-    /**
-     * Checks for collisions with the snake's own body.
-     * If the snake collides with itself, the game ends.
-     * The timer is stopped to halt the game loop.
-     */
-    private void checkCollision(){
-        // Collision with self only.
-        for (int i = snakeLength; i > 0; i--){
-            if (i > 4 && snakeX[0] == snakeX[i] && snakeY[0] == snakeY[i]){
-                inGame = false;
-                break;
-            }
+        // Only a few cells change in a tick: the old head (now body), the new head, the old tail and the food.
+        repaintCell(oldHead);
+        repaintCell(engine.getSnakeCell(0));
+        repaintCell(oldTail);
+        if (engine.getFoodCell() != oldFood) {
+            repaintCell(oldFood);
+            repaintCell(engine.getFoodCell());
         }
-        if (!inGame){
-            timer.stop();
+        if (engine.getScore() != oldScore) {
+            paintImmediately(SCORE_AREA);
         }
-    }
-    
-    /**
-     * Action performed method for the timer.
-     * This method is called at regular intervals to update the game state.
-     * It moves the snake, checks for food, and checks for collisions.
-     * @param e The ActionEvent triggered by the timer.
-     */
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (inGame) {
-            move();       // First move the snake.
-            checkFood();  // Then check if the new head cell matches the apple.
-            checkCollision();
+        if (autopilot != null) {
+            paintImmediately(AUTOPILOT_AREA);
         }
-        repaint();
+        if (overlayShown) {
+            paintImmediately(OVERLAY_AREA);
+        }
+        frames.frameShown();
     }
 }
\ No newline at end of file
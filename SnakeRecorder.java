@@ -0,0 +1,120 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class records a Snake game as its seed and turns, so it can be logged and replayed exactly.
+ * A turn is stored as the ticks since the previous turn, shifted left by two, with the direction
+ * ('U', 'D', 'L', 'R' as 0 to 3) in the low bits. When the game ends it is appended to the game log.
+ * Whatever drives the game (SnakePanel, SnakeCanvas) calls start() after resetting the engine and
+ * step() instead of calling the engine's step() directly.
+ * Every SnakeReplay.KEYFRAME_INTERVAL ticks the engine's state is kept as a keyframe, and when the game ends the
+ * seed, turns and keyframes become a SnakeReplay. Start with -Dsnake.replays=directory to save each one to a file.
+ */
+public class SnakeRecorder {
+    private final SnakeEngine engine;
+    private int[] turns = new int[64];
+    private int turnCount;
+    private int lastTurnTick;
+    private long startMillis;
+    private final List<int[]> keyframes = new ArrayList<>();
+    private SnakeReplay replay; // The last finished game.
+
+    /**
+     * Constructor for the SnakeRecorder class.
+     * @param engine The engine whose games are recorded.
+     */
+    public SnakeRecorder(SnakeEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Starts recording the game the engine has just been reset to.
+     */
+    public void start() {
+        turnCount = 0;
+        lastTurnTick = 0;
+        startMillis = System.currentTimeMillis();
+        keyframes.clear();
+        keyframes.add(engine.saveState());
+    }
+
+    /**
+     * Advances the engine by one step and records the turn, if it made one.
+     * Logs the game once it ends.
+     * @param direction The direction for this tick: 'U', 'D', 'L' or 'R'.
+     * @return true if the game is still running after the step.
+     */
+    public boolean step(char direction) {
+        char before = engine.getDirection();
+        boolean running = engine.step(direction);
+        if (engine.getDirection() != before) {
+            int tick = engine.getTicks() - 1;
+            if (turnCount == turns.length) {
+                turns = Arrays.copyOf(turns, turnCount * 2);
+            }
+            turns[turnCount++] = ((tick - lastTurnTick) << 2) | "UDLR".indexOf(engine.getDirection());
+            lastTurnTick = tick;
+        }
+        if (engine.getTicks() % SnakeReplay.KEYFRAME_INTERVAL == 0) {
+            keyframes.add(engine.saveState());
+        }
+        if (!running) {
+            GameLog.record(GameLog.SNAKE, GameLog.OVER, 0, 0, 0, engine.getScore(),
+                    System.currentTimeMillis() - startMillis, getLogMoves(), turnCount + 1);
+            replay = new SnakeReplay(engine.getColumns(), engine.getRows(), engine.getSeed(), turns, turnCount,
+                    engine.getTicks(), engine.getScore(), SnakeReplay.KEYFRAME_INTERVAL, keyframes);
+            saveReplay();
+        }
+        return running;
+    }
+
+    /**
+     * Returns the replay of the last game that ended, or null if none has.
+     */
+    public SnakeReplay getReplay() {
+        return replay;
+    }
+
+    /**
+     * Saves the last replay to the directory set with -Dsnake.replays, if there is one.
+     * Replays are a few kilobytes, so they are written right away.
+     */
+    private void saveReplay() {
+        String directory = System.getProperty("snake.replays");
+        if (directory == null || directory.isEmpty()) return;
+        File file = new File(directory, "snake-" + System.currentTimeMillis() + ".srpl");
+        try {
+            file.getParentFile().mkdirs();
+            replay.write(file);
+        } catch (IOException e) {
+            System.err.println("Could not save the Snake replay: " + e);
+        }
+    }
+
+    /**
+     * Returns the number of turns recorded in the current game.
+     */
+    public int getTurnCount() {
+        return turnCount;
+    }
+
+    /**
+     * Returns a copy of the turns recorded in the current game.
+     */
+    public int[] getTurns() {
+        return Arrays.copyOf(turns, turnCount);
+    }
+
+    /**
+     * Returns the moves as the game log stores them: the seed, then the turns.
+     */
+    private int[] getLogMoves() {
+        int[] moves = new int[turnCount + 1];
+        moves[0] = (int) engine.getSeed();
+        System.arraycopy(turns, 0, moves, 1, turnCount);
+        return moves;
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is a recorded Snake game that can be played back from any tick and checked against its score.
+ * SnakeEngine is deterministic, so a game is fully described by its seed and the turns the player made:
+ * each turn is stored as the ticks since the previous turn, shifted left by two, with the direction
+ * ('U', 'D', 'L', 'R' as 0 to 3) in the low bits, the same encoding the game log uses.
+ * Every keyframeInterval ticks the replay also holds a keyframe, the engine's full state from saveState(),
+ * so seeking restores the keyframe at or before the tick and simulates at most keyframeInterval ticks from there.
+ *
+ * SnakeRecorder builds a replay while the game is played. A game from the game log, which only has the seed and
+ * the turns, is turned into a replay by simulating it once (fromGameLog). Replays are saved in a small file:
+ * a header, then the turns and keyframes as unsigned varints (7 bits per byte, low bits first).
+ * SnakeReplayViewer plays them back on a SnakePanel.
+ */
+public class SnakeReplay {
+    public static final int MAGIC = 0x5352504C; // "SRPL"
+    public static final short VERSION = 1;
+    public static final int KEYFRAME_INTERVAL = 1000;
+    private static final String DIRECTIONS = "UDLR";
+
+    private final int columns;
+    private final int rows;
+    private final long seed;
+    private final int[] turns;        // As recorded: tick delta << 2 | direction.
+    private final int[] turnTicks;    // The absolute tick of each turn, counted from 0, in order.
+    private final char[] turnDirections;
+    private final int ticks;
+    private final int score;
+    private final int keyframeInterval;
+    private final int[][] keyframes;  // keyframes[k] is the state at tick k * keyframeInterval.
+
+    /**
+     * Constructor for the SnakeReplay class.
+     * @param columns The number of columns of the board.
+     * @param rows The number of rows of the board.
+     * @param seed The seed of the game.
+     * @param turns The turns, encoded as above.
+     * @param turnCount The number of turns to take from the array.
+     * @param ticks The number of ticks the game lasted.
+     * @param score The final score.
+     * @param keyframeInterval The number of ticks between keyframes.
+     * @param keyframes The keyframes, the first at tick 0.
+     */
+    public SnakeReplay(int columns, int rows, long seed, int[] turns, int turnCount, int ticks, int score,
+                       int keyframeInterval, List<int[]> keyframes) {
+        if (keyframeInterval < 1 || keyframes.isEmpty()) {
+            throw new IllegalArgumentException("A replay needs a keyframe at tick 0 and a positive interval");
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.seed = seed;
+        this.turns = Arrays.copyOf(turns, turnCount);
+        this.ticks = ticks;
+        this.score = score;
+        this.keyframeInterval = keyframeInterval;
+        this.keyframes = keyframes.toArray(new int[0][]);
+        turnTicks = new int[turnCount];
+        turnDirections = new char[turnCount];
+        int tick = 0;
+        for (int i = 0; i < turnCount; i++) {
+            tick += turns[i] >>> 2;
+            turnTicks[i] = tick;
+            turnDirections[i] = DIRECTIONS.charAt(turns[i] & 3);
+        }
+    }
+
+    /**
+     * Builds a replay from a Snake game in the game log by simulating it once and taking the keyframes on the way.
+     * @param moves The moves of the record: the seed, then the turns.
+     * @param moveCount The number of moves.
+     * @param score The score the log recorded.
+     * @return The replay. If the turns do not lead to a game over, the replay ends where the snake would go on forever.
+     */
+    public static SnakeReplay fromGameLog(int[] moves, int moveCount, int score) {
+        SnakeEngine engine = new SnakeEngine(600, 600, moves[0]); // The board of SnakePanel.
+        int[] turns = Arrays.copyOfRange(moves, 1, moveCount);
+        List<int[]> keyframes = new ArrayList<>();
+        keyframes.add(engine.saveState());
+        int next = 0; // The next turn to make, on tick turnTick.
+        int turnTick = turns.length > 0 ? turns[0] >>> 2 : -1;
+        // Without turns the snake goes straight; if it has not crashed a board's worth of ticks after the last turn,
+        // it never will.
+        long limit = engine.getColumns() * engine.getRows();
+        while (engine.isInGame() && (next < turns.length || engine.getTicks() < limit)) {
+            char input = '-';
+            if (next < turns.length && engine.getTicks() == turnTick) {
+                input = DIRECTIONS.charAt(turns[next] & 3);
+                next++;
+                if (next < turns.length) {
+                    turnTick += turns[next] >>> 2;
+                }
+                limit = (long) engine.getTicks() + engine.getColumns() * engine.getRows();
+            }
+            engine.step(input);
+            if (engine.getTicks() % KEYFRAME_INTERVAL == 0) {
+                keyframes.add(engine.saveState());
+            }
+        }
+        return new SnakeReplay(engine.getColumns(), engine.getRows(), moves[0], turns, turns.length,
+                engine.getTicks(), score, KEYFRAME_INTERVAL, keyframes);
+    }
+
+    /**
+     * Returns the input for a tick: the direction of the turn made on it, or '-' to keep going straight.
+     * @param tick The tick, counted from 0.
+     */
+    public char inputAt(int tick) {
+        int i = Arrays.binarySearch(turnTicks, tick);
+        return i >= 0 ? turnDirections[i] : '-';
+    }
+
+    /**
+     * Advances an engine playing this replay by one tick, with the recorded input.
+     */
+    public void step(SnakeEngine engine) {
+        engine.step(inputAt(engine.getTicks()));
+    }
+
+    /**
+     * Puts an engine in the state this game was in at a tick.
+     * Continues from the engine's own state if it is already on the way there, and otherwise starts
+     * from the nearest keyframe before the tick.
+     * @param engine An engine with the board size of the replay.
+     * @param tick The tick to go to; clamped to the length of the game.
+     */
+    public void seek(SnakeEngine engine, int tick) {
+        tick = Math.max(0, Math.min(ticks, tick));
+        int keyframe = Math.min(tick / keyframeInterval, keyframes.length - 1);
+        boolean onTheWay = engine.getSeed() == seed && engine.getTicks() <= tick
+                && engine.getTicks() >= keyframe * keyframeInterval;
+        if (!onTheWay) {
+            engine.restoreState(keyframes[keyframe]);
+        }
+        while (engine.getTicks() < tick && engine.isInGame()) {
+            step(engine);
+        }
+    }
+
+    /**
+     * Plays the whole game from its seed and checks that it goes the way it was recorded:
+     * every keyframe matches the simulation, and the game ends on the recorded tick with the recorded score.
+     * @return true if the replay matches.
+     */
+    public boolean verify() {
+        SnakeEngine engine = new SnakeEngine(columns * SnakeEngine.TILE_SIZE, rows * SnakeEngine.TILE_SIZE, seed);
+        if (!Arrays.equals(engine.saveState(), keyframes[0])) {
+            return false;
+        }
+        while (engine.isInGame() && engine.getTicks() < ticks) {
+            step(engine);
+            int tick = engine.getTicks();
+            if (tick % keyframeInterval == 0 && tick / keyframeInterval < keyframes.length
+                    && !Arrays.equals(engine.saveState(), keyframes[tick / keyframeInterval])) {
+                return false;
+            }
+        }
+        return !engine.isInGame() && engine.getTicks() == ticks && engine.getScore() == score;
+    }
+
+    /**
+     * Writes the replay to a file.
+     */
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(seed);
+            writeVarint(out, columns);
+            writeVarint(out, rows);
+            writeVarint(out, ticks);
+            writeVarint(out, score);
+            writeVarint(out, keyframeInterval);
+            writeVarint(out, turns.length);
+            for (int turn : turns) {
+                writeVarint(out, turn);
+            }
+            writeVarint(out, keyframes.length);
+            for (int[] keyframe : keyframes) {
+                writeVarint(out, keyframe.length);
+                for (int value : keyframe) {
+                    writeVarint(out, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a replay written by write().
+     */
+    public static SnakeReplay read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException("Not a Snake replay: " + file);
+            }
+            long seed = in.readLong();
+            int columns = readVarint(in);
+            int rows = readVarint(in);
+            int ticks = readVarint(in);
+            int score = readVarint(in);
+            int keyframeInterval = readVarint(in);
+            // Every length is checked against what the game can hold before anything is allocated for it.
+            if (columns < 1 || rows < 1 || (long) columns * rows > Integer.MAX_VALUE / 2 - 12
+                    || ticks < 0 || keyframeInterval < 1) {
+                throw new IllegalArgumentException("bad header");
+            }
+            int[] turns = new int[checkedLength(readVarint(in), ticks)];
+            for (int i = 0; i < turns.length; i++) {
+                turns[i] = readVarint(in);
+            }
+            int[][] keyframes = new int[checkedLength(readVarint(in), ticks / keyframeInterval + 1)][];
+            for (int k = 0; k < keyframes.length; k++) {
+                keyframes[k] = new int[checkedLength(readVarint(in), 12 + 2 * columns * rows)];
+                for (int i = 0; i < keyframes[k].length; i++) {
+                    keyframes[k][i] = readVarint(in);
+                }
+            }
+            return new SnakeReplay(columns, rows, seed, turns, turns.length, ticks, score, keyframeInterval,
+                    Arrays.asList(keyframes));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt Snake replay: " + file, e);
+        }
+    }
+
+    private static int checkedLength(int length, int max) {
+        if (length < 0 || length > max) {
+            throw new IllegalArgumentException("length " + length + " out of range");
+        }
+        return length;
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("Varint too long");
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of ticks the game lasted.
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the score the game was recorded with.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    public int getTurnCount() {
+        return turns.length;
+    }
+
+    public int getKeyframeCount() {
+        return keyframes.length;
+    }
+}
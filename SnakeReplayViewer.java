@@ -0,0 +1,116 @@
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This class is a window that plays back a SnakeReplay on a SnakePanel.
+ * The slider scrubs to any tick, which restores the nearest keyframe and simulates the rest, so seeking stays fast
+ * in long games. The speed box plays the game at up to 100 times its normal speed.
+ * When the window opens, the replay is played through once from its seed and checked against the recorded score;
+ * the status line says whether it matched.
+ * Usage: java SnakeReplayViewer [replayFile] plays a file saved with -Dsnake.replays, or without a file
+ * the last Snake game in the game log.
+ */
+public class SnakeReplayViewer extends JFrame {
+    private static final double[] SPEEDS = {1, 4, 10, 100};
+
+    private final SnakeReplay replay;
+    private final SnakePanel panel;
+    private final JButton playButton = new JButton("Play");
+    private final JSlider slider;
+    private final JLabel status = new JLabel();
+    private final boolean verified;
+    private boolean updatingSlider; // True while the slider follows the replay, so it does not seek.
+
+    /**
+     * Constructor for the SnakeReplayViewer class.
+     * @param replay The game to play back, recorded on the normal Snake board.
+     */
+    public SnakeReplayViewer(SnakeReplay replay) {
+        this.replay = replay;
+        this.panel = new SnakePanel(replay);
+        this.verified = replay.verify();
+        setTitle("Snake Replay");
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setResizable(false);
+
+        slider = new JSlider(0, replay.getTicks(), 0);
+        slider.addChangeListener(e -> {
+            if (!updatingSlider) {
+                panel.seekReplay(slider.getValue());
+            }
+        });
+        playButton.addActionListener(e -> panel.setReplayPaused(!panel.isReplayPaused()));
+        JComboBox<String> speedBox = new JComboBox<>();
+        for (double speed : SPEEDS) {
+            speedBox.addItem((int) speed + "x");
+        }
+        speedBox.addActionListener(e -> panel.setReplaySpeed(SPEEDS[speedBox.getSelectedIndex()]));
+
+        JPanel controls = new JPanel(new BorderLayout(8, 0));
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        buttons.add(playButton);
+        buttons.add(speedBox);
+        controls.add(buttons, BorderLayout.WEST);
+        controls.add(slider, BorderLayout.CENTER);
+        controls.add(status, BorderLayout.SOUTH);
+        controls.setBorder(BorderFactory.createEmptyBorder(4, 6, 4, 6));
+
+        add(panel, BorderLayout.CENTER);
+        add(controls, BorderLayout.SOUTH);
+        panel.setReplayListener(this::update);
+        update();
+        pack();
+        setLocationRelativeTo(null);
+    }
+
+    /**
+     * Moves the slider to the tick the panel shows and updates the button and the status line.
+     */
+    private void update() {
+        updatingSlider = true;
+        slider.setValue(panel.getReplayTick());
+        updatingSlider = false;
+        playButton.setText(panel.isReplayPaused() ? "Play" : "Pause");
+        status.setText(String.format("Tick %d of %d   Score %d of %d   %d turns   %s", panel.getReplayTick(),
+                replay.getTicks(), panel.getReplayScore(), replay.getScore(), replay.getTurnCount(),
+                verified ? "Replay verified" : "Replay does not match the recorded score"));
+    }
+
+    /**
+     * Reads the last Snake game from the game log.
+     * @param file The game log.
+     * @return The replay, or null if the log has no Snake game.
+     */
+    private static SnakeReplay lastLoggedGame(File file) throws IOException {
+        int[][] moves = new int[1][];
+        int[] score = new int[1];
+        try (GameLogReader reader = new GameLogReader(file, true)) {
+            reader.scan(record -> {
+                if (record.getGame() == GameLog.SNAKE && record.getMoveCount() > 0) {
+                    moves[0] = record.getMoves();
+                    score[0] = record.getScore();
+                }
+            });
+        }
+        return moves[0] == null ? null : SnakeReplay.fromGameLog(moves[0], moves[0].length, score[0]);
+    }
+
+    public static void main(String[] args) throws IOException {
+        SnakeReplay replay;
+        if (args.length > 0) {
+            replay = SnakeReplay.read(new File(args[0]));
+        } else {
+            File log = new File(System.getProperty("gamelog.file",
+                    System.getProperty("user.home") + File.separator + ".game-library" + File.separator + "games.log"));
+            replay = lastLoggedGame(log);
+            if (replay == null) {
+                System.err.println("No Snake game in " + log);
+                return;
+            }
+        }
+        SnakeReplay game = replay;
+        SwingUtilities.invokeLater(() -> new SnakeReplayViewer(game).setVisible(true));
+    }
+}
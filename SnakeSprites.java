@@ -0,0 +1,183 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
+
+/**
+ * This class pre-renders the pictures of the Snake game: the head facing each direction, a body segment and the food.
+ * SnakePanel draws these images instead of drawing the shapes again on every frame.
+ * The images are rendered at the scale of the screen (for example 2x on a HiDPI display), so they stay sharp,
+ * and are drawn back at their size in logical pixels.
+ * Every sprite covers its cell plus MARGIN pixels on each side, because the tongue and the outlines reach past the cell.
+ */
+public class SnakeSprites {
+    public static final int MARGIN = 4;
+
+    private final int tileSize;
+    private final double scale;
+    private final BufferedImage[] heads = new BufferedImage[4]; // Indexed like "UDLR".
+    private final BufferedImage body;
+    private final BufferedImage food;
+
+    /**
+     * Constructor for the SnakeSprites class. Renders every sprite once.
+     * @param tileSize The size of a cell in logical pixels.
+     * @param scale The number of device pixels per logical pixel.
+     */
+    public SnakeSprites(int tileSize, double scale) {
+        this.tileSize = tileSize;
+        this.scale = scale;
+        for (int i = 0; i < heads.length; i++) {
+            char direction = "UDLR".charAt(i);
+            heads[i] = render(g -> paintHead(g, direction));
+        }
+        body = render(this::paintBody);
+        food = render(this::paintFood);
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Draws the head facing the given direction over the cell at (x, y).
+     */
+    public void drawHead(Graphics g, int x, int y, char direction) {
+        draw(g, heads["UDLR".indexOf(direction)], x, y);
+    }
+
+    /**
+     * Draws a body segment over the cell at (x, y).
+     */
+    public void drawBody(Graphics g, int x, int y) {
+        draw(g, body, x, y);
+    }
+
+    /**
+     * Draws the food over the cell at (x, y).
+     */
+    public void drawFood(Graphics g, int x, int y) {
+        draw(g, food, x, y);
+    }
+
+    private void draw(Graphics g, BufferedImage sprite, int x, int y) {
+        int size = tileSize + 2 * MARGIN;
+        g.drawImage(sprite, x - MARGIN, y - MARGIN, size, size, null);
+    }
+
+    /**
+     * Creates a transparent image at device resolution and lets the painter draw into it in logical pixels,
+     * with the cell's top-left corner at (MARGIN, MARGIN).
+     */
+    private BufferedImage render(Consumer<Graphics2D> painter) {
+        int pixels = (int) Math.ceil((tileSize + 2 * MARGIN) * scale);
+        BufferedImage image = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2d = image.createGraphics();
+        g2d.scale(scale, scale);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        painter.accept(g2d);
+        g2d.dispose();
+        return image;
+    }
+
+    /**
+     * Draws the food: a red circle with a dark outline.
+     */
+    private void paintFood(Graphics2D g2d) {
+        g2d.setColor(Color.RED);
+        g2d.fillOval(MARGIN, MARGIN, tileSize, tileSize);
+        g2d.setColor(Color.DARK_GRAY);
+        g2d.drawOval(MARGIN, MARGIN, tileSize, tileSize);
+    }
+
+    /**
+     * Draws a body segment: white fill with gray outline.
+     */
+    private void paintBody(Graphics2D g2d) {
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(MARGIN, MARGIN, tileSize, tileSize);
+        g2d.setColor(Color.GRAY);
+        g2d.drawRect(MARGIN, MARGIN, tileSize, tileSize);
+    }
+
+    /**
+     * Draws the head: green fill with dark outline, eyes and a tongue on the side it is moving to.
+     */
+    private void paintHead(Graphics2D g2d, char direction) {
+        int x = MARGIN;
+        int y = MARGIN;
+        g2d.setColor(Color.GREEN);
+        g2d.fillRect(x, y, tileSize, tileSize);
+        g2d.setColor(Color.DARK_GRAY);
+        g2d.drawRect(x, y, tileSize, tileSize);
+
+        // Set parameters for larger, cuter eyes.
+        int eyeSize = 10;       // Bigger eye size
+        int offset = 3;         // Offset from the head border
+        int pupilSize = 6;      // Bigger pupil
+        int pupilOffset = 2;    // Offset for pupil within eye
+
+        // Calculate initial eye coordinates (top-left corner of each eye)
+        int eyeX1 = x + offset;
+        int eyeY1 = y + offset;
+        int eyeX2 = x + tileSize - offset - eyeSize;
+        int eyeY2 = y + offset;
+
+        // Adjust positions based on snake's direction.
+        switch(direction) {
+            case 'U':
+                // Eyes remain at top.
+                break;
+            case 'D':
+                // Move eyes to the bottom of the head.
+                eyeY1 = y + tileSize - offset - eyeSize;
+                eyeY2 = y + tileSize - offset - eyeSize;
+                break;
+            case 'L':
+                // Move eyes to the left side.
+                eyeX1 = x + offset;
+                eyeX2 = x + offset;
+                break;
+            case 'R':
+                // Move eyes to the right side.
+                eyeX1 = x + tileSize - offset - eyeSize;
+                eyeX2 = x + tileSize - offset - eyeSize;
+                break;
+        }
+
+        // Draw the white part of the eyes.
+        g2d.setColor(Color.WHITE);
+        g2d.fillOval(eyeX1, eyeY1, eyeSize, eyeSize);
+        g2d.fillOval(eyeX2, eyeY2, eyeSize, eyeSize);
+
+        // Draw the pupils.
+        g2d.setColor(Color.BLACK);
+        g2d.fillOval(eyeX1 + pupilOffset, eyeY1 + pupilOffset, pupilSize, pupilSize);
+        g2d.fillOval(eyeX2 + pupilOffset, eyeY2 + pupilOffset, pupilSize, pupilSize);
+
+        // Draw a little tongue.
+        g2d.setColor(Color.RED);
+        int tongueWidth = 3;
+        int tongueHeight = 8;
+        int tongueX = x + (tileSize - tongueWidth) / 2;
+        int tongueY = 0;
+        // Position the tongue based on direction.
+        switch(direction) {
+            case 'U':
+                tongueY = y - tongueHeight/2;
+                break;
+            case 'D':
+                tongueY = y + tileSize - tongueHeight/2;
+                break;
+            case 'L':
+                tongueX = x - tongueWidth / 2;
+                tongueY = y + (tileSize - tongueHeight) / 2;
+                break;
+            case 'R':
+                tongueX = x + tileSize - tongueWidth/2;
+                tongueY = y + (tileSize - tongueHeight) / 2;
+                break;
+        }
+        // Draw the tongue with a rounded rectangle.
+        g2d.fillRect(tongueX, tongueY, tongueWidth, tongueHeight);
+    }
+}
@@ -0,0 +1,426 @@
+import java.util.Random;
+
+/**
+ * This class holds the rules of Snake for huge worlds, up to hundreds of millions of cells, without any Swing code.
+ * The rules are those of SnakeEngine (one cell per tick, wrapping around the edges, growing on food, ending when the
+ * head runs into the body), except that the world has many pieces of food at once: each one eaten is replaced,
+ * so the number of pieces stays the same. SnakeWorldPanel shows the part of the world around the head.
+ *
+ * Nothing is stored per cell of the world, so memory grows with what the world holds, not with its area.
+ * The world is cut into chunks of CHUNK_SIZE x CHUNK_SIZE cells. A chunk exists only while the body or some food
+ * is in it, and holds one bitset for the body and one for the food. The chunks are found through an
+ * open-addressing hash table keyed by chunk number; a chunk is removed as soon as it is empty, and a few emptied
+ * chunks are kept for reuse.
+ * The body is a ring buffer of cells, as in SnakeEngine, that doubles when the snake outgrows it.
+ * New food goes to a random cell, tried again while the cell is taken. On a mostly empty world the first try almost
+ * always succeeds; a world so full that many tries fail is searched cell by cell from a random start instead.
+ * The world is deterministic: the same seed and the same directions passed to step() give the same game.
+ */
+public class SnakeWorld {
+    public static final int CHUNK_BITS = 4;
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS; // Cells along each side of a chunk.
+    private static final int CHUNK_WORDS = CHUNK_SIZE * CHUNK_SIZE / 64;
+    private static final int START_LENGTH = 5;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int FOOD_TRIES = 64;
+    private static final int SPARE_CHUNKS = 64;
+
+    /**
+     * The body and food bits of one chunk, indexed by (row % CHUNK_SIZE) * CHUNK_SIZE + column % CHUNK_SIZE.
+     */
+    private static final class Chunk {
+        int key;
+        final long[] body = new long[CHUNK_WORDS];
+        final long[] food = new long[CHUNK_WORDS];
+        int count; // Body and food bits set; the chunk is removed when this drops to 0.
+
+        Chunk(int key) {
+            this.key = key;
+        }
+    }
+
+    private final int columns;
+    private final int rows;
+    private final int chunkColumns;
+    private final int foodCount;
+    private final Random random = new Random();
+    private long seed;
+    private int ticks;
+
+    // Open-addressing table of the chunks in use, with linear probing. The length is a power of two.
+    private Chunk[] chunks = new Chunk[16];
+    private int chunkCount;
+    // Emptied chunks kept for reuse, so a snake moving through empty space does not allocate on every chunk it enters.
+    private final Chunk[] spare = new Chunk[SPARE_CHUNKS];
+    private int spareCount;
+
+    private int[] body = new int[INITIAL_CAPACITY]; // Ring buffer of body cells; the head is at index head.
+    private int head;
+    private int snakeLength;
+
+    private char direction;
+    private boolean inGame;
+    private int score;
+
+    /**
+     * Constructor for the SnakeWorld class.
+     * @param columns The width of the world in cells.
+     * @param rows The height of the world in cells.
+     * @param foodCount The number of pieces of food in the world at any time.
+     * @param seed The seed of the first game.
+     */
+    public SnakeWorld(int columns, int rows, int foodCount, long seed) {
+        if (columns < START_LENGTH || rows < 1 || (long) columns * rows > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported world size: " + columns + "x" + rows);
+        }
+        if (foodCount < 1 || foodCount > (long) columns * rows - START_LENGTH) {
+            throw new IllegalArgumentException("Unsupported food count: " + foodCount);
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.chunkColumns = (columns + CHUNK_SIZE - 1) >>> CHUNK_BITS;
+        this.foodCount = foodCount;
+        reset(seed);
+    }
+
+    /**
+     * Starts a new game: a short snake heading right from the middle of the world, a score of 0 and fresh food.
+     * The memory of the previous game is released.
+     * @param seed The seed for the food positions; the same seed and moves always give the same game.
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        random.setSeed(seed);
+        ticks = 0;
+        score = 0;
+        direction = 'R';
+        inGame = true;
+        chunks = new Chunk[16];
+        chunkCount = 0;
+        body = new int[INITIAL_CAPACITY];
+        snakeLength = START_LENGTH;
+        head = START_LENGTH - 1;
+        int row = rows / 2;
+        int column = columns / 2;
+        for (int i = 0; i < START_LENGTH; i++) {
+            int cell = row * columns + Math.floorMod(column - i, columns);
+            body[head - i] = cell;
+            setBit(cell, true, true);
+        }
+        for (int i = 0; i < foodCount; i++) {
+            placeFood();
+        }
+    }
+
+    /**
+     * Advances the game by one tick in the given direction. See SnakeEngine.step().
+     * @param newDirection The direction for this tick: 'U', 'D', 'L' or 'R'.
+     * @return true if the game is still running after the tick.
+     */
+    public boolean step(char newDirection) {
+        turn(newDirection);
+        return tick();
+    }
+
+    /**
+     * Advances the game by one tick in the current direction.
+     * The head moves into the next cell; the snake grows if that cell has food, which is then placed elsewhere,
+     * and otherwise the tail leaves its cell. The game ends if the head lands on the body. Does nothing once the game is over.
+     * @return true if the game is still running after the tick.
+     */
+    public boolean tick() {
+        if (inGame) {
+            ticks++;
+            int next = nextCell(body[head]);
+            boolean grows = isFood(next);
+            if (grows) {
+                setBit(next, false, false);
+                if (snakeLength == body.length) {
+                    grow();
+                }
+            } else {
+                setBit(body[(head - snakeLength + 1) & (body.length - 1)], true, false);
+            }
+            if (isOccupied(next)) {
+                inGame = false;
+            } else {
+                setBit(next, true, true);
+            }
+            head = (head + 1) & (body.length - 1);
+            body[head] = next;
+            if (grows) {
+                snakeLength++;
+                score += 10;
+                if (snakeLength == columns * rows) {
+                    inGame = false; // The snake fills the world.
+                } else {
+                    placeFood();
+                }
+            }
+        }
+        return inGame;
+    }
+
+    /**
+     * Returns the cell next to the given one in the current direction, wrapping around the world edges.
+     */
+    private int nextCell(int cell) {
+        int column = cell % columns;
+        int row = cell / columns;
+        switch (direction) {
+            case 'R': column = (column == columns - 1) ? 0 : column + 1; break;
+            case 'L': column = (column == 0) ? columns - 1 : column - 1; break;
+            case 'U': row = (row == 0) ? rows - 1 : row - 1; break;
+            case 'D': row = (row == rows - 1) ? 0 : row + 1; break;
+        }
+        return row * columns + column;
+    }
+
+    /**
+     * Doubles the body ring buffer, copying the segments so the tail starts at index 0.
+     */
+    private void grow() {
+        int[] larger = new int[body.length * 2];
+        for (int i = 0; i < snakeLength; i++) {
+            larger[i] = getSnakeCell(snakeLength - 1 - i);
+        }
+        body = larger;
+        head = snakeLength - 1;
+    }
+
+    /**
+     * Puts one piece of food on a random cell that has neither body nor food.
+     * Does nothing if every cell is taken.
+     */
+    private void placeFood() {
+        int cells = columns * rows;
+        for (int i = 0; i < FOOD_TRIES; i++) {
+            int cell = random.nextInt(cells);
+            if (isFree(cell)) {
+                setBit(cell, false, true);
+                return;
+            }
+        }
+        // Nearly full: search from a random start, so the food still lands anywhere.
+        int start = random.nextInt(cells);
+        for (int i = 0; i < cells; i++) {
+            int cell = (int) (((long) start + i) % cells);
+            if (isFree(cell)) {
+                setBit(cell, false, true);
+                return;
+            }
+        }
+    }
+
+    private boolean isFree(int cell) {
+        Chunk chunk = findChunk(chunkKey(cell));
+        if (chunk == null) return true;
+        int bit = chunkBit(cell);
+        return ((chunk.body[bit >>> 6] | chunk.food[bit >>> 6]) & (1L << bit)) == 0;
+    }
+
+    /**
+     * Sets or clears the body or food bit of a cell, creating its chunk on the first bit and removing it on the last.
+     * @param cell The cell.
+     * @param bodyBit true for the body bit, false for the food bit.
+     * @param value The new value of the bit.
+     */
+    private void setBit(int cell, boolean bodyBit, boolean value) {
+        int key = chunkKey(cell);
+        Chunk chunk = findChunk(key);
+        if (chunk == null) {
+            if (!value) return;
+            chunk = addChunk(key);
+        }
+        long[] bits = bodyBit ? chunk.body : chunk.food;
+        int bit = chunkBit(cell);
+        long mask = 1L << bit;
+        boolean set = (bits[bit >>> 6] & mask) != 0;
+        if (set == value) return;
+        if (value) {
+            bits[bit >>> 6] |= mask;
+            chunk.count++;
+        } else {
+            bits[bit >>> 6] &= ~mask;
+            if (--chunk.count == 0) {
+                removeChunk(key);
+            }
+        }
+    }
+
+    private int chunkKey(int cell) {
+        return ((cell / columns) >>> CHUNK_BITS) * chunkColumns + ((cell % columns) >>> CHUNK_BITS);
+    }
+
+    private int chunkBit(int cell) {
+        return (((cell / columns) & (CHUNK_SIZE - 1)) << CHUNK_BITS) | ((cell % columns) & (CHUNK_SIZE - 1));
+    }
+
+    private int slot(int key) {
+        return (key * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(chunks.length));
+    }
+
+    private Chunk findChunk(int key) {
+        int mask = chunks.length - 1;
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            Chunk chunk = chunks[i];
+            if (chunk == null || chunk.key == key) return chunk;
+        }
+    }
+
+    private Chunk addChunk(int key) {
+        if (2 * (chunkCount + 1) > chunks.length) {
+            Chunk[] old = chunks;
+            chunks = new Chunk[old.length * 2];
+            for (Chunk chunk : old) {
+                if (chunk != null) insert(chunk);
+            }
+        }
+        Chunk chunk;
+        if (spareCount > 0) {
+            chunk = spare[--spareCount];
+            spare[spareCount] = null;
+            chunk.key = key; // Its bits are all clear, since it was removed when its count dropped to 0.
+        } else {
+            chunk = new Chunk(key);
+        }
+        insert(chunk);
+        chunkCount++;
+        return chunk;
+    }
+
+    private void insert(Chunk chunk) {
+        int mask = chunks.length - 1;
+        int i = slot(chunk.key);
+        while (chunks[i] != null) {
+            i = (i + 1) & mask;
+        }
+        chunks[i] = chunk;
+    }
+
+    /**
+     * Removes a chunk and moves the chunks after it in its probe run back, so lookups never stop at the hole.
+     */
+    private void removeChunk(int key) {
+        int mask = chunks.length - 1;
+        int hole = slot(key);
+        while (chunks[hole].key != key) {
+            hole = (hole + 1) & mask;
+        }
+        if (spareCount < SPARE_CHUNKS) {
+            spare[spareCount++] = chunks[hole];
+        }
+        chunks[hole] = null;
+        chunkCount--;
+        for (int i = (hole + 1) & mask; chunks[i] != null; i = (i + 1) & mask) {
+            int home = slot(chunks[i].key);
+            // Move the chunk into the hole unless its home slot lies cyclically between the hole and where it is.
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                chunks[hole] = chunks[i];
+                chunks[i] = null;
+                hole = i;
+            }
+        }
+    }
+
+    /**
+     * Turns the snake, unless the new direction would reverse it onto its own neck.
+     * Anything other than 'U', 'D', 'L' or 'R' keeps the current direction.
+     * @param newDirection The new direction: 'U', 'D', 'L' or 'R'.
+     */
+    public void turn(char newDirection) {
+        boolean reverse = (newDirection == 'L' && direction == 'R') || (newDirection == 'R' && direction == 'L')
+                || (newDirection == 'U' && direction == 'D') || (newDirection == 'D' && direction == 'U');
+        boolean valid = newDirection == 'U' || newDirection == 'D' || newDirection == 'L' || newDirection == 'R';
+        if (valid && !reverse) {
+            direction = newDirection;
+        }
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getSnakeLength() {
+        return snakeLength;
+    }
+
+    /**
+     * Returns the cell of a body segment; segment 0 is the head.
+     */
+    public int getSnakeCell(int segment) {
+        return body[(head - segment) & (body.length - 1)];
+    }
+
+    /**
+     * Returns true if the snake's body covers the cell.
+     */
+    public boolean isOccupied(int cell) {
+        Chunk chunk = findChunk(chunkKey(cell));
+        if (chunk == null) return false;
+        int bit = chunkBit(cell);
+        return (chunk.body[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Returns true if the cell has a piece of food.
+     */
+    public boolean isFood(int cell) {
+        Chunk chunk = findChunk(chunkKey(cell));
+        if (chunk == null) return false;
+        int bit = chunkBit(cell);
+        return (chunk.food[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Returns the number of pieces of food the world keeps.
+     */
+    public int getFoodCount() {
+        return foodCount;
+    }
+
+    /**
+     * Returns the number of chunks in memory: those with some body or food in them.
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Returns an estimate of the bytes the world holds: the chunks, the chunk table and the body ring buffer.
+     */
+    public long getMemoryBytes() {
+        long chunkBytes = 16 + 2 * (16 + 8L * CHUNK_WORDS) + 16; // Object and two long arrays, with headers.
+        return chunkCount * chunkBytes + 16 + 4L * chunks.length + 16 + 4L * body.length;
+    }
+
+    public char getDirection() {
+        return direction;
+    }
+
+    public boolean isInGame() {
+        return inGame;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the seed the current game was started with.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of ticks played in the current game.
+     */
+    public int getTicks() {
+        return ticks;
+    }
+}
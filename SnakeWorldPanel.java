@@ -0,0 +1,169 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.util.Random;
+
+/**
+ * This class plays Snake on a huge SnakeWorld through a viewport the size of the normal board.
+ * The camera follows the head: it stays in the middle of the view while the world scrolls under it,
+ * wrapping around the world edges like the snake does. Only the cells inside the view are looked up and drawn,
+ * so a frame costs the same in a world of a thousand cells or a hundred million.
+ * The controls are those of SnakePanel. The top-left corner shows the score, the head's position in the world,
+ * and how many chunks the world holds in memory.
+ * Games in a huge world are not written to the game log, which only describes games on the normal board.
+ */
+public class SnakeWorldPanel extends JPanel implements ActionListener {
+    private static final int TILE_SIZE = SnakeEngine.TILE_SIZE;
+    private static final int DEFAULT_WIDTH = 600;
+    private static final int DEFAULT_HEIGHT = 600;
+    private static final Font SCORE_FONT = new Font("Arial", Font.BOLD, 16);
+    private static final Font INFO_FONT = new Font("Arial", Font.PLAIN, 12);
+
+    private final Random seeds = new Random();
+    private final SnakeWorld world;
+    private final Timer timer = new Timer(SnakeEngine.TICK_MILLIS, this);
+    private char nextDirection; // The direction of the last key pressed, passed to the next step.
+    private SnakeSprites sprites;
+
+    /**
+     * Constructor for the SnakeWorldPanel class.
+     * @param columns The width of the world in cells.
+     * @param rows The height of the world in cells.
+     * @param foodCount The number of pieces of food in the world.
+     */
+    public SnakeWorldPanel(int columns, int rows, int foodCount) {
+        world = new SnakeWorld(columns, rows, foodCount, seeds.nextInt());
+        setBackground(Color.BLACK);
+        setPreferredSize(new Dimension(DEFAULT_WIDTH, DEFAULT_HEIGHT));
+        setFocusable(true);
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                int key = e.getKeyCode();
+                if (world.isInGame()) {
+                    if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
+                        nextDirection = 'L';
+                    } else if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
+                        nextDirection = 'R';
+                    } else if (key == KeyEvent.VK_UP || key == KeyEvent.VK_W) {
+                        nextDirection = 'U';
+                    } else if (key == KeyEvent.VK_DOWN || key == KeyEvent.VK_S) {
+                        nextDirection = 'D';
+                    }
+                } else if (key == KeyEvent.VK_ENTER) {
+                    initGame();
+                }
+            }
+        });
+        nextDirection = world.getDirection();
+        timer.start();
+    }
+
+    /**
+     * Starts a new game in a freshly seeded world and restarts the timer.
+     */
+    private void initGame() {
+        world.reset(seeds.nextInt());
+        nextDirection = world.getDirection();
+        timer.restart();
+        repaint();
+    }
+
+    /**
+     * Paints the part of the world around the head.
+     * The view is centered on the head; each cell in the clip is mapped to its world cell, wrapping around the edges,
+     * and drawn if it has food or body. The head is drawn before the body, as in SnakePanel.
+     * @param g The Graphics object used for painting.
+     */
+    @Override
+    public void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
+        if (!world.isInGame()) {
+            SnakePanel.drawGameOver(g2d, getWidth(), getHeight(), world.getScore());
+            return;
+        }
+        double scale = g2d.getTransform().getScaleX();
+        if (sprites == null || sprites.getScale() != scale) {
+            sprites = new SnakeSprites(TILE_SIZE, scale);
+        }
+        int columns = world.getColumns();
+        int head = world.getSnakeCell(0);
+        int headColumn = head % columns;
+        int headRow = head / columns;
+        int viewColumns = (getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        int viewRows = (getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        int left = headColumn - viewColumns / 2; // The world column and row at the view's top-left corner.
+        int top = headRow - viewRows / 2;
+
+        // The view cells whose sprites, margins included, reach into the clip.
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int margin = SnakeSprites.MARGIN;
+        int firstColumn = Math.max(0, Math.floorDiv(clip.x - margin, TILE_SIZE));
+        int lastColumn = Math.min(viewColumns - 1, (clip.x + clip.width + margin) / TILE_SIZE);
+        int firstRow = Math.max(0, Math.floorDiv(clip.y - margin, TILE_SIZE));
+        int lastRow = Math.min(viewRows - 1, (clip.y + clip.height + margin) / TILE_SIZE);
+
+        for (int y = firstRow; y <= lastRow; y++) {
+            for (int x = firstColumn; x <= lastColumn; x++) {
+                if (world.isFood(worldCell(left + x, top + y))) {
+                    sprites.drawFood(g2d, x * TILE_SIZE, y * TILE_SIZE);
+                }
+            }
+        }
+        sprites.drawHead(g2d, (viewColumns / 2) * TILE_SIZE, (viewRows / 2) * TILE_SIZE, world.getDirection());
+        for (int y = firstRow; y <= lastRow; y++) {
+            for (int x = firstColumn; x <= lastColumn; x++) {
+                int cell = worldCell(left + x, top + y);
+                if (cell != head && world.isOccupied(cell)) {
+                    sprites.drawBody(g2d, x * TILE_SIZE, y * TILE_SIZE);
+                }
+            }
+        }
+
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setColor(Color.YELLOW);
+        g2d.setFont(SCORE_FONT);
+        g2d.drawString("Score: " + world.getScore(), 10, 20);
+        g2d.setColor(Color.LIGHT_GRAY);
+        g2d.setFont(INFO_FONT);
+        g2d.drawString(String.format("(%d, %d) of %d x %d   %d chunks, %d KB", headColumn, headRow, columns,
+                world.getRows(), world.getChunkCount(), world.getMemoryBytes() / 1024), 10, 38);
+    }
+
+    /**
+     * Returns the world cell at a column and row that may lie past the edges, wrapped around.
+     */
+    private int worldCell(int column, int row) {
+        return Math.floorMod(row, world.getRows()) * world.getColumns() + Math.floorMod(column, world.getColumns());
+    }
+
+    /**
+     * Action performed method for the timer.
+     * Advances the world by one step in the direction of the last key pressed and repaints the whole view,
+     * since the camera moves with the head on every tick.
+     * @param e The ActionEvent triggered by the timer.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (!world.isInGame()) {
+            return;
+        }
+        if (!world.step(nextDirection)) {
+            timer.stop();
+        }
+        repaint();
+    }
+
+    /**
+     * Stops the timer when the panel leaves its window, so a closed world does not keep stepping.
+     */
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        timer.stop();
+    }
+}
@@ -1,32 +1,206 @@
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 /* 
  * TicTacToeAI class represents the AI for the Tic-Tac-Toe game.
- * The AI can be set to three different difficulty levels: Easy, Medium, and Unbeatable.
+ * The AI can be set to four different difficulty levels: Easy, Medium, Unbeatable and Monte Carlo.
  * The Easy mode AI makes random moves.
  * The Medium mode AI makes smart moves by checking for immediate wins or losses.
  * The Unbeatable mode AI uses the minimax algorithm to make the best possible move.
+ * The Monte Carlo mode AI uses Monte Carlo Tree Search; its strength grows with its playout budget.
  * The AI can play as 'X' or 'O' and can be set to different difficulty levels.
  * The AI can check for a win, draw, or full board state.
  * The AI can also determine the winning line on the board.
  * The AI can be reset to start a new game.
+ * The classic 3x3 board uses bitboards and an exhaustive search.
+ * Larger boards (for example 9x9 five-in-a-row or 15x15 Gomoku) are played by an MNKEngine
+ * that searches with iterative deepening under a per-move time and node budget.
  * 
  */
 public class TicTacToeAI {
-    private char[][] board;
+    /*
+     * Each cell maps to one bit: bit (row * 3 + col) is set when that cell is taken.
+     * The eight winning lines are precomputed as masks so a win test is a single AND and compare.
+     */
+    private static final int FULL_MASK = 0x1FF;
+    private static final int[] WIN_MASKS = {
+        0x007, 0x038, 0x1C0, // rows
+        0x049, 0x092, 0x124, // columns
+        0x111, 0x054         // diagonals
+    };
+    // Start and end cells of each winning mask, in the [startRow, startCol, endRow, endCol] format used by the panel.
+    private static final int[][] WIN_LINES = {
+        {0, 0, 0, 2}, {1, 0, 1, 2}, {2, 0, 2, 2},
+        {0, 0, 2, 0}, {0, 1, 2, 1}, {0, 2, 2, 2},
+        {0, 0, 2, 2}, {0, 2, 2, 0}
+    };
+    /*
+     * SYMMETRIES[s][bits] is the mask bits transformed by the s-th rotation or reflection of the board.
+     * Positions that are the same up to symmetry share one transposition table entry.
+     */
+    private static final short[][] SYMMETRIES = buildSymmetries();
+    // CELL_LINES[cell] lists the winning masks (indices into WIN_MASKS) that pass through the cell.
+    private static final int[][] CELL_LINES = buildCellLines();
+
+    // Solved moves for every position, or null if the table file has not been built.
+    private static final PerfectPlayTable PERFECT_PLAY = PerfectPlayTable.openDefault();
+    private static final BooleanSupplier NEVER = () -> false;
+
+    private TranspositionTable table; // Created by the first 3x3 search, so AIs that never run one do not pay for it.
+    // Engines lent to every AI searching on a thread, see setThreadEngines().
+    private static final int THREAD_TABLE_CAPACITY = 1 << 18;
+    private static final ThreadLocal<MNKEngine> THREAD_SEARCH_ENGINE = new ThreadLocal<>();
+    private static final ThreadLocal<MCTSEngine> THREAD_MCTS = new ThreadLocal<>();
+    private int lastSearchScore;
+
+    private int size = 3;
+    private int winLength = 3;
+    private MNKEngine engine; // The live position on boards other than 3x3, null otherwise.
+    private long moveTimeMillis = 1000;
+    private long nodeLimit = Long.MAX_VALUE;
+    private volatile int searchThreads = Runtime.getRuntime().availableProcessors();
+    private long mctsPlayouts = 20_000;
+    private volatile boolean threadEngines;
+
+    private int xBits;
+    private int oBits;
+    /*
+     * Game-over state, kept up to date by makeMove and undoMove so the queries never rescan the board.
+     * On 3x3 the bitboards already hold every line's occupancy, so a move tests just the masks through
+     * its cell; larger boards keep a stone counter per window inside MNKEngine.
+     */
+    private int winningLine = -1; // Index of the first completed line, or -1.
+    private char winner = ' ';
+    private int[] moveHistory; // Cells in the order they were played, on any board size.
+    private int moveCount;
+    private char[][] board; // Mirror of the position, kept for rendering only.
     private String difficulty; // Easy, Medium, Hard
     private Random random = new Random();
 
+    /*
+     * Search state. Every move is chosen from a snapshot of the position, loaded into the fields below
+     * by chooseMove(). They are only touched by the thread that is choosing a move, so the live
+     * position can be painted and reset while a background search is running.
+     */
+    private int searchSize;
+    private int searchX;
+    private int searchO;
+    private MNKEngine searchEngine; // Snapshot of the live MNKEngine, searched sequentially.
+    private ParallelSearch parallelSearch; // Created on first use when searchThreads > 1.
+    private MCTSEngine mcts; // Created on first use of the Monte Carlo difficulty.
+    private BooleanSupplier stopCondition = NEVER;
+    private ExecutorService executor; // Runs bestMoveAsync() requests one at a time.
+    private ExecutorService retiredExecutor; // Stopped by shutdown(), maybe still finishing its last search.
+    private CompletableFuture<int[]> pendingMove;
+
+    // Statistics of the last chosen move, written by the thread that chose it.
+    private final CopyOnWriteArrayList<SearchListener> searchListeners = new CopyOnWriteArrayList<>();
+    private String statDifficulty = "";
+    private int[] statMove = {-1, -1};
+    private long statNodes;
+    private long statAlphaCutoffs;
+    private long statBetaCutoffs;
+    private int statMaxDepth;
+    private long statTableHits;
+    private long statTableProbes;
+    private long statNanos;
+    private boolean statCancelled;
+
     /*
      * Constructor to create a new TicTacToeAI object with the specified difficulty.
      * @param difficulty the difficulty level of the AI (Easy, Medium, Unbeatable)
      */
     public TicTacToeAI(String difficulty) {
-        board = new char[3][3];
+        this(difficulty, 3, 3);
+    }
+
+    /*
+     * Constructor to create a new TicTacToeAI object for a square board of any size.
+     * @param difficulty the difficulty level of the AI (Easy, Medium, Unbeatable)
+     * @param size the number of rows and columns of the board
+     * @param winLength the number of symbols in a row needed to win
+     */
+    public TicTacToeAI(String difficulty, int size, int winLength) {
         this.difficulty = difficulty;
+        setBoardSize(size, winLength);
+    }
+
+    /*
+     * Change the board size. This also clears the board.
+     * @param size the number of rows and columns of the board
+     * @param winLength the number of symbols in a row needed to win
+     */
+    public void setBoardSize(int size, int winLength) {
+        if (size == 3 && winLength == 3) {
+            engine = null;
+        } else if (engine == null || engine.getRows() != size || engine.getWinLength() != winLength) {
+            engine = new MNKEngine(size, size, winLength, 0); // The live position is never searched.
+        }
+        this.size = size;
+        this.winLength = winLength;
+        board = new char[size][size];
+        moveHistory = new int[size * size];
         resetBoard();
     }
 
+    /*
+     * Set the time budget for each Unbeatable and Monte Carlo move.
+     * @param millis the time limit in milliseconds
+     */
+    public void setMoveTimeMillis(long millis) {
+        this.moveTimeMillis = millis;
+    }
+
+    /*
+     * Set how many threads the Unbeatable and Monte Carlo searches use on boards larger than 3x3.
+     * With one thread the engine searches sequentially.
+     * @param threads the number of search threads
+     */
+    public void setSearchThreads(int threads) {
+        this.searchThreads = Math.max(1, threads);
+    }
+
+    /*
+     * Set the number of playouts per move for the Monte Carlo difficulty. More playouts play stronger.
+     * @param playouts the playout budget
+     */
+    public void setMonteCarloPlayouts(long playouts) {
+        this.mctsPlayouts = playouts;
+    }
+
+    /*
+     * Let searches borrow their engines from the thread they run on instead of keeping their own.
+     * A server running thousands of AIs on a few worker threads then holds one transposition table
+     * (of THREAD_TABLE_CAPACITY entries) and one single-threaded Monte Carlo tree per worker, not per game.
+     * Searches are sequential while this is on, whatever setSearchThreads() says.
+     * @param shared true to borrow the engines of the calling thread
+     */
+    public void setThreadEngines(boolean shared) {
+        this.threadEngines = shared;
+    }
+
+    /*
+     * Get the Monte Carlo engine, for example to read its playouts per second.
+     * @return the engine, or null if the Monte Carlo difficulty has not been used yet or the engines are borrowed from threads
+     */
+    public MCTSEngine getMonteCarloEngine() {
+        return mcts;
+    }
+
+    /*
+     * Set the node budget for each Unbeatable move on boards larger than 3x3.
+     * @param nodes the maximum number of search nodes, or Long.MAX_VALUE for no limit
+     */
+    public void setNodeLimit(long nodes) {
+        this.nodeLimit = nodes;
+    }
+
     /*
      * Set the difficulty level of the AI.
      * @param difficulty the difficulty level of the AI (Easy, Medium, Unbeatable)
@@ -39,8 +213,14 @@ public class TicTacToeAI {
      * Reset the board to an empty state.
      */
     public void resetBoard() {
-        for (int i = 0; i < 3; i++)
-            for (int j = 0; j < 3; j++)
+        xBits = 0;
+        oBits = 0;
+        winningLine = -1;
+        winner = ' ';
+        moveCount = 0;
+        if (engine != null) engine.reset();
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
                 board[i][j] = ' ';
     }
 
@@ -52,21 +232,256 @@ public class TicTacToeAI {
      * @return true if the move was successful, false otherwise
      */
     public boolean makeMove(int row, int col, char player) {
-        if (board[row][col] == ' ') {
-            board[row][col] = player;
-            return true;
+        int cell = row * size + col;
+        if (engine != null) {
+            if (engine.get(cell) != MNKEngine.EMPTY) {
+                return false;
+            }
+            engine.place(cell, player == 'X' ? MNKEngine.X : MNKEngine.O);
+        } else {
+            int bit = 1 << cell;
+            if (((xBits | oBits) & bit) != 0) {
+                return false;
+            }
+            int bits = (player == 'X') ? (xBits |= bit) : (oBits |= bit);
+            if (winningLine < 0) {
+                for (int line : CELL_LINES[cell]) {
+                    if ((bits & WIN_MASKS[line]) == WIN_MASKS[line]) {
+                        winningLine = line;
+                        winner = player;
+                        break;
+                    }
+                }
+            }
         }
-        return false;
+        moveHistory[moveCount++] = cell;
+        board[row][col] = player;
+        return true;
+    }
+
+    /*
+     * Take back the last move made on the board.
+     * @return true if a move was taken back, false if the board was empty
+     */
+    public boolean undoMove() {
+        if (moveCount == 0) return false;
+        int cell = moveHistory[--moveCount];
+        int row = cell / size;
+        int col = cell % size;
+        if (engine != null) {
+            engine.undo();
+        } else {
+            int bit = 1 << cell;
+            xBits &= ~bit;
+            oBits &= ~bit;
+            // Play stops at the first completed line, so only the move that completed it can undo the win.
+            if (winningLine >= 0 && (WIN_MASKS[winningLine] & bit) != 0) {
+                winningLine = -1;
+                winner = ' ';
+            }
+        }
+        board[row][col] = ' ';
+        return true;
     }
 
     /*
      * Get the best move for the AI based on the current board state and difficulty level.
+     * The AI plays whichever side is to move, so it works as both 'X' and 'O'.
+     * The search runs on the calling thread; use bestMoveAsync() to keep it off the Event Dispatch Thread.
      * @return an array containing the row and column indices of the best move
      */
     public int[] bestMove() {
-        if (difficulty.equals("Easy")) return randomMove();
-        if (difficulty.equals("Medium")) return smartMove('O');
-        return minimaxMove();
+        ExecutorService retired;
+        synchronized (this) {
+            retired = retiredExecutor;
+        }
+        if (retired != null) awaitTermination(retired);
+        return chooseMove(size, winLength, xBits, oBits, engine != null ? engine.copyCells() : null, NEVER);
+    }
+
+    /*
+     * Start choosing the best move on a background thread.
+     * The position is copied before this method returns, so the board may be painted, reset or
+     * changed while the search runs. Cancelling the returned future stops the search early;
+     * starting a new request or calling cancelPendingMove() cancels the previous one.
+     * The future completes on the background thread, so callers apply the move on their own thread.
+     * @return a future holding the row and column indices of the best move
+     */
+    public synchronized CompletableFuture<int[]> bestMoveAsync() {
+        cancelPendingMove();
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "TicTacToe AI");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ExecutorService retired = retiredExecutor;
+            if (retired != null) {
+                // The new thread starts searching only once the old one has stopped and released its engines.
+                executor.execute(() -> awaitTermination(retired));
+            }
+        }
+        int snapshotSize = size;
+        int snapshotWinLength = winLength;
+        int x = xBits;
+        int o = oBits;
+        byte[] cells = (engine != null) ? engine.copyCells() : null;
+        CompletableFuture<int[]> request = new CompletableFuture<>();
+        pendingMove = request;
+        executor.execute(() -> {
+            if (request.isDone()) return; // Cancelled before it started.
+            try {
+                request.complete(chooseMove(snapshotSize, snapshotWinLength, x, o, cells, request::isCancelled));
+            } catch (Throwable t) {
+                request.completeExceptionally(t);
+            }
+        });
+        return request;
+    }
+
+    /*
+     * Cancel the move requested by the last bestMoveAsync() call, if it is still running.
+     */
+    public synchronized void cancelPendingMove() {
+        if (pendingMove != null) {
+            pendingMove.cancel(false);
+            pendingMove = null;
+        }
+    }
+
+    /*
+     * Cancel any running search and stop the background threads. Call this when the game window closes.
+     * The AI can still be used afterwards; the next search waits for the stopped thread to finish,
+     * and threads are started again when needed.
+     */
+    public synchronized void shutdown() {
+        cancelPendingMove();
+        if (executor != null) {
+            // Let the running search see its cancellation, then release the search threads after it.
+            executor.execute(this::releaseSearchThreads);
+            executor.shutdown();
+            retiredExecutor = executor;
+            executor = null;
+        } else if (retiredExecutor == null || retiredExecutor.isTerminated()) {
+            releaseSearchThreads();
+        } // Otherwise the release queued by the previous call has yet to run.
+    }
+
+    /*
+     * Wait until an executor stopped by shutdown() has run its last task, keeping the thread's interrupt status.
+     * @param retired the stopped executor
+     */
+    private static void awaitTermination(ExecutorService retired) {
+        boolean interrupted = false;
+        while (!retired.isTerminated()) {
+            try {
+                retired.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private void releaseSearchThreads() {
+        if (parallelSearch != null) {
+            parallelSearch.shutdown();
+            parallelSearch = null;
+        }
+        if (mcts != null) {
+            mcts.shutdown();
+            mcts = null;
+        }
+    }
+
+    /*
+     * Load a snapshot of the position into the search state and choose a move for it.
+     * @param snapshotSize the board size when the snapshot was taken
+     * @param snapshotWinLength the win length when the snapshot was taken
+     * @param x the cells taken by 'X' on the 3x3 board
+     * @param o the cells taken by 'O' on the 3x3 board
+     * @param cells the stones of a larger board, or null on the 3x3 board
+     * @param stop polled during long searches; the search stops early when it returns true
+     * @return an array containing the row and column indices of the chosen move
+     */
+    private int[] chooseMove(int snapshotSize, int snapshotWinLength, int x, int o, byte[] cells, BooleanSupplier stop) {
+        searchSize = snapshotSize;
+        boolean borrowed = threadEngines;
+        if (cells != null) {
+            MNKEngine reused = borrowed ? THREAD_SEARCH_ENGINE.get() : searchEngine;
+            if (reused == null || reused.getRows() != snapshotSize || reused.getWinLength() != snapshotWinLength) {
+                reused = borrowed ? new MNKEngine(snapshotSize, snapshotSize, snapshotWinLength, THREAD_TABLE_CAPACITY)
+                        : new MNKEngine(snapshotSize, snapshotSize, snapshotWinLength);
+                if (borrowed) THREAD_SEARCH_ENGINE.set(reused);
+            }
+            searchEngine = reused;
+            searchEngine.loadCells(cells);
+        } else {
+            searchEngine = null;
+            searchX = x;
+            searchO = o;
+        }
+        stopCondition = stop;
+        String chosenBy = difficulty;
+        long start = System.nanoTime();
+        statNodes = statAlphaCutoffs = statBetaCutoffs = statTableHits = statTableProbes = 0;
+        statMaxDepth = 0;
+        int[] move;
+        try {
+            if (chosenBy.equals("Easy")) move = randomMove();
+            else if (chosenBy.equals("Medium")) move = smartMove(sideToMove());
+            else if (chosenBy.equals("Monte Carlo")) move = monteCarloMove();
+            else move = minimaxMove();
+        } finally {
+            stopCondition = NEVER;
+            if (borrowed) searchEngine = null; // The thread's engine goes on to other AIs.
+        }
+        statNanos = System.nanoTime() - start;
+        statDifficulty = chosenBy;
+        statMove = move;
+        statCancelled = stop.getAsBoolean();
+        if (!searchListeners.isEmpty()) {
+            SearchStats stats = getLastSearchStats();
+            for (SearchListener listener : searchListeners) {
+                listener.searchFinished(stats);
+            }
+        }
+        return move;
+    }
+
+    /*
+     * Register a listener that is told about the work done for every move this AI chooses.
+     * @param listener the listener to add
+     */
+    public void addSearchListener(SearchListener listener) {
+        searchListeners.add(listener);
+    }
+
+    /*
+     * Remove a listener added with addSearchListener().
+     * @param listener the listener to remove
+     */
+    public void removeSearchListener(SearchListener listener) {
+        searchListeners.remove(listener);
+    }
+
+    /*
+     * Get the statistics of the last move this AI chose.
+     * Call it on the thread that called bestMove(), or after the future of bestMoveAsync() has completed.
+     * @return the statistics of the last search
+     */
+    public SearchStats getLastSearchStats() {
+        return new SearchStats(statDifficulty, searchSize, statMove[0], statMove[1], statNodes, statAlphaCutoffs,
+                statBetaCutoffs, statMaxDepth, statTableHits, statTableProbes, statNanos, statCancelled);
+    }
+
+    /*
+     * Work out whose turn it is in the search position from the piece counts. 'X' always moves first.
+     * @return the player to move ('X' or 'O')
+     */
+    private char sideToMove() {
+        if (searchEngine != null) return searchEngine.sideToMove() == MNKEngine.X ? 'X' : 'O';
+        return Integer.bitCount(searchX) == Integer.bitCount(searchO) ? 'X' : 'O';
     }
 
     /*
@@ -74,12 +489,22 @@ public class TicTacToeAI {
      * @return an array containing the row and column indices of the random move
      */
     private int[] randomMove() {
-        int row, col;
-        do {
-            row = random.nextInt(3);
-            col = random.nextInt(3);
-        } while (board[row][col] != ' ');
-        return new int[]{row, col};
+        if (searchEngine != null) {
+            int empty = searchEngine.getCellCount() - searchEngine.getMoveCount();
+            if (empty == 0) return new int[]{-1, -1};
+            int n = random.nextInt(empty);
+            for (int cell = 0; ; cell++) {
+                if (searchEngine.get(cell) == MNKEngine.EMPTY && n-- == 0) return new int[]{cell / searchSize, cell % searchSize};
+            }
+        }
+        int free = ~(searchX | searchO) & FULL_MASK;
+        if (free == 0) return new int[]{-1, -1};
+        // Pick the n-th empty cell directly instead of retrying random cells.
+        for (int n = random.nextInt(Integer.bitCount(free)); n > 0; n--) {
+            free &= free - 1;
+        }
+        int cell = Integer.numberOfTrailingZeros(free);
+        return new int[]{cell / 3, cell % 3};
     }
 
     /*
@@ -88,53 +513,182 @@ public class TicTacToeAI {
      * @return an array containing the row and column indices of the smart move
      */
     private int[] smartMove(char aiPlayer) {
-        char opponent = (aiPlayer == 'X') ? 'O' : 'X';  // AI can be 'X' or 'O'
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (board[i][j] == ' ') {
-                    board[i][j] = aiPlayer;
-                    if (checkWin(aiPlayer)) {
-                        board[i][j] = ' ';
-                        return new int[]{i, j};
-                    }
-                    board[i][j] = opponent;
-                    if (checkWin(opponent)) {
-                        board[i][j] = ' ';
-                        return new int[]{i, j};
-                    }
-                    board[i][j] = ' ';
+        if (searchEngine != null) {
+            int ai = (aiPlayer == 'X') ? MNKEngine.X : MNKEngine.O;
+            int opponent = (aiPlayer == 'X') ? MNKEngine.O : MNKEngine.X;
+            for (int cell = 0; cell < searchEngine.getCellCount(); cell++) {
+                if (searchEngine.get(cell) == MNKEngine.EMPTY
+                        && (searchEngine.completesLine(cell, ai) || searchEngine.completesLine(cell, opponent))) {
+                    return new int[]{cell / searchSize, cell % searchSize};
                 }
             }
+            return randomMove();
+        }
+        int ai = (aiPlayer == 'X') ? searchX : searchO;
+        int opponent = (aiPlayer == 'X') ? searchO : searchX;  // AI can be 'X' or 'O'
+        int free = ~(searchX | searchO) & FULL_MASK;
+        while (free != 0) {
+            int cell = Integer.numberOfTrailingZeros(free);
+            int bit = 1 << cell;
+            if (hasWin(ai | bit) || hasWin(opponent | bit)) {
+                return new int[]{cell / 3, cell % 3};
+            }
+            free &= free - 1;
         }
         return randomMove();
     }
     
     /*
      * Make the best move on the board using the minimax algorithm.
+     * If the precomputed perfect-play table is available the move is a single lookup,
+     * otherwise the position is searched live.
      * @return an array containing the row and column indices of the best move
      */
     private int[] minimaxMove() {
+        if (searchEngine != null) {
+            int cell;
+            int threads = threadEngines ? 1 : searchThreads;
+            if (threads > 1) {
+                if (parallelSearch != null && parallelSearch.getThreads() != threads) {
+                    parallelSearch.shutdown();
+                    parallelSearch = null;
+                }
+                if (parallelSearch == null) parallelSearch = new ParallelSearch(threads);
+                parallelSearch.setStopCondition(stopCondition);
+                cell = parallelSearch.search(searchEngine, moveTimeMillis, nodeLimit, searchEngine.getCellCount());
+                statNodes = parallelSearch.getLastNodes();
+                statAlphaCutoffs = parallelSearch.getLastAlphaCutoffs();
+                statBetaCutoffs = parallelSearch.getLastBetaCutoffs();
+                statMaxDepth = parallelSearch.getLastMaxPly();
+                statTableHits = parallelSearch.getLastTableHits();
+                statTableProbes = parallelSearch.getLastTableProbes();
+            } else {
+                TranspositionTable searchTable = searchEngine.getTranspositionTable();
+                long hits = searchTable.getHits();
+                long probes = hits + searchTable.getMisses();
+                searchEngine.setStopCondition(stopCondition);
+                cell = searchEngine.search(moveTimeMillis, nodeLimit);
+                statNodes = searchEngine.getLastNodes();
+                statAlphaCutoffs = searchEngine.getLastAlphaCutoffs();
+                statBetaCutoffs = searchEngine.getLastBetaCutoffs();
+                statMaxDepth = searchEngine.getLastMaxPly();
+                statTableHits = searchTable.getHits() - hits;
+                statTableProbes = searchTable.getHits() + searchTable.getMisses() - probes;
+            }
+            if (cell == -1) return new int[]{-1, -1};
+            return new int[]{cell / searchSize, cell % searchSize};
+        }
         if (isBoardEmpty()) {
             return chooseRandomStrongOpening();
         }
-    
+
+        int cell = (PERFECT_PLAY != null) ? PERFECT_PLAY.bestCell(searchX, searchO) : -1;
+        if (cell == -1) {
+            cell = searchBestCell();
+        }
+        if (cell == -1) return new int[]{-1, -1};
+        return new int[]{cell / 3, cell % 3};
+    }
+
+    /*
+     * Search the 3x3 search position for the side to move.
+     * The score of the chosen move is kept and can be read with getLastSearchScore().
+     * @return the best cell index (row * 3 + col), or -1 if the board is full
+     */
+    int searchBestCell() {
+        char aiPlayer = sideToMove();
+        int ai = (aiPlayer == 'X') ? searchX : searchO;
+        int opponent = (aiPlayer == 'X') ? searchO : searchX;
+        if (table == null) table = new TranspositionTable(1 << 13);
+        table.newSearch();
+        long hits = table.getHits();
+        long probes = hits + table.getMisses();
+
         int bestScore = Integer.MIN_VALUE;
-        int[] bestMove = {-1, -1};
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (board[i][j] == ' ') {
-                    board[i][j] = 'O';
-                    int score = minimax(false, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
-                    board[i][j] = ' ';
-                    if (score > bestScore) {
-                        bestScore = score;
-                        bestMove[0] = i;
-                        bestMove[1] = j;
-                    }
-                }
+        int bestCell = -1;
+        int free = ~(ai | opponent) & FULL_MASK;
+        while (free != 0) {
+            int cell = Integer.numberOfTrailingZeros(free);
+            free &= free - 1;
+            // A move scoring no better than the current best cannot replace it, so it may fail low.
+            int score = minimax(ai | (1 << cell), opponent, false, 0, bestScore, Integer.MAX_VALUE);
+            if (score > bestScore) {
+                bestScore = score;
+                bestCell = cell;
             }
         }
-        return bestMove;
+        lastSearchScore = (bestCell == -1) ? 0 : bestScore;
+        statTableHits = table.getHits() - hits;
+        statTableProbes = table.getHits() + table.getMisses() - probes;
+        return bestCell;
+    }
+
+    /*
+     * Get the minimax score of the move chosen by the last live search, from the point of view of the side that moved.
+     * Positive scores are wins, negative scores are losses and 0 is a draw.
+     * @return the score of the last searched move
+     */
+    int getLastSearchScore() {
+        return lastSearchScore;
+    }
+
+    /*
+     * Replace the 3x3 position, and the search position, with the given bitboards.
+     * @param x the cells taken by 'X'
+     * @param o the cells taken by 'O'
+     */
+    void loadPosition(int x, int o) {
+        resetBoard();
+        int xs = x & FULL_MASK;
+        int os = o & FULL_MASK & ~xs;
+        for (int cell = 0; cell < 9; cell++) {
+            int bit = 1 << cell;
+            if ((xs & bit) != 0) makeMove(cell / 3, cell % 3, 'X');
+            if ((os & bit) != 0) makeMove(cell / 3, cell % 3, 'O');
+        }
+        searchX = xBits;
+        searchO = oBits;
+        searchEngine = null;
+    }
+
+    /*
+     * Make a move chosen by Monte Carlo Tree Search, within the playout budget and the move time limit.
+     * On the 3x3 board the bitboards are copied into a scratch MNKEngine first.
+     * @return an array containing the row and column indices of the chosen move
+     */
+    private int[] monteCarloMove() {
+        MCTSEngine mcts;
+        if (threadEngines) {
+            mcts = THREAD_MCTS.get();
+            if (mcts == null) {
+                mcts = new MCTSEngine(1); // Runs on the calling thread.
+                THREAD_MCTS.set(mcts);
+            }
+        } else {
+            int threads = searchThreads;
+            if (this.mcts != null && this.mcts.getThreads() != threads) {
+                this.mcts.shutdown();
+                this.mcts = null;
+            }
+            if (this.mcts == null) this.mcts = new MCTSEngine(threads);
+            mcts = this.mcts;
+        }
+        mcts.setPlayoutLimit(mctsPlayouts);
+        mcts.setTimeLimitMillis(moveTimeMillis);
+        mcts.setStopCondition(stopCondition);
+        MNKEngine position = searchEngine;
+        if (position == null) {
+            position = new MNKEngine(3, 3, 3, 0);
+            for (int cell = 0; cell < 9; cell++) {
+                if ((searchX & (1 << cell)) != 0) position.place(cell, MNKEngine.X);
+                if ((searchO & (1 << cell)) != 0) position.place(cell, MNKEngine.O);
+            }
+        }
+        int cell = mcts.search(position);
+        statNodes = mcts.getLastPlayouts();
+        statMaxDepth = mcts.getLastMaxDepth();
+        if (cell == -1) return new int[]{-1, -1};
+        return new int[]{cell / searchSize, cell % searchSize};
     }
 
     /*
@@ -154,68 +708,181 @@ public class TicTacToeAI {
     }
 
     /*
-     * Check if the board is empty.
+     * Check if the search position is empty.
      * @return true if the board is empty, false otherwise
      */
     private boolean isBoardEmpty() {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (board[i][j] != ' ') {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return (searchX | searchO) == 0;
     }
 
     /*
      * Minimax algorithm with alpha-beta pruning to determine the best move for the AI.
+     * The position is passed in as two bitboards, so the search never touches the board fields and allocates nothing.
+     * Results are cached in the transposition table under the position's canonical symmetry key,
+     * together with whether the score is exact or only a bound of the alpha-beta window it was searched with.
+     * @param ai the cells taken by the AI
+     * @param opponent the cells taken by the opponent
      * @param isMaximizing true if the AI is maximizing, false if the AI is minimizing
      * @param depth the current depth of the minimax algorithm
      * @param alpha the best already explored option along the path to the root for the maximizer
      * @param beta the best already explored option along the path to the root for the minimizer
      * @return the score of the best move
      */
-    private int minimax(boolean isMaximizing, int depth, int alpha, int beta) {
-        if (checkWin('O')) return 10 - depth;    // Quicker O-wins are better
-        if (checkWin('X')) return depth - 10;      // Quicker X-wins are worse for O
-        if (isFull()) return 0;
-    
+    private int minimax(int ai, int opponent, boolean isMaximizing, int depth, int alpha, int beta) {
+        statNodes++;
+        if (depth >= statMaxDepth) statMaxDepth = depth + 1; // depth 0 is one move below the current position.
+        if (hasWin(ai)) return 10 - depth;          // Quicker AI wins are better
+        if (hasWin(opponent)) return depth - 10;    // Quicker opponent wins are worse for the AI
+        int free = ~(ai | opponent) & FULL_MASK;
+        if (free == 0) return 0;
+
+        long key = canonicalKey(ai, opponent, isMaximizing);
+        int slot = table.probe(key);
+        if (slot >= 0) {
+            int cached = fromTableScore(table.scoreAt(slot), depth);
+            int bound = table.boundAt(slot);
+            if (bound == TranspositionTable.EXACT) return cached;
+            if (bound == TranspositionTable.LOWER) alpha = Math.max(alpha, cached);
+            else beta = Math.min(beta, cached);
+            if (beta <= alpha) return cached;
+        }
+        int alphaOrig = alpha;
+        int betaOrig = beta;
+
+        int bestScore;
         if (isMaximizing) {
-            int bestScore = Integer.MIN_VALUE;
-            for (int i = 0; i < 3; i++) {
-                for (int j = 0; j < 3; j++) {
-                    if (board[i][j] == ' ') {
-                        board[i][j] = 'O';
-                        int score = minimax(false, depth + 1, alpha, beta);
-                        board[i][j] = ' ';
-                        bestScore = Math.max(bestScore, score);
-                        alpha = Math.max(alpha, score);
-                        if (beta <= alpha) { // Beta cutoff.
-                            return bestScore;
-                        }
-                    }
+            bestScore = Integer.MIN_VALUE;
+            while (free != 0) {
+                int bit = free & -free;
+                free ^= bit;
+                int score = minimax(ai | bit, opponent, false, depth + 1, alpha, beta);
+                bestScore = Math.max(bestScore, score);
+                alpha = Math.max(alpha, score);
+                if (beta <= alpha) { // Beta cutoff.
+                    statBetaCutoffs++;
+                    break;
                 }
             }
-            return bestScore;
         } else {
-            int bestScore = Integer.MAX_VALUE;
-            for (int i = 0; i < 3; i++) {
-                for (int j = 0; j < 3; j++) {
-                    if (board[i][j] == ' ') {
-                        board[i][j] = 'X';
-                        int score = minimax(true, depth + 1, alpha, beta);
-                        board[i][j] = ' ';
-                        bestScore = Math.min(bestScore, score);
-                        beta = Math.min(beta, score);
-                        if (beta <= alpha) { // Alpha cutoff.
-                            return bestScore;
-                        }
+            bestScore = Integer.MAX_VALUE;
+            while (free != 0) {
+                int bit = free & -free;
+                free ^= bit;
+                int score = minimax(ai, opponent | bit, true, depth + 1, alpha, beta);
+                bestScore = Math.min(bestScore, score);
+                beta = Math.min(beta, score);
+                if (beta <= alpha) { // Alpha cutoff.
+                    statAlphaCutoffs++;
+                    break;
+                }
+            }
+        }
+
+        int bound = TranspositionTable.EXACT;
+        if (bestScore <= alphaOrig) bound = TranspositionTable.UPPER;
+        else if (bestScore >= betaOrig) bound = TranspositionTable.LOWER;
+        table.store(key, toTableScore(bestScore, depth), bound, Integer.bitCount(~(ai | opponent) & FULL_MASK));
+        return bestScore;
+    }
+
+    /*
+     * Convert a root-relative score into one relative to the current node before caching it,
+     * so the same position reached at a different depth still gets the right win distance.
+     */
+    private static int toTableScore(int score, int depth) {
+        if (score > 0) return score + depth;
+        if (score < 0) return score - depth;
+        return 0;
+    }
+
+    /*
+     * Convert a cached node-relative score back into a root-relative score.
+     */
+    private static int fromTableScore(int score, int depth) {
+        if (score > 0) return score - depth;
+        if (score < 0) return score + depth;
+        return 0;
+    }
+
+    /*
+     * Build the transposition table key of a position.
+     * The key is the smallest encoding of the position over all 8 rotations and reflections,
+     * plus the side to move.
+     * @param ai the cells taken by the AI
+     * @param opponent the cells taken by the opponent
+     * @param isMaximizing true if the AI is to move
+     * @return the canonical key
+     */
+    private static long canonicalKey(int ai, int opponent, boolean isMaximizing) {
+        int best = Integer.MAX_VALUE;
+        for (short[] symmetry : SYMMETRIES) {
+            int code = symmetry[ai] | (symmetry[opponent] << 9);
+            if (code < best) best = code;
+        }
+        return isMaximizing ? best | (1L << 18) : best;
+    }
+
+    /*
+     * Precompute how every 9-bit mask maps under the 8 symmetries of the square.
+     * @return the lookup table indexed by symmetry and then by mask
+     */
+    private static short[][] buildSymmetries() {
+        short[][] result = new short[8][FULL_MASK + 1];
+        for (int s = 0; s < 8; s++) {
+            int[] cellMap = new int[9];
+            for (int row = 0; row < 3; row++) {
+                for (int col = 0; col < 3; col++) {
+                    int r = row, c = col;
+                    for (int turn = 0; turn < (s & 3); turn++) { // Rotate 90 degrees clockwise.
+                        int t = r;
+                        r = c;
+                        c = 2 - t;
                     }
+                    if (s >= 4) c = 2 - c; // Mirror left to right.
+                    cellMap[row * 3 + col] = r * 3 + c;
                 }
             }
-            return bestScore;
+            for (int bits = 0; bits <= FULL_MASK; bits++) {
+                int mapped = 0;
+                for (int cell = 0; cell < 9; cell++) {
+                    if ((bits & (1 << cell)) != 0) mapped |= 1 << cellMap[cell];
+                }
+                result[s][bits] = (short) mapped;
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Precompute which winning lines pass through each cell.
+     * @return the line indices for every cell
+     */
+    private static int[][] buildCellLines() {
+        int[][] cellLines = new int[9][];
+        for (int cell = 0; cell < 9; cell++) {
+            int count = 0;
+            for (int mask : WIN_MASKS) {
+                if ((mask & (1 << cell)) != 0) count++;
+            }
+            cellLines[cell] = new int[count];
+            count = 0;
+            for (int line = 0; line < WIN_MASKS.length; line++) {
+                if ((WIN_MASKS[line] & (1 << cell)) != 0) cellLines[cell][count++] = line;
+            }
+        }
+        return cellLines;
+    }
+
+    /*
+     * Check if a set of cells contains a complete winning line.
+     * @param bits the cells taken by one player
+     * @return true if any winning mask is fully covered
+     */
+    private static boolean hasWin(int bits) {
+        for (int mask : WIN_MASKS) {
+            if ((bits & mask) == mask) return true;
         }
+        return false;
     }
 
     /*
@@ -224,12 +891,19 @@ public class TicTacToeAI {
      * @return true if the player has won, false otherwise
      */
     public boolean checkWin(char player) {
-        for (int i = 0; i < 3; i++) {
-            if (board[i][0] == player && board[i][1] == player && board[i][2] == player) return true;
-            if (board[0][i] == player && board[1][i] == player && board[2][i] == player) return true;
+        return getWinner() == player;
+    }
+
+    /*
+     * Get the player who completed a line. This is a constant-time lookup of the line counters.
+     * @return 'X' or 'O', or ' ' if nobody has won yet
+     */
+    public char getWinner() {
+        if (engine != null) {
+            int side = engine.getWinner();
+            return side == MNKEngine.X ? 'X' : side == MNKEngine.O ? 'O' : ' ';
         }
-        return (board[0][0] == player && board[1][1] == player && board[2][2] == player) ||
-               (board[0][2] == player && board[1][1] == player && board[2][0] == player);
+        return winner;
     }
 
     /*
@@ -237,20 +911,75 @@ public class TicTacToeAI {
      * @return true if the board is full, false otherwise
      */
     public boolean isFull() {
-        for (char[] row : board)
-            for (char cell : row)
-                if (cell == ' ') return false;
-        return true;
+        return moveCount == size * size;
     }
 
     /*
-     * Get the winning line on the board.
-     * @return an array containing the row and column indices of the winning line
+     * Check if the game has ended in a draw: the board is full and nobody has won.
+     * @return true if the game is drawn
+     */
+    public boolean isDraw() {
+        return isFull() && getWinner() == ' ';
+    }
+
+    /*
+     * Check if the game has ended, with a win or a draw.
+     * @return true if no more moves should be played
+     */
+    public boolean isGameOver() {
+        return getWinner() != ' ' || isFull();
+    }
+
+    /*
+     * Get the number of moves played on the board so far.
+     * @return the move count
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /*
+     * Get the cells played so far, in the order they were played, as row * size + col.
+     * @return a new array with one cell per move
+     */
+    public int[] getMoveHistory() {
+        return Arrays.copyOf(moveHistory, moveCount);
+    }
+
+    /*
+     * Get the current board as a grid of 'X', 'O' and ' ' characters.
+     * @return the board grid
      */
     public char[][] getBoard() {
         return board;
     }
 
+    /*
+     * Get the transposition table shared by every search of this AI, including its hit and miss counts.
+     * It is kept across rounds, so later games reuse positions solved in earlier ones.
+     * @return the transposition table, or null if this AI has not searched yet
+     */
+    public TranspositionTable getTranspositionTable() {
+        MNKEngine searched = searchEngine;
+        return (searched != null) ? searched.getTranspositionTable() : table;
+    }
+
+    /*
+     * Get the number of rows and columns of the board.
+     * @return the board size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /*
+     * Get the number of symbols in a row needed to win.
+     * @return the win length
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
     /*
      * Get the difficulty level of the AI.
      * @return the difficulty level of the AI (Easy, Medium, Unbeatable)
@@ -264,25 +993,7 @@ public class TicTacToeAI {
      * @return an array containing the row and column indices of the winning line
      */
     public int[] getWinningLine() {
-        for (int i = 0; i < 3; i++) {
-            // Check rows
-            if (board[i][0] != ' ' && board[i][0] == board[i][1] && board[i][1] == board[i][2]) {
-                return new int[] { i, 0, i, 2 };
-            }
-        }
-        for (int j = 0; j < 3; j++) {
-            // Check columns
-            if (board[0][j] != ' ' && board[0][j] == board[1][j] && board[1][j] == board[2][j]) {
-                return new int[] { 0, j, 2, j };
-            }
-        }
-        // Check diagonals
-        if (board[0][0] != ' ' && board[0][0] == board[1][1] && board[1][1] == board[2][2]) {
-            return new int[] { 0, 0, 2, 2 };
-        }
-        if (board[0][2] != ' ' && board[0][2] == board[1][1] && board[1][1] == board[2][0]) {
-            return new int[] { 0, 2, 2, 0 };
-        }
-        return null;
+        if (engine != null) return engine.getWinningLine();
+        return (winningLine >= 0) ? WIN_LINES[winningLine].clone() : null;
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,21 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.util.Arrays;
 
 /*
  * TicTacToeFrame class represents the main frame for the Tic-Tac-Toe game.
  * The frame contains the game panel, score label, and reset button.
  * The frame communicates with the TicTacToeAI and TicTacToePanel classes to update the game state.
  * The frame handles the score tracking and game reset functionality.
- * The frame allows the player to choose the AI difficulty level and their symbol.
+ * The frame allows the player to choose the AI difficulty level, the board size and their symbol.
  * The frame swaps the player and AI symbols every round.
  * The frame can be reset to start a new game.
+ * Pressing F3 shows a debug line under the score with the search statistics of the AI's last move
+ * (start with -Dtictactoe.stats=true to show it from the beginning). The same statistics are published over JMX.
+ * Every finished round is appended to the game log (see GameLog).
  */
 public class TicTacToeFrame extends JFrame {
 
@@ -18,9 +23,22 @@ public class TicTacToeFrame extends JFrame {
     private TicTacToePanel panel;
     private JLabel scoreLabel;
     private JButton resetButton;
+    private JPanel bottomPanel;
+    private JLabel statsLabel;
+    private SearchMonitor searchMonitor;
+    private boolean statsVisible = Boolean.getBoolean("tictactoe.stats");
+    private static final int BOTTOM_ROW_HEIGHT = 40;
     private int playerScore = 0, aiScore = 0;
     private char playerSymbol = 'X', aiSymbol = 'O'; // Player & AI roles
+    // Difficulties on offer; the game log stores a difficulty as its index here.
+    static final String[] DIFFICULTIES = {"Easy", "Medium", "Unbeatable", "Monte Carlo"};
+    // Board sizes on offer: label, size and number in a row needed to win.
+    private static final String[] BOARD_OPTIONS = {"3x3 (3 in a row)", "9x9 (5 in a row)", "15x15 Gomoku (5 in a row)"};
+    private static final int[] BOARD_SIZES = {3, 9, 15};
+    private static final int[] BOARD_WIN_LENGTHS = {3, 5, 5};
+    private static final int[] FRAME_SIZES = {420, 540, 640}; // Frame width; the height adds room for the bottom panel.
     private boolean launchGameLauncherOnClose = true; // flag to control reopening the launcher
+    private long roundStartMillis = System.currentTimeMillis();
     
     /* 
      * Static block to set the UI look and feel for the frame.
@@ -81,11 +99,32 @@ public class TicTacToeFrame extends JFrame {
         resetButton.setFocusPainted(false);
         resetButton.addActionListener(e -> resetGame());
 
+        // Debug line with the statistics of the AI's last search, toggled with F3
+        statsLabel = new JLabel("No search yet", SwingConstants.CENTER);
+        statsLabel.setForeground(Color.LIGHT_GRAY);
+        statsLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+        statsLabel.setOpaque(true);
+        statsLabel.setBackground(new Color(30, 30, 30));
+        searchMonitor = new SearchMonitor();
+        searchMonitor.register();
+        game.addSearchListener(searchMonitor);
+        game.addSearchListener(stats -> SwingUtilities.invokeLater(() -> statsLabel.setText(stats.toString())));
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("F3"), "toggleStats");
+        getRootPane().getActionMap().put("toggleStats", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                toggleStats();
+            }
+        });
+
         // UI layout
-        JPanel bottomPanel = new JPanel(new GridLayout(2, 1));
+        bottomPanel = new JPanel(new GridLayout(0, 1));
         bottomPanel.setBackground(new Color(30, 30, 30));
         bottomPanel.add(scoreLabel);
         bottomPanel.add(resetButton);
+        if (statsVisible) {
+            bottomPanel.add(statsLabel);
+        }
 
         setLayout(new BorderLayout());
         add(panel, BorderLayout.CENTER);
@@ -95,6 +134,10 @@ public class TicTacToeFrame extends JFrame {
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosed(WindowEvent e) {
+                // Stop any AI search still running in the background.
+                panel.cancelAIMove();
+                game.shutdown();
+                searchMonitor.unregister();
                 if (launchGameLauncherOnClose) {
                     new GameLauncher().setVisible(true);
                 }
@@ -157,16 +200,33 @@ public class TicTacToeFrame extends JFrame {
         diffLabel.setFont(new Font("Arial", Font.BOLD, 18));
         difficultyPanel.add(diffLabel);
 
-        String[] diffOptions = {"Easy", "Medium", "Unbeatable"};
-        JComboBox<String> diffCombo = new JComboBox<>(diffOptions);
+        JComboBox<String> diffCombo = new JComboBox<>(DIFFICULTIES);
         diffCombo.setBackground(new Color(30, 30, 30));
         diffCombo.setForeground(Color.WHITE);
         diffCombo.setFont(new Font("Arial", Font.PLAIN, 16));
         difficultyPanel.add(diffCombo);
 
+        JLabel boardLabel = new JLabel("Choose Board:");
+        boardLabel.setForeground(Color.WHITE);
+        boardLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        difficultyPanel.add(boardLabel);
+
+        JComboBox<String> boardCombo = new JComboBox<>(BOARD_OPTIONS);
+        boardCombo.setBackground(new Color(30, 30, 30));
+        boardCombo.setForeground(Color.WHITE);
+        boardCombo.setFont(new Font("Arial", Font.PLAIN, 16));
+        for (int i = 0; i < BOARD_SIZES.length; i++) {
+            if (BOARD_SIZES[i] == game.getSize()) boardCombo.setSelectedIndex(i);
+        }
+        difficultyPanel.add(boardCombo);
+
         int diffConfirm = showCustomConfirmDialog(this, difficultyPanel, "Difficulty Selection");
         if(diffConfirm == JOptionPane.OK_OPTION) {
             game.setDifficulty((String) diffCombo.getSelectedItem());
+            int board = boardCombo.getSelectedIndex();
+            game.setBoardSize(BOARD_SIZES[board], BOARD_WIN_LENGTHS[board]);
+            setSize(FRAME_SIZES[board], FRAME_SIZES[board] + bottomHeight());
+            setLocationRelativeTo(null);
         } else {
             // Dispose this frame and open the launcher if user cancels/closes the dialog
             launchGameLauncherOnClose = false;
@@ -174,7 +234,7 @@ public class TicTacToeFrame extends JFrame {
             new GameLauncher().setVisible(true);
             return;
         }
-        setTitle("Tic-Tac-Toe AI - " + game.getDifficulty());
+        setTitle("Tic-Tac-Toe AI - " + game.getDifficulty() + " - " + game.getSize() + "x" + game.getSize());
 
         // Custom panel for symbol selection
         JPanel symbolPanel = new JPanel(new GridLayout(0, 1, 10, 10));
@@ -220,6 +280,28 @@ public class TicTacToeFrame extends JFrame {
         }
     }
 
+    /*
+     * Get the height of the bottom panel: the score and reset rows, plus the debug line when it is shown.
+     */
+    private int bottomHeight() {
+        return BOTTOM_ROW_HEIGHT * (statsVisible ? 3 : 2);
+    }
+
+    /*
+     * Show or hide the debug line with the AI's search statistics.
+     */
+    private void toggleStats() {
+        int boardHeight = getHeight() - bottomHeight();
+        statsVisible = !statsVisible;
+        if (statsVisible) {
+            bottomPanel.add(statsLabel);
+        } else {
+            bottomPanel.remove(statsLabel);
+        }
+        setSize(getWidth(), boardHeight + bottomHeight());
+        bottomPanel.revalidate();
+    }
+
     /*
      * Update the score label with the current player and AI scores.
      */
@@ -232,13 +314,26 @@ public class TicTacToeFrame extends JFrame {
         scoreLabel.setText("Player: " + playerScore + " | AI: " + aiScore);
     }
 
+    /*
+     * Append the round that just ended to the game log. The file is written in the background.
+     * @param result GameLog.WIN, GameLog.LOSS or GameLog.DRAW, seen from the player's side
+     */
+    public void logRound(int result) {
+        int[] moves = game.getMoveHistory();
+        GameLog.record(GameLog.TIC_TAC_TOE, result, game.getSize(), Arrays.asList(DIFFICULTIES).indexOf(game.getDifficulty()),
+                playerSymbol == 'X' ? 0 : GameLog.PLAYER_SECOND, moves.length,
+                System.currentTimeMillis() - roundStartMillis, moves, moves.length);
+    }
+
     /*
      * Reset the game to start a new round.
      */
     public void resetGame() {
+        panel.cancelAIMove();
         askGameSettings();
         game.resetBoard();
         panel.resetPanel(playerSymbol, aiSymbol);
+        roundStartMillis = System.currentTimeMillis();
         playerScore = 0;
         aiScore = 0;
         scoreLabel.setText("Player: 0 | AI: 0");
@@ -251,6 +346,7 @@ public class TicTacToeFrame extends JFrame {
         swapTurns();
         game.resetBoard();
         panel.resetPanel(playerSymbol, aiSymbol);
+        roundStartMillis = System.currentTimeMillis();
     }
 
     /*
@@ -1,6 +1,7 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.concurrent.CompletableFuture;
 
 /*
  * TicTacToePanel class represents the panel where the Tic-Tac-Toe game is displayed.
@@ -9,12 +10,15 @@ import java.awt.event.*;
  * The panel handles mouse events to allow the player to make moves.
  * The panel also handles the AI moves and updates the game state accordingly.
  * The panel can be reset to start a new game.
+ * The panel draws boards of any size supported by the TicTacToeAI.
  */
 public class TicTacToePanel extends JPanel implements MouseListener {
     private TicTacToeAI game;
     private TicTacToeFrame frame;
     private char playerSymbol, aiSymbol;
     private boolean playerTurn;
+    private Timer aiTimer;
+    private CompletableFuture<int[]> pendingMove; // The AI move being searched, or null.
 
     /*
      * Constructor to create a new TicTacToePanel object with the specified game, frame, player symbol, and AI symbol.
@@ -44,52 +48,61 @@ public class TicTacToePanel extends JPanel implements MouseListener {
         g2d.fillRect(0, 0, getWidth(), getHeight());
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        int cellW = getWidth() / 3;
-        int cellH = getHeight() / 3;
+        int size = game.getSize();
+        int cellW = getWidth() / size;
+        int cellH = getHeight() / size;
+        int cell = Math.min(cellW, cellH);
+        int gridWidth = (size <= 3) ? 4 : 2;
 
         // Draw board grid
         g2d.setColor(Color.WHITE);
-        g2d.fillRect(cellW, 0, 4, getHeight());
-        g2d.fillRect(cellW * 2, 0, 4, getHeight());
-        g2d.fillRect(0, cellH, getWidth(), 4);
-        g2d.fillRect(0, cellH * 2, getWidth(), 4);
+        for (int i = 1; i < size; i++) {
+            g2d.fillRect(cellW * i, 0, gridWidth, getHeight());
+            g2d.fillRect(0, cellH * i, getWidth(), gridWidth);
+        }
+
+        // Symbol sizes shrink with the cells; on the 3x3 board they keep their original size.
+        int xHalf = Math.min(20, cell / 3);
+        int oRadius = Math.min(25, cell * 2 / 5);
+        int outline = Math.min(7, Math.max(3, cell / 8));
+        int stroke = outline - 2;
 
         // Draw X and O symbols
         char[][] board = game.getBoard();
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
                 int centerX = j * cellW + cellW / 2;
                 int centerY = i * cellH + cellH / 2;
                 if (board[i][j] == 'X') {
                     // Existing drawing code for X
                     GradientPaint gpX = new GradientPaint(
-                        centerX - 20, centerY - 20, new Color(0, 255, 255), 
-                        centerX + 20, centerY + 20, new Color(0, 0, 255), true
+                        centerX - xHalf, centerY - xHalf, new Color(0, 255, 255), 
+                        centerX + xHalf, centerY + xHalf, new Color(0, 0, 255), true
                     );
                     // White outline
-                    g2d.setStroke(new BasicStroke(7));
+                    g2d.setStroke(new BasicStroke(outline));
                     g2d.setColor(Color.WHITE);
-                    g2d.drawLine(centerX - 20, centerY - 20, centerX + 20, centerY + 20);
-                    g2d.drawLine(centerX + 20, centerY - 20, centerX - 20, centerY + 20);
+                    g2d.drawLine(centerX - xHalf, centerY - xHalf, centerX + xHalf, centerY + xHalf);
+                    g2d.drawLine(centerX + xHalf, centerY - xHalf, centerX - xHalf, centerY + xHalf);
                     // Gradient X
                     g2d.setPaint(gpX);
-                    g2d.setStroke(new BasicStroke(5));
-                    g2d.drawLine(centerX - 20, centerY - 20, centerX + 20, centerY + 20);
-                    g2d.drawLine(centerX + 20, centerY - 20, centerX - 20, centerY + 20);
+                    g2d.setStroke(new BasicStroke(stroke));
+                    g2d.drawLine(centerX - xHalf, centerY - xHalf, centerX + xHalf, centerY + xHalf);
+                    g2d.drawLine(centerX + xHalf, centerY - xHalf, centerX - xHalf, centerY + xHalf);
                 } else if (board[i][j] == 'O') {
                     // Existing drawing code for O
                     GradientPaint gpO = new GradientPaint(
-                        centerX - 25, centerY - 25, new Color(255, 150, 150), 
-                        centerX + 25, centerY + 25, new Color(255, 0, 0), true
+                        centerX - oRadius, centerY - oRadius, new Color(255, 150, 150), 
+                        centerX + oRadius, centerY + oRadius, new Color(255, 0, 0), true
                     );
                     // White outline
-                    g2d.setStroke(new BasicStroke(7));
+                    g2d.setStroke(new BasicStroke(outline));
                     g2d.setColor(Color.WHITE);
-                    g2d.drawOval(centerX - 25, centerY - 25, 50, 50);
+                    g2d.drawOval(centerX - oRadius, centerY - oRadius, oRadius * 2, oRadius * 2);
                     // Gradient O
                     g2d.setPaint(gpO);
-                    g2d.setStroke(new BasicStroke(5));
-                    g2d.drawOval(centerX - 25, centerY - 25, 50, 50);
+                    g2d.setStroke(new BasicStroke(stroke));
+                    g2d.drawOval(centerX - oRadius, centerY - oRadius, oRadius * 2, oRadius * 2);
                 }
             }
         }
@@ -102,37 +115,18 @@ public class TicTacToePanel extends JPanel implements MouseListener {
             int endRow = winLine[2];
             int endCol = winLine[3];
             
-            int startX, startY, endX, endY;
-            
-            // Horizontal win: same row
-            if (startRow == endRow) {
-                startX = 10;
-                endX = getWidth()-10;
-                startY = endY = startRow * (getHeight() / 3) + (getHeight() / 6); // center of the row
-            }
-            // Vertical win: same column
-            else if (startCol == endCol) {
-                startY = 10;
-                endY = getHeight()-10;
-                startX = endX = startCol * (getWidth() / 3) + (getWidth() / 6); // center of the column
-            }
-            // Diagonal win
-            else {
-                // Determine main diagonal (top-left to bottom-right) or anti-diagonal
-                if (startRow == 0 && startCol == 0) { // main diagonal
-                    startX = 10;
-                    startY = 10;
-                    endX = getWidth()-10;
-                    endY = getHeight()-10;
-                } else { // anti-diagonal
-                    startX = getWidth()-10;
-                    startY = 10;
-                    endX = 10;
-                    endY = getHeight()-10;
-                }
-            }
+            // Run from the centre of the first cell to the centre of the last one,
+            // then stretch each end to 10 pixels short of its cell edge.
+            int stepX = Integer.signum(endCol - startCol);
+            int stepY = Integer.signum(endRow - startRow);
+            int reachX = Math.max(0, cellW / 2 - 10);
+            int reachY = Math.max(0, cellH / 2 - 10);
+            int startX = startCol * cellW + cellW / 2 - stepX * reachX;
+            int startY = startRow * cellH + cellH / 2 - stepY * reachY;
+            int endX = endCol * cellW + cellW / 2 + stepX * reachX;
+            int endY = endRow * cellH + cellH / 2 + stepY * reachY;
             
-            g2d.setStroke(new BasicStroke(8));
+            g2d.setStroke(new BasicStroke(Math.min(8, Math.max(3, cell / 6))));
             g2d.setColor(Color.WHITE);
             g2d.drawLine(startX, startY, endX, endY);
         }
@@ -146,22 +140,25 @@ public class TicTacToePanel extends JPanel implements MouseListener {
     public void mouseClicked(MouseEvent e) {
         if (!playerTurn) return;
     
-        int cellW = getWidth() / 3;
-        int cellH = getHeight() / 3;
-        int row = e.getY() / cellH;
-        int col = e.getX() / cellW;
+        int size = game.getSize();
+        int cellW = getWidth() / size;
+        int cellH = getHeight() / size;
+        int row = Math.min(e.getY() / cellH, size - 1);
+        int col = Math.min(e.getX() / cellW, size - 1);
     
         if (game.makeMove(row, col, playerSymbol)) {
             repaint();
     
             // Check for a win or draw IMMEDIATELY
             if (game.checkWin(playerSymbol)) {
+                frame.logRound(GameLog.WIN);
                 showCustomMessageDialog(this, "Game Over", "You Win!");
                 frame.updateScore(true);
                 frame.startNextRound(); // Start new round without resetting difficulty
                 return;
             }
             if (game.isFull()) {
+                frame.logRound(GameLog.DRAW);
                 showCustomMessageDialog(this, "Game Over", "It's a draw!");
                 frame.startNextRound();
                 return;
@@ -175,33 +172,74 @@ public class TicTacToePanel extends JPanel implements MouseListener {
     
     /*
      * Makes a move for the AI and updates the game state accordingly.
+     * The move is searched on a background thread so the window keeps painting and responding;
+     * it is applied on the Event Dispatch Thread once the search finishes.
      * If the AI wins, a message dialog is displayed and the game state is updated.
      * If the game is a draw, a message dialog is displayed and the game state is updated.
      * If the game is not over, the player's turn is set to true.
      * If the AI is set to 'X', it moves first.
      * If the AI is set to 'O', it moves second.
+     * If the search fails, the error is reported and a new round starts.
      */
     private void makeAIMove() {
-        // Set a delay of 250 milliseconds before executing the AI move
-        Timer timer = new Timer(250, e -> {
-            int[] aiMove = game.bestMove();
-            if (aiMove[0] != -1) {
-                game.makeMove(aiMove[0], aiMove[1], aiSymbol); // Use aiSymbol
-                repaint();
-    
-                if (game.checkWin(aiSymbol)) { // Check if AI won
-                    showCustomMessageDialog(this, "Game Over", "AI Wins!");
-                    frame.updateScore(false);
-                    frame.startNextRound();
-                } else if (game.isFull()) {
-                    showCustomMessageDialog(this, "Game Over", "It's a draw!");
+        cancelAIMove();
+        // Set a delay of 250 milliseconds before starting the AI move
+        aiTimer = new Timer(250, e -> {
+            CompletableFuture<int[]> request = game.bestMoveAsync();
+            pendingMove = request;
+            request.whenComplete((aiMove, error) -> SwingUtilities.invokeLater(() -> {
+                if (request != pendingMove || request.isCancelled()) return; // The game was reset meanwhile.
+                pendingMove = null;
+                if (error != null) {
+                    // The board cannot wait for a move that will never come, so report it and start a new round.
+                    System.err.println("AI move failed on a " + game.getSize() + "x" + game.getSize() + " board: " + error);
+                    showCustomMessageDialog(this, "AI Error", "The AI could not choose a move. Starting a new round.");
                     frame.startNextRound();
+                    return;
                 }
-                playerTurn = true; // Now it's the player's turn
-            }
+                applyAIMove(aiMove);
+            }));
         });
-        timer.setRepeats(false);
-        timer.start();
+        aiTimer.setRepeats(false);
+        aiTimer.start();
+    }
+
+    /*
+     * Plays the move chosen by the AI and checks whether it ended the game.
+     * @param aiMove the row and column of the AI move
+     */
+    private void applyAIMove(int[] aiMove) {
+        if (aiMove[0] != -1) {
+            game.makeMove(aiMove[0], aiMove[1], aiSymbol); // Use aiSymbol
+            repaint();
+
+            if (game.checkWin(aiSymbol)) { // Check if AI won
+                frame.logRound(GameLog.LOSS);
+                showCustomMessageDialog(this, "Game Over", "AI Wins!");
+                frame.updateScore(false);
+                frame.startNextRound();
+            } else if (game.isFull()) {
+                frame.logRound(GameLog.DRAW);
+                showCustomMessageDialog(this, "Game Over", "It's a draw!");
+                frame.startNextRound();
+            }
+            playerTurn = true; // Now it's the player's turn
+        }
+    }
+
+    /*
+     * Cancels the AI move that is waiting to start or still being searched.
+     * Called when the game is reset or the window is closed.
+     */
+    public void cancelAIMove() {
+        if (aiTimer != null) {
+            aiTimer.stop();
+            aiTimer = null;
+        }
+        if (pendingMove != null) {
+            pendingMove.cancel(false);
+            pendingMove = null;
+        }
     }
     
     /*
@@ -210,6 +248,7 @@ public class TicTacToePanel extends JPanel implements MouseListener {
      * @param aiSymbol the symbol chosen by the AI ('X' or 'O')
      */
     public void resetPanel(char playerSymbol, char aiSymbol) {
+        cancelAIMove();
         this.playerSymbol = playerSymbol;
         this.aiSymbol = aiSymbol;
         playerTurn = (playerSymbol == 'X'); // Player starts if they are X
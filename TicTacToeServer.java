@@ -0,0 +1,505 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * TicTacToeServer class lets bots and load tests play against TicTacToeAI over TCP, without the Swing UI.
+ * It listens on localhost only. One selector thread handles every connection; AI moves are searched on a
+ * worker pool and handed back to the selector thread, so thousands of sessions need only a few threads.
+ * Every session has its own TicTacToeAI with its own difficulty and board, but the search engines
+ * (transposition table and Monte Carlo tree) belong to the worker threads. An idle session holds its board and
+ * the line tables of its board shape: about 10 KB on 9x9 and 60 KB on 19x19.
+ *
+ * The protocol is line based (ASCII, one command per line ending in '\n'):
+ *   NEW <difficulty> [size] [winLength] [X|O]  start a game; the client plays the given symbol (default X).
+ *                                               Use Monte_Carlo for the Monte Carlo difficulty;
+ *                                               names are not case sensitive.
+ *   MOVE <row> <col>                           play a move; the AI answers with its own move
+ *   STATS                                      server counters
+ *   QUIT                                       close the connection
+ * Every NEW and MOVE gets exactly one reply line, so a client always knows whose turn it is.
+ * The server answers with:
+ *   OK <size> <winLength> <clientSymbol>       the game has started
+ *   AI <row> <col> [X|O|DRAW]                  the AI's move, followed by the result if it ended the game
+ *   RESULT X|O|DRAW                            the client's move ended the game
+ *   STATS key=value ...                        reply to STATS
+ *   ERR <reason>                               the command was rejected
+ *
+ * Backpressure: a session is not read while its AI move is being searched or while more than HIGH_WATER bytes
+ * of replies are waiting to be sent, so a client that sends faster than it reads only slows itself down.
+ * A client whose backlog reaches MAX_PENDING is disconnected. Sessions that send nothing for the idle timeout
+ * are closed. The server counts connections, games, moves and bytes, and keeps a histogram of the time from
+ * receiving a MOVE to queueing the AI's reply.
+ * Usage: java TicTacToeServer [port] [workerThreads] [idleTimeoutSeconds]
+ */
+public class TicTacToeServer {
+    public static final int DEFAULT_PORT = 7777;
+    private static final int MAX_LINE = 256;
+    private static final int HIGH_WATER = 8 * 1024;
+    private static final int MAX_PENDING = 64 * 1024;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int port;
+    private final long idleTimeoutNanos;
+    private final ExecutorService workers;
+    private final ConcurrentLinkedQueue<Session> finishedSearches = new ConcurrentLinkedQueue<>();
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+    private volatile int boundPort;
+
+    // Counters. Written on the selector thread only, except where noted.
+    private final long startNanos = System.nanoTime();
+    private long accepted;
+    private long closedIdle;
+    private long closedSlow;
+    private long gamesStarted;
+    private long gamesFinished;
+    private long moves;
+    private long errors;
+    private long bytesIn;
+    private long bytesOut;
+    private final AtomicInteger searching = new AtomicInteger(); // Updated by the workers too.
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+
+    /*
+     * Constructor to create a new TicTacToeServer.
+     * @param port the TCP port on localhost, or 0 for any free port
+     * @param workerThreads the number of threads searching AI moves
+     * @param idleTimeoutMillis how long a session may stay silent before it is closed
+     */
+    public TicTacToeServer(int port, int workerThreads, long idleTimeoutMillis) {
+        this.port = port;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        AtomicInteger ids = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), task -> {
+            Thread thread = new Thread(task, "TicTacToeServer worker " + ids.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * Bind to localhost and run the selector loop on the calling thread until stop() is called.
+     */
+    public void run() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        boundPort = serverChannel.socket().getLocalPort();
+        running = true;
+        long nextSweep = System.nanoTime() + SWEEP_INTERVAL_NANOS;
+        try {
+            while (running) {
+                selector.select(1000);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Session session = (Session) key.attachment();
+                    try {
+                        if (key.isReadable()) read(session);
+                        if (key.isValid() && key.isWritable()) write(session);
+                    } catch (IOException e) {
+                        close(session);
+                    }
+                }
+                Session done;
+                while ((done = finishedSearches.poll()) != null) {
+                    resume(done);
+                }
+                long now = System.nanoTime();
+                if (now >= nextSweep) {
+                    closeIdleSessions(now);
+                    nextSweep = now + SWEEP_INTERVAL_NANOS;
+                }
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Session) close((Session) key.attachment());
+            }
+            serverChannel.close();
+            selector.close();
+            workers.shutdownNow();
+        }
+    }
+
+    /*
+     * Ask the selector loop to finish. Safe to call from any thread.
+     */
+    public void stop() {
+        running = false;
+        Selector current = selector;
+        if (current != null) current.wakeup();
+    }
+
+    /*
+     * Get the port the server is listening on, once run() has bound it.
+     */
+    public int getPort() {
+        return boundPort;
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Session session = new Session(channel);
+            session.key = channel.register(selector, SelectionKey.OP_READ, session);
+            accepted++;
+        }
+    }
+
+    /*
+     * Read what the client sent and run every complete line, until a command has to wait for the AI.
+     */
+    private void read(Session session) throws IOException {
+        int n = session.channel.read(session.in);
+        if (n < 0) {
+            close(session);
+            return;
+        }
+        bytesIn += n;
+        session.lastActivity = System.nanoTime();
+        processLines(session);
+    }
+
+    private void processLines(Session session) throws IOException {
+        ByteBuffer in = session.in;
+        in.flip();
+        int start = in.position();
+        for (int i = start; i < in.limit() && !session.searching && !session.closing; i++) {
+            if (in.get(i) == '\n') {
+                String line = new String(in.array(), start, i - start, StandardCharsets.US_ASCII).trim();
+                start = i + 1;
+                if (!line.isEmpty()) handle(session, line);
+            }
+        }
+        in.position(start);
+        in.compact();
+        if (!in.hasRemaining()) {
+            send(session, "ERR line too long");
+            errors++;
+            session.closing = true;
+        }
+        updateInterest(session);
+    }
+
+    private void handle(Session session, String line) {
+        String[] parts = line.split("\\s+");
+        String command = parts[0].toUpperCase(Locale.ROOT);
+        switch (command) {
+            case "NEW":
+                newGame(session, parts);
+                break;
+            case "MOVE":
+                move(session, parts);
+                break;
+            case "STATS":
+                send(session, getStats());
+                break;
+            case "QUIT":
+                session.closing = true;
+                break;
+            default:
+                error(session, "unknown command " + parts[0]);
+        }
+    }
+
+    private void newGame(Session session, String[] parts) {
+        if (parts.length < 2) {
+            error(session, "usage: NEW <difficulty> [size] [winLength] [X|O]");
+            return;
+        }
+        String difficulty = null;
+        for (String name : TicTacToeFrame.DIFFICULTIES) {
+            if (name.equalsIgnoreCase(parts[1].replace('_', ' '))) difficulty = name;
+        }
+        if (difficulty == null) {
+            error(session, "unknown difficulty");
+            return;
+        }
+        int size, winLength;
+        try {
+            size = parts.length > 2 ? Integer.parseInt(parts[2]) : 3;
+            winLength = parts.length > 3 ? Integer.parseInt(parts[3]) : (size == 3 ? 3 : Math.min(size, 5));
+        } catch (NumberFormatException e) {
+            error(session, "bad number");
+            return;
+        }
+        if (size < 3 || size > 19 || winLength < 3 || winLength > size) {
+            error(session, "unsupported board");
+            return;
+        }
+        char symbol = (parts.length > 4 && parts[4].equalsIgnoreCase("O")) ? 'O' : 'X';
+        if (session.ai == null) {
+            session.ai = new TicTacToeAI(difficulty, size, winLength);
+            session.ai.setThreadEngines(true); // Sequential searches on the worker's own engines.
+        } else {
+            session.ai.setDifficulty(difficulty);
+            session.ai.setBoardSize(size, winLength);
+        }
+        session.clientSymbol = symbol;
+        session.inGame = true;
+        gamesStarted++;
+        send(session, "OK " + size + " " + winLength + " " + symbol);
+        if (symbol == 'O') startSearch(session);
+    }
+
+    private void move(Session session, String[] parts) {
+        if (!session.inGame) {
+            error(session, "no game, send NEW first");
+            return;
+        }
+        int row, col;
+        try {
+            row = Integer.parseInt(parts[1]);
+            col = Integer.parseInt(parts[2]);
+        } catch (RuntimeException e) {
+            error(session, "usage: MOVE <row> <col>");
+            return;
+        }
+        TicTacToeAI ai = session.ai;
+        if (row < 0 || col < 0 || row >= ai.getSize() || col >= ai.getSize() || !ai.makeMove(row, col, session.clientSymbol)) {
+            error(session, "illegal move");
+            return;
+        }
+        String result = finishIfOver(session);
+        if (result == null) {
+            startSearch(session);
+        } else {
+            send(session, "RESULT " + result);
+        }
+    }
+
+    /*
+     * Hand the AI move to a worker. The session stops reading until the move comes back.
+     */
+    private void startSearch(Session session) {
+        session.searchStart = System.nanoTime();
+        if (isCheapSearch(session.ai)) {
+            session.aiMove = session.ai.bestMove();
+            applyAIMove(session);
+            return;
+        }
+        session.searching = true;
+        searching.incrementAndGet();
+        workers.execute(() -> {
+            try {
+                session.aiMove = session.ai.bestMove();
+            } catch (RuntimeException e) {
+                session.aiMove = null;
+            }
+            searching.decrementAndGet();
+            finishedSearches.add(session);
+            selector.wakeup();
+        });
+    }
+
+    /*
+     * A 3x3 move other than Monte Carlo takes microseconds, less than handing it to a worker and back,
+     * so it is searched right on the selector thread.
+     */
+    private static boolean isCheapSearch(TicTacToeAI ai) {
+        return ai.getSize() == 3 && !ai.getDifficulty().equals("Monte Carlo");
+    }
+
+    /*
+     * Pick up a session whose AI move a worker has finished: reply, then run the commands that arrived meanwhile.
+     */
+    private void resume(Session session) {
+        session.searching = false;
+        if (!session.channel.isOpen()) {
+            session.ai.shutdown(); // Closed while the AI was thinking.
+            return;
+        }
+        applyAIMove(session);
+        try {
+            processLines(session);
+        } catch (IOException e) {
+            close(session);
+        }
+    }
+
+    /*
+     * Play the AI move found for a session and send it to the client.
+     */
+    private void applyAIMove(Session session) {
+        int[] move = session.aiMove;
+        if (move == null || move[0] < 0) {
+            error(session, "AI failed to move");
+        } else {
+            char aiSymbol = (session.clientSymbol == 'X') ? 'O' : 'X';
+            session.ai.makeMove(move[0], move[1], aiSymbol);
+            moves++;
+            String result = finishIfOver(session);
+            send(session, "AI " + move[0] + " " + move[1] + (result == null ? "" : " " + result));
+        }
+        moveLatency.record(System.nanoTime() - session.searchStart);
+    }
+
+    /*
+     * End the game if the last move finished it.
+     * @return the result (X, O or DRAW), or null if the game goes on
+     */
+    private String finishIfOver(Session session) {
+        TicTacToeAI ai = session.ai;
+        char winner = ai.getWinner();
+        if (winner == ' ' && !ai.isFull()) return null;
+        session.inGame = false;
+        gamesFinished++;
+        return winner == ' ' ? "DRAW" : String.valueOf(winner);
+    }
+
+    private void error(Session session, String reason) {
+        errors++;
+        send(session, "ERR " + reason);
+    }
+
+    /*
+     * Queue a reply line. A client that lets MAX_PENDING bytes pile up is disconnected.
+     */
+    private void send(Session session, String line) {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer out = session.out;
+        if (out.remaining() < bytes.length) {
+            int needed = out.position() + bytes.length;
+            if (needed > MAX_PENDING) {
+                closedSlow++;
+                close(session);
+                return;
+            }
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(MAX_PENDING, Math.max(needed, out.capacity() * 2)));
+            out.flip();
+            larger.put(out);
+            session.out = out = larger;
+        }
+        out.put(bytes);
+        updateInterest(session);
+    }
+
+    private void write(Session session) throws IOException {
+        ByteBuffer out = session.out;
+        out.flip();
+        bytesOut += session.channel.write(out);
+        out.compact();
+        if (out.position() == 0 && session.closing) {
+            close(session);
+            return;
+        }
+        updateInterest(session);
+    }
+
+    /*
+     * Read only when the session is idle and its reply backlog is small; write while replies are waiting.
+     */
+    private void updateInterest(Session session) {
+        SelectionKey key = session.key;
+        if (key == null || !key.isValid()) return;
+        int ops = 0;
+        if (!session.searching && !session.closing && session.out.position() < HIGH_WATER) ops |= SelectionKey.OP_READ;
+        if (session.out.position() > 0) ops |= SelectionKey.OP_WRITE;
+        if (ops == 0 && session.closing && !session.searching) {
+            close(session);
+            return;
+        }
+        key.interestOps(ops);
+    }
+
+    private void closeIdleSessions(long now) {
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (!(attachment instanceof Session)) continue;
+            Session session = (Session) attachment;
+            if (!session.searching && now - session.lastActivity > idleTimeoutNanos) {
+                closedIdle++;
+                send(session, "ERR idle timeout");
+                session.closing = true;
+                updateInterest(session);
+            }
+        }
+    }
+
+    private void close(Session session) {
+        if (session.key != null) session.key.cancel();
+        try {
+            session.channel.close();
+        } catch (IOException ignored) {
+            // Nothing more can be done for this connection.
+        }
+        // A search still running on a worker finishes on its own; the session is then dropped in resume.
+        if (session.ai != null && !session.searching) {
+            session.ai.shutdown();
+        }
+    }
+
+    /*
+     * Summarise the counters in the STATS reply format.
+     * Must be called on the selector thread, which owns the counters.
+     */
+    private String getStats() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        int active = 0;
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Session) active++;
+        }
+        return String.format(Locale.ROOT,
+                "STATS uptime=%.0fs accepted=%d active=%d closedIdle=%d closedSlow=%d games=%d finished=%d moves=%d movesPerSec=%.0f "
+                        + "searching=%d errors=%d bytesIn=%d bytesOut=%d moveP50us=%.0f moveP99us=%.0f moveMaxUs=%.0f",
+                seconds, accepted, active, closedIdle, closedSlow, gamesStarted, gamesFinished, moves, moves / seconds,
+                searching.get(), errors, bytesIn, bytesOut, moveLatency.getPercentile(50) / 1e3,
+                moveLatency.getPercentile(99) / 1e3, moveLatency.getMax() / 1e3);
+    }
+
+    /*
+     * One client connection and its game.
+     */
+    private static class Session {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+        ByteBuffer out = ByteBuffer.allocate(512);
+        SelectionKey key;
+        long lastActivity = System.nanoTime();
+        boolean closing;
+        TicTacToeAI ai;
+        char clientSymbol;
+        boolean inGame;
+        volatile boolean searching;
+        long searchStart;
+        volatile int[] aiMove;
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long idleSeconds = args.length > 2 ? Long.parseLong(args[2]) : 60;
+        TicTacToeServer server = new TicTacToeServer(port, workers, TimeUnit.SECONDS.toMillis(idleSeconds));
+        System.out.printf("TicTacToeServer on localhost:%d with %d worker threads, idle timeout %d s%n", port, workers, idleSeconds);
+        server.run();
+    }
+}
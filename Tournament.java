@@ -0,0 +1,248 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Tournament class plays AI-vs-AI games without any window, to measure one difficulty against another.
+ * Games are shared out between worker threads. Each worker owns one TicTacToeAI per player and keeps
+ * both boards in step, so workers never share state. The players swap symbols every game, so each
+ * plays 'X' half of the time.
+ * At the end it prints the win/draw/loss rates of player A, an Elo difference with a 95% error margin,
+ * the games per second and the per-move latency percentiles of each player.
+ * Usage: java Tournament [difficultyA] [difficultyB] [games] [boardSize] [winLength] [threads] [moveTimeMillis]
+ * For example: java Tournament Unbeatable Medium 1000000 3 3 8
+ */
+public class Tournament {
+    private final String difficultyA;
+    private final String difficultyB;
+    private final int size;
+    private final int winLength;
+    private final long moveTimeMillis;
+    private final AtomicLong nextGame = new AtomicLong();
+    private final AtomicLong finishedGames = new AtomicLong();
+    private long games;
+
+    /*
+     * Constructor to create a new Tournament between two difficulties.
+     * @param difficultyA the difficulty of player A (Easy, Medium, Unbeatable, Monte Carlo)
+     * @param difficultyB the difficulty of player B
+     * @param size the number of rows and columns of the board
+     * @param winLength the number of symbols in a row needed to win
+     * @param moveTimeMillis the time budget per move of the searching difficulties
+     */
+    public Tournament(String difficultyA, String difficultyB, int size, int winLength, long moveTimeMillis) {
+        this.difficultyA = difficultyA;
+        this.difficultyB = difficultyB;
+        this.size = size;
+        this.winLength = winLength;
+        this.moveTimeMillis = moveTimeMillis;
+    }
+
+    /*
+     * Play the given number of games on the given number of threads and add up the results.
+     * Progress is printed every few seconds while the games run.
+     * @param games the number of games to play
+     * @param threads the number of worker threads
+     * @return the combined results of all workers
+     */
+    public Result run(long games, int threads) throws InterruptedException {
+        this.games = games;
+        nextGame.set(0);
+        finishedGames.set(0);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            workers.add(pool.submit(this::playGames));
+        }
+        pool.shutdown();
+        while (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+            long done = finishedGames.get();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("  %d/%d games, %.0f games/s%n", done, games, done / seconds);
+        }
+        Result total = new Result();
+        for (Future<Result> worker : workers) {
+            try {
+                total.add(worker.get());
+            } catch (java.util.concurrent.ExecutionException e) {
+                throw new IllegalStateException("A tournament worker failed", e.getCause());
+            }
+        }
+        total.nanos = System.nanoTime() - start;
+        return total;
+    }
+
+    /*
+     * Worker loop: claim game numbers until every game has been played.
+     */
+    private Result playGames() {
+        TicTacToeAI a = newPlayer(difficultyA);
+        TicTacToeAI b = newPlayer(difficultyB);
+        Result result = new Result();
+        try {
+            for (long game = nextGame.getAndIncrement(); game < games; game = nextGame.getAndIncrement()) {
+                boolean aIsX = (game & 1) == 0;
+                int outcome = playGame(a, b, aIsX, result);
+                result.count(aIsX, outcome);
+                finishedGames.incrementAndGet();
+            }
+        } finally {
+            a.shutdown();
+            b.shutdown();
+        }
+        return result;
+    }
+
+    private TicTacToeAI newPlayer(String difficulty) {
+        TicTacToeAI ai = new TicTacToeAI(difficulty, size, winLength);
+        ai.setSearchThreads(1); // The tournament is already parallel across games.
+        ai.setMoveTimeMillis(moveTimeMillis);
+        return ai;
+    }
+
+    /*
+     * Play one game between A and B. Both AIs see every move so their boards stay the same.
+     * @param a player A
+     * @param b player B
+     * @param aIsX true if player A plays 'X' and moves first
+     * @param result where the move latencies are recorded
+     * @return 1 if A won, -1 if B won, 0 for a draw
+     */
+    private int playGame(TicTacToeAI a, TicTacToeAI b, boolean aIsX, Result result) {
+        a.resetBoard();
+        b.resetBoard();
+        char symbol = 'X';
+        while (true) {
+            boolean aMoves = (symbol == 'X') == aIsX;
+            TicTacToeAI mover = aMoves ? a : b;
+            long start = System.nanoTime();
+            int[] move = mover.bestMove();
+            (aMoves ? result.latencyA : result.latencyB).record(System.nanoTime() - start);
+            if (move[0] == -1) return 0;
+            a.makeMove(move[0], move[1], symbol);
+            b.makeMove(move[0], move[1], symbol);
+            if (a.checkWin(symbol)) return aMoves ? 1 : -1;
+            if (a.isFull()) return 0;
+            symbol = (symbol == 'X') ? 'O' : 'X';
+        }
+    }
+
+    /*
+     * The results of a set of games from player A's point of view.
+     */
+    public static class Result {
+        private final long[] asX = new long[3]; // Losses, draws, wins of A when A played 'X'.
+        private final long[] asO = new long[3]; // The same when A played 'O'.
+        private final LatencyHistogram latencyA = new LatencyHistogram();
+        private final LatencyHistogram latencyB = new LatencyHistogram();
+        private long nanos;
+
+        private void count(boolean aIsX, int outcome) {
+            (aIsX ? asX : asO)[outcome + 1]++;
+        }
+
+        private void add(Result other) {
+            for (int i = 0; i < 3; i++) {
+                asX[i] += other.asX[i];
+                asO[i] += other.asO[i];
+            }
+            latencyA.add(other.latencyA);
+            latencyB.add(other.latencyB);
+        }
+
+        public long getGames() {
+            return getWins() + getDraws() + getLosses();
+        }
+
+        public long getWins() {
+            return asX[2] + asO[2];
+        }
+
+        public long getDraws() {
+            return asX[1] + asO[1];
+        }
+
+        public long getLosses() {
+            return asX[0] + asO[0];
+        }
+
+        public LatencyHistogram getLatencyA() {
+            return latencyA;
+        }
+
+        public LatencyHistogram getLatencyB() {
+            return latencyB;
+        }
+
+        /*
+         * Get player A's average score per game, counting a draw as half a win.
+         */
+        public double getScore() {
+            long n = getGames();
+            return n == 0 ? 0.5 : (getWins() + 0.5 * getDraws()) / n;
+        }
+
+        /*
+         * Get the Elo difference of A over B implied by A's score.
+         * @return the difference in Elo points; infinite if one player won every game
+         */
+        public double getElo() {
+            return elo(getScore());
+        }
+
+        /*
+         * Get the 95% error margin of the Elo difference, from the spread of the game results.
+         * @return the margin in Elo points, or NaN if it cannot be estimated
+         */
+        public double getEloMargin() {
+            long n = getGames();
+            if (n < 2) return Double.NaN;
+            double s = getScore();
+            double variance = (getWins() * (1 - s) * (1 - s) + getDraws() * (0.5 - s) * (0.5 - s)
+                    + getLosses() * s * s) / n;
+            double error = 1.96 * Math.sqrt(variance / n);
+            return (elo(Math.min(1, s + error)) - elo(Math.max(0, s - error))) / 2;
+        }
+
+        public double getGamesPerSecond() {
+            return nanos == 0 ? 0.0 : getGames() * 1e9 / nanos;
+        }
+
+        private static double elo(double score) {
+            if (score <= 0) return Double.NEGATIVE_INFINITY;
+            if (score >= 1) return Double.POSITIVE_INFINITY;
+            return -400 * Math.log10(1 / score - 1);
+        }
+
+        @Override
+        public String toString() {
+            long n = Math.max(1, getGames());
+            return String.format("games=%d A wins=%.2f%% draws=%.2f%% losses=%.2f%% | as X %d/%d/%d, as O %d/%d/%d (W/D/L)%n"
+                            + "Elo(A-B)=%+.1f +/- %.1f | %.0f games/s%n"
+                            + "A move latency: %s%nB move latency: %s",
+                    getGames(), 100.0 * getWins() / n, 100.0 * getDraws() / n, 100.0 * getLosses() / n,
+                    asX[2], asX[1], asX[0], asO[2], asO[1], asO[0],
+                    getElo(), getEloMargin(), getGamesPerSecond(), latencyA, latencyB);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String a = args.length > 0 ? args[0] : "Unbeatable";
+        String b = args.length > 1 ? args[1] : "Medium";
+        long games = args.length > 2 ? Long.parseLong(args[2]) : 100_000;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        int winLength = args.length > 4 ? Integer.parseInt(args[4]) : Math.min(size, 5);
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        long moveTime = args.length > 6 ? Long.parseLong(args[6]) : 100;
+
+        System.out.printf("%s (A) vs %s (B) on %dx%d, %d in a row: %d games on %d threads%n",
+                a, b, size, size, winLength, games, threads);
+        Result result = new Tournament(a, b, size, winLength, moveTime).run(games, threads);
+        System.out.println(result);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * TranspositionTable class caches search results for positions that have already been scored.
+ * Positions are identified by a 64-bit key chosen by the caller.
+ * Each entry stores the score, the bound type of that score, the remaining depth it was searched to
+ * and optionally the best move found, which searches use to order moves.
+ * The table is a fixed-size array of two-slot buckets, so memory stays bounded no matter how long it is used.
+ * When both slots of a bucket are taken, an entry from an older search is replaced first,
+ * otherwise the shallower of the two entries is replaced.
+ * The table keeps hit, miss, store and eviction counters.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 0; // The stored score is the true score.
+    public static final int LOWER = 1; // The true score is at least the stored score (fail high).
+    public static final int UPPER = 2; // The true score is at most the stored score (fail low).
+
+    private final long[] keys;
+    private final int[] scores;
+    private final byte[] bounds;
+    private final byte[] depths;
+    private final short[] moves;
+    private final byte[] generations; // 0 marks an empty slot.
+    private final int bucketMask;
+    private byte generation = 1;
+
+    private long hits;
+    private long misses;
+    private long stores;
+    private long evictions;
+
+    /*
+     * Constructor to create a new TranspositionTable with room for the given number of entries.
+     * @param capacity the maximum number of entries, rounded up to a power of two (at least 2)
+     */
+    public TranspositionTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        keys = new long[size];
+        scores = new int[size];
+        bounds = new byte[size];
+        depths = new byte[size];
+        moves = new short[size];
+        generations = new byte[size];
+        bucketMask = (size >>> 1) - 1;
+    }
+
+    /*
+     * Mark the start of a new search. Entries from earlier searches stay usable but are evicted first.
+     */
+    public void newSearch() {
+        generation++;
+        if (generation == 0) generation = 1; // Skip the empty marker on wrap-around.
+    }
+
+    /*
+     * Look up a position.
+     * @param key the position key
+     * @return the slot holding the position, or -1 if it is not stored
+     */
+    public int probe(long key) {
+        int slot = bucketOf(key);
+        if (generations[slot] != 0 && keys[slot] == key) {
+            hits++;
+            return slot;
+        }
+        if (generations[slot + 1] != 0 && keys[slot + 1] == key) {
+            hits++;
+            return slot + 1;
+        }
+        misses++;
+        return -1;
+    }
+
+    /*
+     * Get the score stored in a slot returned by probe.
+     */
+    public int scoreAt(int slot) {
+        return scores[slot];
+    }
+
+    /*
+     * Get the bound type (EXACT, LOWER or UPPER) stored in a slot returned by probe.
+     */
+    public int boundAt(int slot) {
+        return bounds[slot];
+    }
+
+    /*
+     * Get the remaining search depth stored in a slot returned by probe.
+     */
+    public int depthAt(int slot) {
+        return depths[slot];
+    }
+
+    /*
+     * Get the best move stored in a slot returned by probe, or -1 if none was stored.
+     */
+    public int moveAt(int slot) {
+        return moves[slot];
+    }
+
+    /*
+     * Store the result of searching a position without a best move.
+     * @param key the position key
+     * @param score the score found by the search
+     * @param bound the bound type of the score (EXACT, LOWER or UPPER)
+     * @param depth the remaining depth the position was searched to
+     */
+    public void store(long key, int score, int bound, int depth) {
+        store(key, score, bound, depth, -1);
+    }
+
+    /*
+     * Store the result of searching a position.
+     * @param key the position key
+     * @param score the score found by the search
+     * @param bound the bound type of the score (EXACT, LOWER or UPPER)
+     * @param depth the remaining depth the position was searched to
+     * @param move the best move found, or -1 if there is none
+     */
+    public void store(long key, int score, int bound, int depth, int move) {
+        int first = bucketOf(key);
+        int slot;
+        if (generations[first] == 0 || keys[first] == key) {
+            slot = first;
+        } else if (generations[first + 1] == 0 || keys[first + 1] == key) {
+            slot = first + 1;
+        } else {
+            slot = victim(first);
+            evictions++;
+        }
+        keys[slot] = key;
+        scores[slot] = score;
+        bounds[slot] = (byte) bound;
+        depths[slot] = (byte) Math.min(depth, Byte.MAX_VALUE);
+        moves[slot] = (short) move;
+        generations[slot] = generation;
+        stores++;
+    }
+
+    /*
+     * Choose which slot of a full bucket to overwrite.
+     * Entries left over from older searches go first, then the shallower entry.
+     */
+    private int victim(int first) {
+        boolean firstStale = generations[first] != generation;
+        boolean secondStale = generations[first + 1] != generation;
+        if (firstStale != secondStale) {
+            return firstStale ? first : first + 1;
+        }
+        return depths[first] <= depths[first + 1] ? first : first + 1;
+    }
+
+    /*
+     * Map a key to the first slot of its bucket.
+     */
+    private int bucketOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return ((int) (h >>> 32) & bucketMask) << 1;
+    }
+
+    /*
+     * Remove every entry and reset the counters.
+     */
+    public void clear() {
+        java.util.Arrays.fill(generations, (byte) 0);
+        hits = misses = stores = evictions = 0;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getStores() {
+        return stores;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /*
+     * Get the share of probes that found an entry.
+     * @return the hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        long probes = hits + misses;
+        return probes == 0 ? 0.0 : (double) hits / probes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TT[capacity=%d, hits=%d, misses=%d, hitRate=%.1f%%, stores=%d, evictions=%d]",
+                capacity(), hits, misses, getHitRate() * 100, stores, evictions);
+    }
+}
@@ -0,0 +1,149 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks SnakeArena: the shared grid always agrees with the snakes' bodies and the food count, and a game
+ * with the same seed and inputs comes out the same on any number of threads.
+ */
+class SnakeArenaTest {
+    private static final int SIDE = 60;
+    private static final int SNAKES = 40;
+    private static final int FOOD = 80;
+
+    /**
+     * Gives the player's snake a random turn now and then.
+     */
+    private static void steer(SnakeArena arena, Random random) {
+        if (arena.isAlive(0) && random.nextInt(4) == 0) {
+            arena.setDirection(0, "UDLR".charAt(random.nextInt(4)));
+        }
+    }
+
+    private static boolean adjacent(int a, int b) {
+        int dx = Math.abs(a % SIDE - b % SIDE);
+        int dy = Math.abs(a / SIDE - b / SIDE);
+        dx = Math.min(dx, SIDE - dx); // The board wraps around its edges.
+        dy = Math.min(dy, SIDE - dy);
+        return dx + dy == 1;
+    }
+
+    private static void assertGridMatchesSnakes(SnakeArena arena) {
+        String at = "tick " + arena.getTicks();
+        int[] cellsPerSnake = new int[SNAKES + 1];
+        int food = 0;
+        for (int cell = 0; cell < SIDE * SIDE; cell++) {
+            int content = arena.getCell(cell);
+            if (content == SnakeArena.FOOD) {
+                food++;
+            } else {
+                assertTrue(content >= SnakeArena.EMPTY && content <= SNAKES, at + ", cell " + cell + " holds " + content);
+                cellsPerSnake[content]++;
+            }
+        }
+        assertEquals(arena.getFoodCount(), food, at + ", food");
+        assertTrue(food >= FOOD, at + ": the arena should keep at least " + FOOD + " pieces of food");
+        int alive = 0;
+        for (int k = 0; k < SNAKES; k++) {
+            if (!arena.isAlive(k)) {
+                assertEquals(0, cellsPerSnake[k + 1], at + ", dead snake " + k + " left cells on the grid");
+                continue;
+            }
+            alive++;
+            int length = arena.getLength(k);
+            assertEquals(length, cellsPerSnake[k + 1], at + ", snake " + k);
+            for (int i = 0; i < length; i++) {
+                int cell = arena.getSnakeCell(k, i);
+                assertEquals(k + 1, arena.getCell(cell), at + ", snake " + k + ", segment " + i);
+                if (i > 0) {
+                    assertTrue(adjacent(arena.getSnakeCell(k, i - 1), cell), at + ", snake " + k + " is torn at segment " + i);
+                }
+            }
+        }
+        assertEquals(alive, arena.getAliveCount(), at);
+    }
+
+    @Test
+    void gridAgreesWithTheSnakesOnEveryTick() {
+        SnakeArena arena = new SnakeArena(SIDE, SIDE, SNAKES, FOOD, 7, 1);
+        arena.setHuman(0, true);
+        Random random = new Random(7);
+        assertGridMatchesSnakes(arena);
+        int deaths = 0;
+        for (int tick = 0; tick < 5000; tick++) {
+            steer(arena, random);
+            int aliveBefore = arena.getAliveCount();
+            arena.tick();
+            assertGridMatchesSnakes(arena);
+            deaths += Math.max(0, aliveBefore - arena.getAliveCount());
+        }
+        assertTrue(deaths > 0, "snakes should collide during the test");
+        arena.close();
+    }
+
+    @Test
+    void threadCountDoesNotChangeTheGame() {
+        SnakeArena single = new SnakeArena(SIDE, SIDE, SNAKES, FOOD, 11, 1);
+        SnakeArena parallel = new SnakeArena(SIDE, SIDE, SNAKES, FOOD, 11, 4);
+        single.setHuman(0, true);
+        parallel.setHuman(0, true);
+        Random inputs = new Random(11);
+        for (int tick = 0; tick < 10_000; tick++) {
+            if (single.isAlive(0) && inputs.nextInt(4) == 0) {
+                char direction = "UDLR".charAt(inputs.nextInt(4));
+                single.setDirection(0, direction);
+                parallel.setDirection(0, direction);
+            }
+            single.tick();
+            parallel.tick();
+            String at = "tick " + single.getTicks();
+            assertEquals(single.getAliveCount(), parallel.getAliveCount(), at);
+            assertEquals(single.getFoodCount(), parallel.getFoodCount(), at);
+            for (int k = 0; k < SNAKES; k++) {
+                assertEquals(single.isAlive(k), parallel.isAlive(k), at + ", snake " + k);
+                assertEquals(single.getLength(k), parallel.getLength(k), at + ", snake " + k);
+                assertEquals(single.getScore(k), parallel.getScore(k), at + ", snake " + k);
+                assertEquals(single.getRespawnTick(k), parallel.getRespawnTick(k), at + ", snake " + k);
+                if (single.isAlive(k)) {
+                    assertEquals(single.getDirection(k), parallel.getDirection(k), at + ", snake " + k);
+                    assertEquals(single.getSnakeCell(k, 0), parallel.getSnakeCell(k, 0), at + ", snake " + k);
+                }
+            }
+            for (int cell = 0; cell < SIDE * SIDE; cell++) {
+                assertEquals(single.getCell(cell), parallel.getCell(cell), at + ", cell " + cell);
+            }
+        }
+        single.close();
+        parallel.close();
+    }
+
+    @Test
+    void deadSnakesComeBack() {
+        SnakeArena arena = new SnakeArena(SIDE, SIDE, SNAKES, FOOD, 3, 1);
+        boolean[] died = new boolean[SNAKES];
+        int[] respawnTick = new int[SNAKES];
+        int returned = 0;
+        for (int tick = 0; tick < 3000; tick++) {
+            boolean[] aliveBefore = new boolean[SNAKES];
+            for (int k = 0; k < SNAKES; k++) {
+                aliveBefore[k] = arena.isAlive(k);
+            }
+            arena.tick();
+            for (int k = 0; k < SNAKES; k++) {
+                if (aliveBefore[k] && !arena.isAlive(k)) {
+                    died[k] = true;
+                    respawnTick[k] = arena.getRespawnTick(k);
+                    assertEquals(arena.getTicks() + SnakeArena.RESPAWN_TICKS, respawnTick[k]);
+                } else if (!aliveBefore[k] && arena.isAlive(k) && died[k]) {
+                    assertTrue(arena.getTicks() >= respawnTick[k], "snake " + k + " came back early");
+                    assertEquals(0, arena.getScore(k));
+                    returned++;
+                }
+            }
+        }
+        assertTrue(returned > 0, "some snake should die and come back during the test");
+        arena.close();
+    }
+}
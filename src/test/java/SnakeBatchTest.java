@@ -0,0 +1,153 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks SnakeBatch: the incrementally updated observations always equal a full rewrite from the engines,
+ * every game follows the rules of a standalone SnakeEngine with the documented seeds, and the results
+ * do not depend on the number of threads.
+ */
+class SnakeBatchTest {
+    private static final int COLUMNS = 10;
+    private static final int ROWS = 8;
+
+    private static byte[] randomActions(Random random, int envs) {
+        byte[] actions = new byte[envs];
+        for (int i = 0; i < envs; i++) {
+            actions[i] = (byte) (random.nextInt(3) == 0 ? random.nextInt(4) : -1); // -1 keeps the direction.
+        }
+        return actions;
+    }
+
+    private static byte[] copy(ByteBuffer observations) {
+        byte[] bytes = new byte[observations.capacity()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = observations.get(i);
+        }
+        return bytes;
+    }
+
+    @Test
+    void observationsMatchAFullRewrite() {
+        SnakeBatch batch = new SnakeBatch(64, COLUMNS, ROWS, 5, 1);
+        Random random = new Random(5);
+        int cells = batch.getCellCount();
+        for (int step = 0; step < 3000; step++) {
+            batch.step(randomActions(random, batch.getEnvCount()));
+            ByteBuffer observations = batch.getObservations();
+            for (int i = 0; i < batch.getEnvCount(); i++) {
+                SnakeEngine engine = batch.getEngine(i);
+                for (int cell = 0; cell < cells; cell++) {
+                    byte expected = engine.isOccupied(cell) ? SnakeBatch.BODY : SnakeBatch.EMPTY;
+                    if (cell == engine.getSnakeCell(0)) expected = SnakeBatch.HEAD;
+                    if (cell == engine.getFoodCell()) expected = SnakeBatch.FOOD;
+                    assertEquals(expected, observations.get(i * cells + cell), "step " + step + ", game " + i + ", cell " + cell);
+                }
+            }
+        }
+        batch.close();
+    }
+
+    @Test
+    void gamesFollowStandaloneEngines() {
+        int envs = 16;
+        long seed = 100;
+        SnakeBatch batch = new SnakeBatch(envs, COLUMNS, ROWS, seed, 1);
+        SnakeEngine[] engines = new SnakeEngine[envs];
+        int[] episodes = new int[envs];
+        for (int i = 0; i < envs; i++) {
+            engines[i] = new SnakeEngine(COLUMNS * SnakeEngine.TILE_SIZE, ROWS * SnakeEngine.TILE_SIZE, seed + i);
+        }
+        Random random = new Random(100);
+        int finished = 0;
+        for (int step = 0; step < 5000; step++) {
+            byte[] actions = randomActions(random, envs);
+            batch.step(actions);
+            for (int i = 0; i < envs; i++) {
+                SnakeEngine engine = engines[i];
+                int oldScore = engine.getScore();
+                boolean running = engine.step(actions[i] >= 0 ? "UDLR".charAt(actions[i]) : '-');
+                assertEquals(!running, batch.getDones()[i], "step " + step + ", game " + i);
+                if (running) {
+                    assertEquals(engine.getScore() > oldScore ? 1f : 0f, batch.getRewards()[i]);
+                } else {
+                    assertEquals(engine.getFreeCellCount() == 0 ? 1f : -1f, batch.getRewards()[i]);
+                    assertEquals(engine.getScore(), batch.getFinalScores()[i]);
+                    episodes[i]++;
+                    engine.reset(seed + (long) episodes[i] * envs + i);
+                    finished++;
+                }
+                assertArrayEquals(engine.saveState(), batch.getEngine(i).saveState(), "step " + step + ", game " + i);
+            }
+        }
+        assertTrue(finished > envs, "games should end and restart during the test");
+        assertEquals(5000L * envs, batch.getTotalSteps());
+        batch.close();
+    }
+
+    @Test
+    void fillingTheBoardIsRewardedLikeFood() {
+        SnakeBatch batch = new SnakeBatch(1, 6, 6, 4, 1);
+        SnakeAutopilot autopilot = new SnakeAutopilot(batch.getEngine(0), true); // The cycle always fills the board.
+        byte[] actions = new byte[1];
+        int steps = 0;
+        do {
+            actions[0] = (byte) "UDLR".indexOf(autopilot.nextDirection());
+            batch.step(actions);
+            steps++;
+        } while (!batch.getDones()[0] && steps < 100_000);
+        assertTrue(batch.getDones()[0], "the autopilot should fill the board");
+        assertEquals(1f, batch.getRewards()[0]);
+        assertEquals((36 - 5) * 10, batch.getFinalScores()[0]);
+        batch.close();
+    }
+
+    @Test
+    void threadCountDoesNotChangeResults() {
+        int envs = 257; // Not a multiple of the stripes.
+        SnakeBatch single = new SnakeBatch(envs, COLUMNS, ROWS, 9, 1);
+        SnakeBatch parallel = new SnakeBatch(envs, COLUMNS, ROWS, 9, 4);
+        Random random = new Random(9);
+        for (int step = 0; step < 2000; step++) {
+            byte[] actions = randomActions(random, envs);
+            single.step(actions);
+            parallel.step(actions);
+            assertArrayEquals(single.getRewards(), parallel.getRewards(), "step " + step);
+            assertArrayEquals(single.getDones(), parallel.getDones(), "step " + step);
+            for (int i = 0; i < envs; i++) {
+                if (single.getDones()[i]) {
+                    assertEquals(single.getFinalScores()[i], parallel.getFinalScores()[i], "step " + step + ", game " + i);
+                }
+            }
+            if (step % 100 == 99) {
+                assertArrayEquals(copy(single.getObservations()), copy(parallel.getObservations()), "step " + step);
+            }
+        }
+        assertArrayEquals(copy(single.getObservations()), copy(parallel.getObservations()));
+        single.close();
+        parallel.close();
+    }
+
+    @Test
+    void resetStartsTheFirstEpisodesAgain() {
+        SnakeBatch batch = new SnakeBatch(32, COLUMNS, ROWS, 3, 1);
+        byte[] before = copy(batch.getObservations());
+        Random random = new Random(3);
+        for (int step = 0; step < 500; step++) {
+            batch.step(randomActions(random, 32));
+        }
+        batch.reset();
+        assertArrayEquals(before, copy(batch.getObservations()));
+        batch.close();
+    }
+
+    @Test
+    void tooFewActionsAreRejected() {
+        SnakeBatch batch = new SnakeBatch(8, COLUMNS, ROWS, 1, 1);
+        assertThrows(IllegalArgumentException.class, () -> batch.step(new byte[7]));
+        batch.close();
+    }
+}
@@ -0,0 +1,139 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plays SnakeEngine, with its ring buffer, occupancy bitset and free list, side by side with a plain model of the
+ * rules that shifts a list of cells and scans it for collisions, and checks after every tick that both agree.
+ * The model takes the food from the engine, since where food lands is up to the free list; it checks instead that
+ * the food never lands on the snake.
+ */
+class SnakeEngineModelTest {
+    private static final int TILE = SnakeEngine.TILE_SIZE;
+    private static final String DIRECTIONS = "UDLR";
+
+    /**
+     * The rules of Snake written the slow, obvious way.
+     */
+    private static final class Model {
+        final int columns;
+        final int rows;
+        final ArrayDeque<Integer> body = new ArrayDeque<>(); // The head first.
+        char direction = 'R';
+        boolean inGame = true;
+        int score;
+
+        Model(SnakeEngine engine) {
+            columns = engine.getColumns();
+            rows = engine.getRows();
+            for (int i = 0; i < 5; i++) {
+                body.addLast(4 * columns + 4 - i);
+            }
+        }
+
+        void step(char input, int food) {
+            int turn = DIRECTIONS.indexOf(input);
+            if (turn >= 0 && (turn ^ 1) != DIRECTIONS.indexOf(direction)) { // U/D and L/R are opposite pairs.
+                direction = input;
+            }
+            int column = body.peekFirst() % columns;
+            int row = body.peekFirst() / columns;
+            if (direction == 'R') column = (column + 1) % columns;
+            if (direction == 'L') column = (column + columns - 1) % columns;
+            if (direction == 'D') row = (row + 1) % rows;
+            if (direction == 'U') row = (row + rows - 1) % rows;
+            int next = row * columns + column;
+            boolean grows = next == food;
+            if (!grows) {
+                body.removeLast();
+            }
+            if (body.contains(next)) {
+                inGame = false;
+                return;
+            }
+            body.addFirst(next);
+            if (grows) {
+                score += 10;
+                if (body.size() == columns * rows) {
+                    inGame = false;
+                }
+            }
+        }
+    }
+
+    private static void assertSameState(Model model, SnakeEngine engine) {
+        String at = "tick " + engine.getTicks();
+        assertEquals(model.inGame, engine.isInGame(), at);
+        assertEquals(model.score, engine.getScore(), at);
+        if (!model.inGame) return; // The engine stops updating the body once the game is over.
+        assertEquals(model.direction, engine.getDirection(), at);
+        assertEquals(model.body.size(), engine.getSnakeLength(), at);
+        Iterator<Integer> segments = model.body.iterator();
+        for (int i = 0; i < engine.getSnakeLength(); i++) {
+            assertEquals((int) segments.next(), engine.getSnakeCell(i), at + ", segment " + i);
+        }
+        int cells = model.columns * model.rows;
+        for (int cell = 0; cell < cells; cell++) {
+            assertEquals(model.body.contains(cell), engine.isOccupied(cell), at + ", cell " + cell);
+        }
+        assertEquals(cells - model.body.size(), engine.getFreeCellCount(), at);
+        assertFalse(model.body.contains(engine.getFoodCell()), at + ": food on the snake");
+    }
+
+    /**
+     * Steers toward the food most of the time, so snakes grow long enough to crowd the board, and turns at random
+     * otherwise, so they also crash into themselves.
+     */
+    private static char nextInput(SnakeEngine engine, Random random) {
+        if (random.nextInt(4) == 0) {
+            return DIRECTIONS.charAt(random.nextInt(4));
+        }
+        int head = engine.getSnakeCell(0);
+        int food = engine.getFoodCell();
+        if (food % engine.getColumns() != head % engine.getColumns()) {
+            return food % engine.getColumns() > head % engine.getColumns() ? 'R' : 'L';
+        }
+        return food / engine.getColumns() > head / engine.getColumns() ? 'D' : 'U';
+    }
+
+    @Test
+    void engineMatchesTheModelOnManyBoards() {
+        Random random = new Random(16);
+        int[][] sizes = {{5, 5}, {6, 5}, {7, 9}, {8, 8}, {11, 6}, {24, 24}};
+        for (int[] size : sizes) {
+            for (int game = 0; game < 200; game++) {
+                SnakeEngine engine = new SnakeEngine(size[0] * TILE, size[1] * TILE, random.nextLong());
+                Model model = new Model(engine);
+                assertSameState(model, engine);
+                while (engine.isInGame()) {
+                    char input = nextInput(engine, random);
+                    int food = engine.getFoodCell();
+                    model.step(input, food);
+                    engine.step(input);
+                    assertSameState(model, engine);
+                }
+            }
+        }
+    }
+
+    @Test
+    void snakeThatFillsTheBoardEndsTheGame() {
+        SnakeEngine engine = new SnakeEngine(6 * TILE, 6 * TILE, 4);
+        SnakeAutopilot autopilot = new SnakeAutopilot(engine, true);
+        Model model = new Model(engine);
+        while (engine.isInGame()) {
+            char input = autopilot.nextDirection();
+            model.step(input, engine.getFoodCell());
+            engine.step(input);
+            assertSameState(model, engine);
+        }
+        assertEquals(36, engine.getSnakeLength());
+        assertEquals(0, engine.getFreeCellCount());
+        assertEquals(-1, engine.getFoodCell());
+        assertEquals((36 - 5) * 10, engine.getScore());
+    }
+}
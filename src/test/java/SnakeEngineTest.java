@@ -0,0 +1,47 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that SnakeEngine is deterministic: the same seed and inputs give the same game, and a reset engine
+ * starts the same game as a new one.
+ */
+class SnakeEngineTest {
+    private static final int BOARD = 600;
+    private static final String DIRECTIONS = "UDLR";
+
+    /**
+     * Returns the input for one tick: usually none ('-'), sometimes a random turn.
+     */
+    private static char randomInput(Random inputs) {
+        return inputs.nextInt(5) == 0 ? DIRECTIONS.charAt(inputs.nextInt(4)) : '-';
+    }
+
+    @Test
+    void sameSeedAndInputsGiveTheSameGame() {
+        for (int seed = 0; seed < 20; seed++) {
+            SnakeEngine a = new SnakeEngine(BOARD, BOARD, seed);
+            SnakeEngine b = new SnakeEngine(BOARD, BOARD, seed);
+            Random inputs = new Random(seed);
+            while (a.isInGame()) {
+                char input = randomInput(inputs);
+                assertEquals(a.step(input), b.step(input));
+                assertArrayEquals(a.saveState(), b.saveState(), "seed " + seed + ", tick " + a.getTicks());
+            }
+            assertFalse(b.isInGame());
+        }
+    }
+
+    @Test
+    void resetStartsTheSameGameAgain() {
+        SnakeEngine reused = new SnakeEngine(BOARD, BOARD, 1);
+        Random inputs = new Random(1);
+        while (reused.isInGame()) {
+            reused.step(randomInput(inputs));
+        }
+        reused.reset(42);
+        assertArrayEquals(new SnakeEngine(BOARD, BOARD, 42).saveState(), reused.saveState());
+    }
+}
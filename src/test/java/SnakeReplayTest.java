@@ -0,0 +1,172 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that Snake games can be saved and replayed exactly: a saved state continues the same way, a recorded game
+ * replays from its SnakeReplay and from its game log record, seeking lands on the same states as playing through,
+ * and a replay survives a round trip through its file.
+ */
+class SnakeReplayTest {
+    private static final int BOARD = 600; // The board of SnakePanel, which fromGameLog() assumes.
+    private static final String DIRECTIONS = "UDLR";
+
+    @BeforeAll
+    static void turnOffGameLog() {
+        System.setProperty("gamelog.file", ""); // SnakeRecorder logs every game; keep the tests out of the user's log.
+    }
+
+    /**
+     * Returns the input for one tick: usually none ('-'), sometimes a random turn.
+     */
+    private static char randomInput(Random inputs) {
+        return inputs.nextInt(5) == 0 ? DIRECTIONS.charAt(inputs.nextInt(4)) : '-';
+    }
+
+    @Test
+    void restoredStateContinuesTheSameGame() {
+        SnakeEngine engine = new SnakeEngine(BOARD, BOARD, 7);
+        SnakeAutopilot autopilot = new SnakeAutopilot(engine, false);
+        for (int i = 0; i < 500 && engine.isInGame(); i++) {
+            engine.step(autopilot.nextDirection());
+        }
+        int[] saved = engine.saveState();
+        SnakeEngine copy = new SnakeEngine(BOARD, BOARD, 0);
+        copy.restoreState(saved);
+        assertArrayEquals(saved, copy.saveState());
+        Random inputs = new Random(7);
+        while (engine.isInGame()) {
+            char input = randomInput(inputs);
+            engine.step(input);
+            copy.step(input);
+            assertArrayEquals(engine.saveState(), copy.saveState(), "tick " + engine.getTicks());
+        }
+    }
+
+    @Test
+    void recordedGamesReplayFromTheRecordAndTheLog() {
+        SnakeEngine engine = new SnakeEngine(BOARD, BOARD, 0);
+        SnakeRecorder recorder = new SnakeRecorder(engine);
+        Random inputs = new Random(3);
+        for (int seed = 1; seed <= 20; seed++) {
+            engine.reset(seed);
+            recorder.start();
+            while (recorder.step(randomInput(inputs))) {
+                // Play until the snake crashes.
+            }
+            SnakeReplay replay = recorder.getReplay();
+            assertEquals(engine.getTicks(), replay.getTicks());
+            assertEquals(engine.getScore(), replay.getScore());
+            assertTrue(replay.verify(), "replay of seed " + seed);
+
+            // The game log keeps the seed and the turns only; the game must follow from them alone.
+            int[] turns = recorder.getTurns();
+            int[] moves = new int[turns.length + 1];
+            moves[0] = seed;
+            System.arraycopy(turns, 0, moves, 1, turns.length);
+            SnakeReplay logged = SnakeReplay.fromGameLog(moves, moves.length, engine.getScore());
+            assertEquals(replay.getTicks(), logged.getTicks(), "logged game of seed " + seed);
+            assertTrue(logged.verify(), "logged game of seed " + seed);
+        }
+    }
+
+    @Test
+    void seekingMatchesPlayingThrough() {
+        SnakeReplay replay = recordAutopilotGame(11);
+        assertTrue(replay.getKeyframeCount() > 3, "the game should span several keyframes");
+
+        // The states at some ticks, found by playing the replay from the start.
+        Random random = new Random(11);
+        List<Integer> ticks = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ticks.add(random.nextInt(replay.getTicks() + 1));
+        }
+        ticks.add(0);
+        ticks.add(replay.getTicks());
+        List<int[]> states = new ArrayList<>();
+        for (int tick : ticks) {
+            SnakeEngine engine = new SnakeEngine(BOARD, BOARD, replay.getSeed());
+            while (engine.getTicks() < tick) {
+                replay.step(engine);
+            }
+            states.add(engine.saveState());
+        }
+
+        // Seeking back and forth in that order restores the same states.
+        SnakeEngine seeker = new SnakeEngine(BOARD, BOARD, 0);
+        for (int i = 0; i < ticks.size(); i++) {
+            replay.seek(seeker, ticks.get(i));
+            assertArrayEquals(states.get(i), seeker.saveState(), "seek to tick " + ticks.get(i));
+        }
+    }
+
+    @Test
+    void replayFileRoundTrip(@TempDir File directory) throws IOException {
+        SnakeReplay replay = recordAutopilotGame(5);
+        File file = new File(directory, "game.srpl");
+        replay.write(file);
+        SnakeReplay read = SnakeReplay.read(file);
+        assertEquals(replay.getSeed(), read.getSeed());
+        assertEquals(replay.getTicks(), read.getTicks());
+        assertEquals(replay.getScore(), read.getScore());
+        assertEquals(replay.getTurnCount(), read.getTurnCount());
+        assertEquals(replay.getKeyframeCount(), read.getKeyframeCount());
+        for (int tick = 0; tick < replay.getTicks(); tick++) {
+            assertEquals(replay.inputAt(tick), read.inputAt(tick));
+        }
+        assertTrue(read.verify());
+    }
+
+    @Test
+    void corruptLengthsAreRejectedBeforeAllocating(@TempDir File directory) throws IOException {
+        // Header: 30x30 board, 10 ticks, score 0, keyframe interval 1000; then a length and nothing after it.
+        int[][] headers = {
+                {30, 30, 10, 0, 1000, 11},                        // More turns than ticks.
+                {30, 30, 10, 0, 1000, 0, 2},                      // More keyframes than the ticks need.
+                {30, 30, 10, 0, 1000, 0, 1, 12 + 2 * 30 * 30 + 1}, // A keyframe larger than any state.
+                {30, 30, 10, 0, 1000, Integer.MAX_VALUE},         // A length that would not fit in memory.
+                {30, 30, 10, 0, 0},                               // No keyframe interval.
+        };
+        for (int[] header : headers) {
+            File file = new File(directory, "corrupt.srpl");
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+                out.writeInt(SnakeReplay.MAGIC);
+                out.writeShort(SnakeReplay.VERSION);
+                out.writeLong(1);
+                for (int value : header) {
+                    while ((value & ~0x7F) != 0) {
+                        out.writeByte((value & 0x7F) | 0x80);
+                        value >>>= 7;
+                    }
+                    out.writeByte(value);
+                }
+            }
+            IOException e = assertThrows(IOException.class, () -> SnakeReplay.read(file));
+            assertTrue(e.getMessage().startsWith("Corrupt Snake replay"), e.getMessage());
+        }
+    }
+
+    /**
+     * Records one game steered by the autopilot, which lives long enough to leave many keyframes.
+     */
+    private static SnakeReplay recordAutopilotGame(int seed) {
+        SnakeEngine engine = new SnakeEngine(BOARD, BOARD, seed);
+        SnakeRecorder recorder = new SnakeRecorder(engine);
+        SnakeAutopilot autopilot = new SnakeAutopilot(engine, false);
+        recorder.start();
+        while (recorder.step(autopilot.nextDirection())) {
+            // Play until the autopilot crashes or fills the board.
+        }
+        return recorder.getReplay();
+    }
+}
@@ -0,0 +1,189 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plays SnakeWorld, with its chunked sparse storage, side by side with a dense model that keeps a flag per cell
+ * for the body and the food, and checks that both agree. The model places food with the same random draws
+ * (FOOD_TRIES random cells, then a scan from a random start), so both worlds must hold the same food at all times,
+ * and the number of chunks in memory must be exactly the number of chunks with some body or food in them.
+ */
+class SnakeWorldModelTest {
+    private static final String DIRECTIONS = "UDLR";
+    private static final int FOOD_TRIES = 64;
+
+    /**
+     * The rules of SnakeWorld on plain arrays the size of the world.
+     */
+    private static final class Model {
+        final int columns;
+        final int rows;
+        final boolean[] body;
+        final boolean[] food;
+        final ArrayDeque<Integer> snake = new ArrayDeque<>(); // The head first.
+        final Random random;
+        char direction = 'R';
+        boolean inGame = true;
+        int score;
+
+        Model(int columns, int rows, int foodCount, long seed) {
+            this.columns = columns;
+            this.rows = rows;
+            body = new boolean[columns * rows];
+            food = new boolean[columns * rows];
+            random = new Random(seed);
+            for (int i = 0; i < 5; i++) {
+                int cell = rows / 2 * columns + Math.floorMod(columns / 2 - i, columns);
+                snake.addLast(cell);
+                body[cell] = true;
+            }
+            for (int i = 0; i < foodCount; i++) {
+                placeFood();
+            }
+        }
+
+        void placeFood() {
+            int cells = columns * rows;
+            for (int i = 0; i < FOOD_TRIES; i++) {
+                int cell = random.nextInt(cells);
+                if (!body[cell] && !food[cell]) {
+                    food[cell] = true;
+                    return;
+                }
+            }
+            int start = random.nextInt(cells);
+            for (int i = 0; i < cells; i++) {
+                int cell = (start + i) % cells;
+                if (!body[cell] && !food[cell]) {
+                    food[cell] = true;
+                    return;
+                }
+            }
+        }
+
+        void step(char input) {
+            int turn = DIRECTIONS.indexOf(input);
+            if (turn >= 0 && (turn ^ 1) != DIRECTIONS.indexOf(direction)) { // U/D and L/R are opposite pairs.
+                direction = input;
+            }
+            int column = snake.peekFirst() % columns;
+            int row = snake.peekFirst() / columns;
+            if (direction == 'R') column = (column + 1) % columns;
+            if (direction == 'L') column = (column + columns - 1) % columns;
+            if (direction == 'D') row = (row + 1) % rows;
+            if (direction == 'U') row = (row + rows - 1) % rows;
+            int next = row * columns + column;
+            boolean grows = food[next];
+            if (grows) {
+                food[next] = false;
+            } else {
+                body[snake.removeLast()] = false;
+            }
+            if (body[next]) {
+                inGame = false;
+                return;
+            }
+            body[next] = true;
+            snake.addFirst(next);
+            if (grows) {
+                score += 10;
+                if (snake.size() == columns * rows) {
+                    inGame = false;
+                } else {
+                    placeFood();
+                }
+            }
+        }
+
+        int chunkCount() {
+            int chunkColumns = (columns + SnakeWorld.CHUNK_SIZE - 1) / SnakeWorld.CHUNK_SIZE;
+            int chunkRows = (rows + SnakeWorld.CHUNK_SIZE - 1) / SnakeWorld.CHUNK_SIZE;
+            boolean[] used = new boolean[chunkColumns * chunkRows];
+            for (int cell = 0; cell < body.length; cell++) {
+                if (body[cell] || food[cell]) {
+                    int chunkRow = cell / columns / SnakeWorld.CHUNK_SIZE;
+                    int chunkColumn = cell % columns / SnakeWorld.CHUNK_SIZE;
+                    used[chunkRow * chunkColumns + chunkColumn] = true;
+                }
+            }
+            int count = 0;
+            for (boolean chunk : used) {
+                if (chunk) count++;
+            }
+            return count;
+        }
+    }
+
+    private static void assertSameState(Model model, SnakeWorld world, boolean everyCell) {
+        String at = world.getColumns() + "x" + world.getRows() + ", tick " + world.getTicks();
+        assertEquals(model.inGame, world.isInGame(), at);
+        assertEquals(model.score, world.getScore(), at);
+        if (!model.inGame) return; // The world stops updating the body once the game is over.
+        assertEquals(model.snake.size(), world.getSnakeLength(), at);
+        Iterator<Integer> segments = model.snake.iterator();
+        for (int i = 0; i < world.getSnakeLength(); i++) {
+            assertEquals((int) segments.next(), world.getSnakeCell(i), at + ", segment " + i);
+        }
+        if (everyCell) {
+            for (int cell = 0; cell < model.body.length; cell++) {
+                assertEquals(model.body[cell], world.isOccupied(cell), at + ", body at cell " + cell);
+                assertEquals(model.food[cell], world.isFood(cell), at + ", food at cell " + cell);
+            }
+            assertEquals(model.chunkCount(), world.getChunkCount(), at + ", chunks");
+        }
+    }
+
+    /**
+     * Plays games with random turns and compares every cell after every tick, or every checkInterval ticks.
+     */
+    private static void compare(int columns, int rows, int foodCount, int games, int maxTicks, int checkInterval) {
+        Random random = new Random(columns * 31L + rows);
+        for (int game = 0; game < games; game++) {
+            long seed = random.nextLong();
+            SnakeWorld world = new SnakeWorld(columns, rows, foodCount, seed);
+            Model model = new Model(columns, rows, foodCount, seed);
+            assertSameState(model, world, true);
+            while (world.isInGame() && world.getTicks() < maxTicks) {
+                char input = random.nextInt(4) == 0 ? DIRECTIONS.charAt(random.nextInt(4)) : '-';
+                model.step(input);
+                world.step(input);
+                assertSameState(model, world, world.getTicks() % checkInterval == 0 || !world.isInGame());
+            }
+        }
+    }
+
+    @Test
+    void smallWorldsWithPartialChunks() {
+        compare(21, 19, 12, 200, 10_000, 1);
+        compare(40, 33, 30, 100, 10_000, 1);
+        compare(8, 1, 2, 100, 10_000, 1);
+    }
+
+    @Test
+    void crowdedWorldsUseTheScanFallback() {
+        // With most free cells taken by food, random tries often miss and the scan places the food.
+        compare(6, 6, 25, 300, 10_000, 1);
+        compare(17, 16, 200, 100, 10_000, 1);
+    }
+
+    @Test
+    void largeWorldCreatesAndReleasesChunks() {
+        compare(300, 200, 400, 5, 20_000, 97);
+    }
+
+    @Test
+    void resetReleasesThePreviousGame() {
+        SnakeWorld world = new SnakeWorld(300, 200, 400, 1);
+        Random random = new Random(1);
+        while (world.isInGame() && world.getTicks() < 5000) {
+            world.step(random.nextInt(4) == 0 ? DIRECTIONS.charAt(random.nextInt(4)) : '-');
+        }
+        world.reset(2);
+        Model model = new Model(300, 200, 400, 2);
+        assertSameState(model, world, true);
+    }
+}